@@ -0,0 +1,110 @@
+package adapters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit how many calls to a dependency are in progress, and adapt that limit to how the dependency copes (AIMD).
+ * A call that answers within the latency target raises the limit by about one per limit calls,
+ * a slower call or a failed one cuts it by BACKOFF_RATIO, never below minLimit nor above maxLimit.
+ * The limit is cut at most once per limit completions, about once per round trip: the calls that were in flight
+ * together with a slow one tell about the same moment of the dependency, so a burst of them cuts the limit once.
+ * So when the dependency slows down we stop queueing more work on it, and grow back once it recovers.
+ * Calls above the limit are refused at once instead of waiting for a slot.
+ * */
+public class AdaptiveConcurrencyLimiter {
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+
+    private double limit;
+    private int inFlight;
+    private long completedCount;
+    // no cut until completedCount reaches it, so the calls in flight at the last cut do not cut again
+    private long nextDecreaseAt;
+    private long rejectedCount;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyTarget, TimeUnit unit) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("limits must satisfy 0 < minLimit <= initialLimit <= maxLimit");
+        }
+        if (latencyTarget <= 0) {
+            throw new IllegalArgumentException("latencyTarget must be positive");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = unit.toNanos(latencyTarget);
+    }
+
+    /**
+     * Take a slot if the limit allows it. Every taken slot must be given back with onSuccess, onDropped or onIgnore
+     * */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejectedCount++;
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * The call got an answer after latencyNanos
+     * */
+    public synchronized void onSuccess(long latencyNanos) {
+        onSuccess(latencyNanos, 1);
+    }
+
+    /**
+     * The call, a batch of batchSize items, got an answer after latencyNanos.
+     * The latency target grows with the batch, so a large batch is not taken for a slow dependency.
+     * */
+    public synchronized void onSuccess(long latencyNanos, int batchSize) {
+        inFlight--;
+        completedCount++;
+        if (latencyNanos > latencyTargetNanos * Math.max(1, batchSize)) {
+            decrease();
+        } else if (inFlight + 1 >= (int) limit / 2) {
+            // only grow when the limit was actually in use, an idle service says nothing about capacity
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * The call failed or timed out, a sign the dependency is overloaded
+     * */
+    public synchronized void onDropped() {
+        inFlight--;
+        completedCount++;
+        decrease();
+    }
+
+    /**
+     * The call ended in a way that says nothing about the dependency
+     * */
+    public synchronized void onIgnore() {
+        inFlight--;
+    }
+
+    private void decrease() {
+        if (completedCount < nextDecreaseAt) {
+            return;
+        }
+        nextDecreaseAt = completedCount + (int) limit;
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+}
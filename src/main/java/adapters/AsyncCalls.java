@@ -0,0 +1,39 @@
+package adapters;
+
+import domain.ports.errors.OverloadedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Run a blocking call on an executor and expose its outcome as a CompletableFuture.
+ * Unlike CompletableFuture.supplyAsync, the call may throw checked exceptions,
+ * which complete the future exceptionally as they are.
+ * When the executor rejects the call, the future completes with an OverloadedException,
+ * like any other port that has no room left for the call.
+ * */
+public final class AsyncCalls {
+    public interface BlockingCall<V> {
+        V call() throws Exception;
+    }
+
+    private AsyncCalls() {
+    }
+
+    public static <V> CompletableFuture<V> runOn(Executor executor, BlockingCall<V> call) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(new OverloadedException("No thread left to run the call: " + ex.getMessage()));
+        }
+        return future;
+    }
+}
@@ -0,0 +1,138 @@
+package adapters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive failure circuit breaker.
+ * After failureThreshold failures in a row the circuit opens and every call is refused for openDuration.
+ * Then a single trial call is let through (half open): its success closes the circuit, its failure opens it again.
+ * Every state change starts a new generation, and a permit only counts in the generation it was given in,
+ * so a slow call let through before the circuit opened can neither close it nor free the trial slot when it ends.
+ * */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Given by tryAcquire, handed back with the outcome of the call
+     * */
+    public static final class Permit {
+        private final long generation;
+
+        private Permit(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long rejectedCount;
+
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        this(failureThreshold, openDuration, unit, System::nanoTime);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit, LongSupplier nanoClock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be positive");
+        }
+        if (openDuration <= 0) {
+            throw new IllegalArgumentException("openDuration must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * A permit when a call may go through now, null when it may not.
+     * Every permit must be followed by onSuccess, onFailure or onIgnored
+     * */
+    public synchronized Permit tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return new Permit(generation);
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAt < openNanos) {
+                    rejectedCount++;
+                    return null;
+                }
+                moveTo(State.HALF_OPEN);
+                trialInFlight = true;
+                return new Permit(generation);
+            default:
+                if (trialInFlight) {
+                    rejectedCount++;
+                    return null;
+                }
+                trialInFlight = true;
+                return new Permit(generation);
+        }
+    }
+
+    public synchronized void onSuccess(Permit permit) {
+        if (permit.generation != generation) {
+            return;
+        }
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            moveTo(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure(Permit permit) {
+        if (permit.generation != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            open();
+            return;
+        }
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * The call was refused before it reached the service, it says nothing about its health
+     * */
+    public synchronized void onIgnored(Permit permit) {
+        if (permit.generation == generation && state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    private void open() {
+        moveTo(State.OPEN);
+        openedAt = nanoClock.getAsLong();
+        consecutiveFailures = 0;
+    }
+
+    private void moveTo(State next) {
+        state = next;
+        generation++;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+}
@@ -0,0 +1,201 @@
+package adapters.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Size bounded LRU cache where every entry also expires after a time to live.
+ * Expired entries are dropped lazily when they are read or when the cache is full.
+ * A read-through loader should take getInvalidationCount before loading and store with putIfNotInvalidatedSince,
+ * so a value loaded before an invalidate cannot be put back after it.
+ * */
+public class ExpiringLruCache<K, V> {
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    // guarded by entries
+    private long invalidationCount;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+
+    public ExpiringLruCache(int maxSize, long ttl, TimeUnit unit) {
+        this(maxSize, ttl, unit, System::nanoTime);
+    }
+
+    public ExpiringLruCache(int maxSize, long ttl, TimeUnit unit, LongSupplier nanoClock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.nanoClock = nanoClock;
+        // access order, so the eldest entry is always the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public V get(K key) {
+        long now = nanoClock.getAsLong();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                missCount.incrementAndGet();
+                return null;
+            }
+            if (entry.expiresAt - now <= 0) {
+                entries.remove(key);
+                expirationCount.incrementAndGet();
+                missCount.incrementAndGet();
+                return null;
+            }
+            hitCount.incrementAndGet();
+            return entry.value;
+        }
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long now = nanoClock.getAsLong();
+        Entry<V> entry = new Entry<>(value, now + unit.toNanos(ttl));
+        synchronized (entries) {
+            entries.put(key, entry);
+            if (entries.size() > maxSize) {
+                evict(now);
+            }
+        }
+    }
+
+    /**
+     * Put the value only if nothing was invalidated since invalidationCount was read. Returns whether it was put.
+     * */
+    public boolean putIfNotInvalidatedSince(K key, V value, long invalidationCount) {
+        return putIfNotInvalidatedSince(key, value, ttlNanos, TimeUnit.NANOSECONDS, invalidationCount);
+    }
+
+    public boolean putIfNotInvalidatedSince(K key, V value, long ttl, TimeUnit unit, long invalidationCount) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long now = nanoClock.getAsLong();
+        Entry<V> entry = new Entry<>(value, now + unit.toNanos(ttl));
+        synchronized (entries) {
+            if (this.invalidationCount != invalidationCount) {
+                return false;
+            }
+            entries.put(key, entry);
+            if (entries.size() > maxSize) {
+                evict(now);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Put every entry whose key is not cached yet, under one lock. Returns how many were put.
+     * */
+    public int putAllIfAbsent(Map<K, V> values) {
+        long now = nanoClock.getAsLong();
+        int put = 0;
+        synchronized (entries) {
+            for (Map.Entry<K, V> value : values.entrySet()) {
+                Entry<V> entry = entries.get(value.getKey());
+                if (entry == null || entry.expiresAt - now <= 0) {
+                    entries.put(value.getKey(), new Entry<>(value.getValue(), now + ttlNanos));
+                    put++;
+                }
+            }
+            if (entries.size() > maxSize) {
+                evict(now);
+            }
+        }
+        return put;
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+            invalidationCount++;
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            invalidationCount++;
+        }
+    }
+
+    public long getInvalidationCount() {
+        synchronized (entries) {
+            return invalidationCount;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // Must be called while holding the lock on entries
+    private void evict(long now) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && entries.size() > maxSize) {
+            Entry<V> eldest = iterator.next().getValue();
+            iterator.remove();
+            if (eldest.expiresAt - now <= 0) {
+                expirationCount.incrementAndGet();
+            } else {
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getExpirationCount() {
+        return expirationCount.get();
+    }
+
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
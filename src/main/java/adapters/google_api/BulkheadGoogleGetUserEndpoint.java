@@ -0,0 +1,57 @@
+package adapters.google_api;
+
+import adapters.AdaptiveConcurrencyLimiter;
+import domain.ports.errors.CircuitOpenException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.errors.OverloadedException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Keep the calls to Google within the limit of its own AdaptiveConcurrencyLimiter,
+ * so a slow Google holds at most that many threads and the rest fail fast with OverloadedException.
+ * A call refused further down, by another bulkhead or an open circuit, says nothing about Google's latency
+ * and leaves the limit alone.
+ * */
+public class BulkheadGoogleGetUserEndpoint implements GoogleGetUserEndpoint {
+    private final GoogleGetUserEndpoint endpoint;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final LongSupplier nanoClock;
+
+    public BulkheadGoogleGetUserEndpoint(GoogleGetUserEndpoint endpoint, AdaptiveConcurrencyLimiter limiter) {
+        this(endpoint, limiter, System::nanoTime);
+    }
+
+    public BulkheadGoogleGetUserEndpoint(GoogleGetUserEndpoint endpoint, AdaptiveConcurrencyLimiter limiter, LongSupplier nanoClock) {
+        this.endpoint = endpoint;
+        this.limiter = limiter;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Result getUser(String accessToken) throws ConnectionException {
+        if (!limiter.tryAcquire()) {
+            throw new OverloadedException("Too many calls to Google in progress");
+        }
+        long start = nanoClock.getAsLong();
+        boolean released = false;
+        try {
+            Result result = endpoint.getUser(accessToken);
+            limiter.onSuccess(nanoClock.getAsLong() - start);
+            released = true;
+            return result;
+        } catch (ConnectionException ex) {
+            // refused calls are left to the finally block, which ignores them
+            if (!(ex instanceof OverloadedException || ex instanceof CircuitOpenException)) {
+                limiter.onDropped();
+                released = true;
+            }
+            throw ex;
+        } finally {
+            if (!released) {
+                limiter.onIgnore();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package adapters.google_api;
+
+import adapters.cache.ExpiringLruCache;
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remember the Google user info of recently exchanged access tokens,
+ * so retried or refreshing clients do not hit Google again for the same token.
+ * Only Success results are cached, AuthError and GeneralError always go to the endpoint.
+ * */
+public class CachingGoogleGetUserEndpoint implements GoogleGetUserEndpoint {
+    private final GoogleGetUserEndpoint endpoint;
+    private final ExpiringLruCache<String, Result.Success> cache;
+
+    public CachingGoogleGetUserEndpoint(GoogleGetUserEndpoint endpoint, int maxSize, long ttl, TimeUnit unit) {
+        this(endpoint, new ExpiringLruCache<>(maxSize, ttl, unit));
+    }
+
+    public CachingGoogleGetUserEndpoint(GoogleGetUserEndpoint endpoint, ExpiringLruCache<String, Result.Success> cache) {
+        this.endpoint = endpoint;
+        this.cache = cache;
+    }
+
+    @Override
+    public Result getUser(String accessToken) throws ConnectionException {
+        Result.Success cached = cache.get(accessToken);
+        if (cached != null) {
+            return cached;
+        }
+
+        Result result = endpoint.getUser(accessToken);
+        if (result instanceof Result.Success) {
+            cache.put(accessToken, (Result.Success) result);
+        }
+        return result;
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public long getExpirationCount() {
+        return cache.getExpirationCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
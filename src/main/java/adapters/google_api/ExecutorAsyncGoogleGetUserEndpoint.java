@@ -0,0 +1,26 @@
+package adapters.google_api;
+
+import adapters.AsyncCalls;
+import domain.ports.google_api.AsyncGoogleGetUserEndpoint;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapt a blocking GoogleGetUserEndpoint to AsyncGoogleGetUserEndpoint by running it on the given executor.
+ * */
+public class ExecutorAsyncGoogleGetUserEndpoint implements AsyncGoogleGetUserEndpoint {
+    private final GoogleGetUserEndpoint endpoint;
+    private final Executor executor;
+
+    public ExecutorAsyncGoogleGetUserEndpoint(GoogleGetUserEndpoint endpoint, Executor executor) {
+        this.endpoint = endpoint;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<GoogleGetUserEndpoint.Result> getUserAsync(String accessToken) {
+        return AsyncCalls.runOn(executor, () -> endpoint.getUser(accessToken));
+    }
+}
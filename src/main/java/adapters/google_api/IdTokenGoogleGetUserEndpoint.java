@@ -0,0 +1,164 @@
+package adapters.google_api;
+
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Read the Google user from a signed Google ID token instead of asking Google with an access token.
+ * The token is an RS256 JWT whose signature is checked against Google's published keys (see JwksKeySet),
+ * so only a key refresh ever needs the network.
+ * The token must be issued by Google for our client id and not be expired; any problem with the token,
+ * its signature or its claims is an AuthError, like an access token Google would reject.
+ * The claims map onto GooglePojo the way the userinfo endpoint fields do, there is no profile link in an ID token.
+ * */
+public class IdTokenGoogleGetUserEndpoint implements GoogleGetUserEndpoint {
+    private static final Set<String> ISSUERS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("accounts.google.com", "https://accounts.google.com")));
+    // tolerated difference between our clock and Google's when checking exp and nbf
+    private static final long CLOCK_SKEW_SECONDS = 60;
+    // base64url of the header, Google's are about 150 chars
+    private static final int MAX_HEADER_LENGTH = 1024;
+
+    private final JwksKeySet keySet;
+    private final String clientId;
+    private final LongSupplier millisClock;
+
+    public IdTokenGoogleGetUserEndpoint(JwksKeySet keySet, String clientId) {
+        this(keySet, clientId, System::currentTimeMillis);
+    }
+
+    public IdTokenGoogleGetUserEndpoint(JwksKeySet keySet, String clientId, LongSupplier millisClock) {
+        this.keySet = keySet;
+        this.clientId = clientId;
+        this.millisClock = millisClock;
+    }
+
+    @Override
+    public Result getUser(String idToken) throws ConnectionException {
+        if (idToken == null) {
+            return new Result.AuthError();
+        }
+        int firstDot = idToken.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : idToken.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || idToken.indexOf('.', secondDot + 1) >= 0) {
+            return new Result.AuthError();
+        }
+
+        // the header is parsed before the signature can be checked, so it is only parsed when it is small
+        if (firstDot > MAX_HEADER_LENGTH) {
+            return new Result.AuthError();
+        }
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        Map<String, Object> header;
+        byte[] signature;
+        try {
+            header = Json.parseObject(new String(decoder.decode(idToken.substring(0, firstDot)), StandardCharsets.UTF_8));
+            signature = decoder.decode(idToken.substring(secondDot + 1));
+        } catch (IllegalArgumentException ex) {
+            return new Result.AuthError();
+        }
+
+        if (!"RS256".equals(header.get("alg")) || !(header.get("kid") instanceof String)) {
+            return new Result.AuthError();
+        }
+        PublicKey key = keySet.get((String) header.get("kid"));
+        if (key == null || !verify(key, idToken.substring(0, secondDot), signature)) {
+            return new Result.AuthError();
+        }
+
+        // only claims Google signed are parsed
+        Map<String, Object> claims;
+        try {
+            claims = Json.parseObject(new String(decoder.decode(idToken.substring(firstDot + 1, secondDot)), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException ex) {
+            return new Result.AuthError();
+        }
+        if (!hasValidClaims(claims)) {
+            return new Result.AuthError();
+        }
+
+        return new Result.Success(new GooglePojo(
+                (String) claims.get("sub"),
+                (String) claims.get("email"),
+                isTrue(claims.get("email_verified")),
+                stringOrNull(claims.get("name")),
+                stringOrNull(claims.get("given_name")),
+                stringOrNull(claims.get("family_name")),
+                null,
+                stringOrNull(claims.get("picture"))));
+    }
+
+    // a new Signature per token: logins run on virtual threads, which would never reuse a cached one,
+    // and getInstance is cheap next to the RSA verification itself
+    private static boolean verify(PublicKey key, String signedPart, byte[] signature) {
+        Signature verifier;
+        try {
+            verifier = Signature.getInstance("SHA256withRSA");
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform must have it
+            throw new IllegalStateException(ex);
+        }
+        try {
+            verifier.initVerify(key);
+            verifier.update(signedPart.getBytes(StandardCharsets.US_ASCII));
+            return verifier.verify(signature);
+        } catch (GeneralSecurityException ex) {
+            return false;
+        }
+    }
+
+    private boolean hasValidClaims(Map<String, Object> claims) {
+        if (!ISSUERS.contains(claims.get("iss"))) {
+            return false;
+        }
+        Object audience = claims.get("aud");
+        boolean forUs = audience instanceof Iterable
+                ? contains((Iterable<?>) audience, clientId)
+                : clientId.equals(audience);
+        if (!forUs) {
+            return false;
+        }
+        long nowSeconds = millisClock.getAsLong() / 1000;
+        Object expiresAt = claims.get("exp");
+        if (!(expiresAt instanceof Long) || (Long) expiresAt + CLOCK_SKEW_SECONDS <= nowSeconds) {
+            return false;
+        }
+        Object notBefore = claims.get("nbf");
+        if (notBefore instanceof Long && (Long) notBefore - CLOCK_SKEW_SECONDS > nowSeconds) {
+            return false;
+        }
+        return claims.get("sub") instanceof String && claims.get("email") instanceof String;
+    }
+
+    private static boolean contains(Iterable<?> values, Object value) {
+        for (Object item : values) {
+            if (value.equals(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTrue(Object value) {
+        // Google has sent email_verified both as a boolean and as the string "true"
+        return Boolean.TRUE.equals(value) || "true".equals(value);
+    }
+
+    private static String stringOrNull(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+}
@@ -0,0 +1,243 @@
+package adapters.google_api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON to read token headers, claims and key sets, without pulling a JSON library into main.
+ * Objects become LinkedHashMap, arrays ArrayList, numbers Long or Double, and the rest String, Boolean or null.
+ * Malformed input, or objects and arrays nested deeper than MAX_DEPTH, throws IllegalArgumentException,
+ * so untrusted input cannot overflow the stack of this recursive parser.
+ * */
+final class Json {
+    static final int MAX_DEPTH = 32;
+
+    private final String text;
+    private int pos;
+    private int depth;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    static Object parse(String text) {
+        Json json = new Json(text);
+        json.skipWhitespace();
+        Object value = json.readValue();
+        json.skipWhitespace();
+        if (json.pos != text.length()) {
+            throw json.error("Unexpected trailing content");
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parseObject(String text) {
+        Object value = parse(text);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private Object readValue() {
+        if (pos >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{':
+            case '[':
+                if (depth == MAX_DEPTH) {
+                    throw error("Nested deeper than " + MAX_DEPTH);
+                }
+                depth++;
+                Object value = c == '{' ? readObject() : readArray();
+                depth--;
+                return value;
+            case '"':
+                return readString();
+            case 't':
+                expectWord("true");
+                return Boolean.TRUE;
+            case 'f':
+                expectWord("false");
+                return Boolean.FALSE;
+            case 'n':
+                expectWord("null");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected a member name");
+            }
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            object.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return array;
+        }
+        while (true) {
+            skipWhitespace();
+            array.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String readString() {
+        pos++;
+        StringBuilder builder = null;
+        int start = pos;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '"') {
+                String value = builder == null ? text.substring(start, pos) : builder.append(text, start, pos).toString();
+                pos++;
+                return value;
+            }
+            if (c == '\\') {
+                if (builder == null) {
+                    builder = new StringBuilder();
+                }
+                builder.append(text, start, pos);
+                builder.append(readEscape());
+                start = pos;
+                continue;
+            }
+            if (c < 0x20) {
+                throw error("Control character in string");
+            }
+            pos++;
+        }
+        throw error("Unterminated string");
+    }
+
+    private char readEscape() {
+        if (pos + 1 >= text.length()) {
+            throw error("Unterminated escape");
+        }
+        char c = text.charAt(pos + 1);
+        pos += 2;
+        switch (c) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                if (pos + 4 > text.length()) {
+                    throw error("Truncated unicode escape");
+                }
+                try {
+                    char unicode = (char) Integer.parseInt(text.substring(pos, pos + 4), 16);
+                    pos += 4;
+                    return unicode;
+                } catch (NumberFormatException ex) {
+                    throw error("Invalid unicode escape");
+                }
+            default:
+                throw error("Invalid escape '\\" + c + "'");
+        }
+    }
+
+    private Object readNumber() {
+        int start = pos;
+        boolean integral = true;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+') {
+                pos++;
+            } else if (c == '.' || c == 'e' || c == 'E') {
+                integral = false;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        String number = text.substring(start, pos);
+        try {
+            return integral ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+        } catch (NumberFormatException ex) {
+            throw error("Invalid number '" + number + "'");
+        }
+    }
+
+    private void expectWord(String word) {
+        if (!text.startsWith(word, pos)) {
+            throw error("Expected " + word);
+        }
+        pos += word.length();
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private char peek() {
+        if (pos >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        return text.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + pos);
+    }
+}
@@ -0,0 +1,131 @@
+package adapters.google_api;
+
+import domain.ports.errors.ConnectionException;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Google's RSA signing keys by key id, loaded from a JWKS document and refreshed every refreshInterval.
+ * A key id we do not know also triggers a refresh, since Google rotates keys, but at most once per minRefreshInterval
+ * so tokens with made up key ids cannot make us reload on every login.
+ * When a refresh fails the keys we already have are kept, only a first load failure is a ConnectionException.
+ * */
+public class JwksKeySet {
+    public interface Source {
+        String fetch() throws IOException;
+    }
+
+    private final Source source;
+    private final long refreshNanos;
+    private final long minRefreshNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile Map<String, PublicKey> keysById;
+    private volatile long loadedAt;
+    private long lastAttemptAt;
+    private boolean attempted;
+
+    public JwksKeySet(Source source, long refreshInterval, long minRefreshInterval, TimeUnit unit) {
+        this(source, refreshInterval, minRefreshInterval, unit, System::nanoTime);
+    }
+
+    public JwksKeySet(Source source, long refreshInterval, long minRefreshInterval, TimeUnit unit, LongSupplier nanoClock) {
+        if (refreshInterval <= 0 || minRefreshInterval < 0 || minRefreshInterval > refreshInterval) {
+            throw new IllegalArgumentException("minRefreshInterval must be between zero and the positive refreshInterval");
+        }
+        this.source = source;
+        this.refreshNanos = unit.toNanos(refreshInterval);
+        this.minRefreshNanos = unit.toNanos(minRefreshInterval);
+        this.nanoClock = nanoClock;
+    }
+
+    public static Source fromFile(Path file) {
+        return () -> new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The key with this id, or null when the key set does not have it even after a refresh
+     * */
+    public PublicKey get(String keyId) throws ConnectionException {
+        Map<String, PublicKey> keys = keysById;
+        if (keys == null || nanoClock.getAsLong() - loadedAt >= refreshNanos) {
+            keys = refresh(false);
+        }
+        PublicKey key = keys.get(keyId);
+        if (key == null) {
+            key = refresh(true).get(keyId);
+        }
+        return key;
+    }
+
+    private synchronized Map<String, PublicKey> refresh(boolean unknownKeyId) throws ConnectionException {
+        long now = nanoClock.getAsLong();
+        Map<String, PublicKey> keys = keysById;
+        if (keys != null) {
+            // another thread refreshed while we waited, or we refreshed too recently to try again
+            boolean fresh = now - loadedAt < (unknownKeyId ? minRefreshNanos : refreshNanos);
+            boolean throttled = attempted && now - lastAttemptAt < minRefreshNanos;
+            if (fresh || throttled) {
+                return keys;
+            }
+        }
+        attempted = true;
+        lastAttemptAt = now;
+        try {
+            keys = parse(source.fetch());
+        } catch (IOException | IllegalArgumentException | GeneralSecurityException ex) {
+            if (keysById != null) {
+                return keysById;
+            }
+            throw new ConnectionException("Cannot load signing keys: " + ex.getMessage());
+        }
+        keysById = keys;
+        loadedAt = now;
+        return keys;
+    }
+
+    public int size() {
+        Map<String, PublicKey> keys = keysById;
+        return keys == null ? 0 : keys.size();
+    }
+
+    private static Map<String, PublicKey> parse(String document) throws GeneralSecurityException {
+        Object keys = Json.parseObject(document).get("keys");
+        if (!(keys instanceof List)) {
+            throw new IllegalArgumentException("JWKS has no keys array");
+        }
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        Map<String, PublicKey> keysById = new HashMap<>();
+        for (Object item : (List<?>) keys) {
+            if (!(item instanceof Map)) {
+                continue;
+            }
+            Map<?, ?> jwk = (Map<?, ?>) item;
+            // only RSA signing keys can verify RS256 tokens, anything else is skipped
+            if (!"RSA".equals(jwk.get("kty")) || "enc".equals(jwk.get("use"))
+                    || !(jwk.get("kid") instanceof String) || !(jwk.get("n") instanceof String) || !(jwk.get("e") instanceof String)) {
+                continue;
+            }
+            BigInteger modulus = new BigInteger(1, decoder.decode((String) jwk.get("n")));
+            BigInteger exponent = new BigInteger(1, decoder.decode((String) jwk.get("e")));
+            keysById.put((String) jwk.get("kid"), keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+        }
+        return Collections.unmodifiableMap(keysById);
+    }
+}
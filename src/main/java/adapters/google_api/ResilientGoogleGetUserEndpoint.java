@@ -0,0 +1,173 @@
+package adapters.google_api;
+
+import adapters.CircuitBreaker;
+import domain.ports.errors.CircuitOpenException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.errors.HostDoesNotExistException;
+import domain.ports.errors.OverloadedException;
+import domain.ports.errors.TimeOutException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Bound how long a login can wait on Google.
+ * Every attempt runs on the given executor and is abandoned with a TimeOutException after callTimeout,
+ * and the whole call, retries and backoffs included, after totalTimeout: an attempt only gets the time left,
+ * and a backoff that would end past it is not slept, the last failure is thrown instead.
+ * Connection failures are retried up to maxAttempts in total, sleeping a random time between zero and
+ * baseBackoff * 2^retry (capped at maxBackoff) before each retry, so clients that failed together do not retry together.
+ * HostDoesNotExistException is not retried, it will not fix itself within a login, nor is OverloadedException,
+ * retrying would only add to the load.
+ * All attempts go through the circuit breaker, which refuses calls at once while Google keeps failing.
+ * A call refused on our side, by a bulkhead, an inner circuit or a full executor, never reached Google
+ * and does not count as a failure.
+ * Results are never retried: AuthError and GeneralError are answers from Google, not failures to reach it.
+ * */
+public class ResilientGoogleGetUserEndpoint implements GoogleGetUserEndpoint {
+    public interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    private final GoogleGetUserEndpoint endpoint;
+    private final ExecutorService executor;
+    private final long callTimeoutNanos;
+    private final long totalTimeoutNanos;
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final Sleeper sleeper;
+    private final LongUnaryOperator jitter;
+
+    public ResilientGoogleGetUserEndpoint(GoogleGetUserEndpoint endpoint, ExecutorService executor,
+                                          long callTimeout, long totalTimeout, int maxAttempts, long baseBackoff, long maxBackoff, TimeUnit unit,
+                                          CircuitBreaker circuitBreaker) {
+        this(endpoint, executor, callTimeout, totalTimeout, maxAttempts, baseBackoff, maxBackoff, unit, circuitBreaker,
+                TimeUnit.NANOSECONDS::sleep, bound -> ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    /**
+     * @param jitter given the largest backoff of a retry in nanos, returns the backoff to use, between zero and that bound
+     * */
+    public ResilientGoogleGetUserEndpoint(GoogleGetUserEndpoint endpoint, ExecutorService executor,
+                                          long callTimeout, long totalTimeout, int maxAttempts, long baseBackoff, long maxBackoff, TimeUnit unit,
+                                          CircuitBreaker circuitBreaker, Sleeper sleeper, LongUnaryOperator jitter) {
+        if (callTimeout <= 0) {
+            throw new IllegalArgumentException("callTimeout must be positive");
+        }
+        if (totalTimeout < callTimeout) {
+            throw new IllegalArgumentException("totalTimeout must be at least callTimeout");
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        if (baseBackoff < 0 || maxBackoff < baseBackoff) {
+            throw new IllegalArgumentException("backoff must be between zero and maxBackoff");
+        }
+        this.endpoint = endpoint;
+        this.executor = executor;
+        this.callTimeoutNanos = unit.toNanos(callTimeout);
+        this.totalTimeoutNanos = unit.toNanos(totalTimeout);
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffNanos = unit.toNanos(baseBackoff);
+        this.maxBackoffNanos = unit.toNanos(maxBackoff);
+        this.circuitBreaker = circuitBreaker;
+        this.sleeper = sleeper;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public Result getUser(String accessToken) throws ConnectionException {
+        long deadline = System.nanoTime() + totalTimeoutNanos;
+        for (int attempt = 1; ; attempt++) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new TimeOutException("Google did not answer within " + TimeUnit.NANOSECONDS.toMillis(totalTimeoutNanos) + " ms");
+            }
+            CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+            if (permit == null) {
+                throw new CircuitOpenException("Circuit breaker is open, Google is not called");
+            }
+            Result result;
+            try {
+                result = callWithTimeout(accessToken, Math.min(callTimeoutNanos, remainingNanos));
+            } catch (ConnectionException ex) {
+                if (ex instanceof OverloadedException || ex instanceof CircuitOpenException) {
+                    circuitBreaker.onIgnored(permit);
+                } else {
+                    circuitBreaker.onFailure(permit);
+                }
+                if (ex instanceof HostDoesNotExistException || ex instanceof OverloadedException || attempt == maxAttempts
+                        || !backoff(attempt, deadline)) {
+                    throw ex;
+                }
+                continue;
+            } catch (RuntimeException ex) {
+                circuitBreaker.onFailure(permit);
+                throw ex;
+            }
+            circuitBreaker.onSuccess(permit);
+            return result;
+        }
+    }
+
+    private Result callWithTimeout(String accessToken, long timeoutNanos) throws ConnectionException {
+        Future<Result> future;
+        try {
+            future = executor.submit(() -> endpoint.getUser(accessToken));
+        } catch (RejectedExecutionException ex) {
+            throw new OverloadedException("No thread left to call Google: " + ex.getMessage());
+        }
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            throw new TimeOutException("Google did not answer within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted while waiting for Google");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof ConnectionException) {
+                throw (ConnectionException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // false when the backoff would end past the deadline, then there is no time left to retry
+    private boolean backoff(int attempt, long deadline) throws ConnectionException {
+        // min(max, base * 2^(attempt - 1)), compared before shifting so large attempt counts cannot overflow
+        int shift = Math.min(attempt - 1, 62);
+        long bound = baseBackoffNanos > (maxBackoffNanos >> shift) ? maxBackoffNanos : baseBackoffNanos << shift;
+        long delay = jitter.applyAsLong(bound);
+        if (delay >= deadline - System.nanoTime()) {
+            return false;
+        }
+        if (delay <= 0) {
+            return true;
+        }
+        try {
+            sleeper.sleep(delay);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted while backing off before retrying Google");
+        }
+        return true;
+    }
+}
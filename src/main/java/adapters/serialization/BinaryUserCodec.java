@@ -0,0 +1,328 @@
+package adapters.serialization;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.google_api.GooglePojo;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of UserEntity and GooglePojo, read and written straight from / to a ByteBuffer.
+ * Lengths are varints, enums are one byte ordinals, and emails of a domain in the dictionary
+ * are stored as the local part plus a small domain index.
+ * Readers must use a codec with the same dictionary as the writer.
+ *
+ * Strings: varint (UTF-8 length + 1), 0 for null, then the bytes.
+ * Emails: varint tag, 0 for null, 1 for an inline string, 2 + i for local part + dictionary domain i.
+ * Enums: ordinal + 1, 0 for null.
+ * */
+public class BinaryUserCodec {
+    private static final int NULL_TAG = 0;
+    private static final int INLINE_EMAIL_TAG = 1;
+    private static final int FIRST_DOMAIN_TAG = 2;
+
+    /**
+     * The id and email of a user, all an index of users needs
+     * */
+    public static final class UserKey {
+        public final String id;
+        public final String email;
+
+        UserKey(String id, String email) {
+            this.id = id;
+            this.email = email;
+        }
+    }
+
+    private final String[] domains;
+    private final Map<String, Integer> domainTags;
+
+    public BinaryUserCodec() {
+        this(Collections.emptyList());
+    }
+
+    public BinaryUserCodec(List<String> domains) {
+        this.domains = domains.toArray(new String[0]);
+        this.domainTags = new HashMap<>();
+        for (int i = 0; i < this.domains.length; i++) {
+            domainTags.put(this.domains[i], FIRST_DOMAIN_TAG + i);
+        }
+    }
+
+    //region UserEntity
+    public void writeUser(ByteBuffer out, UserEntity user) {
+        writeString(out, user.getId());
+        writeEmail(out, user.getEmail());
+        writeString(out, user.getFullName());
+        out.put(user.getRole() == null ? 0 : (byte) (user.getRole().getType().ordinal() + 1));
+        out.put(user.getStatus() == null ? 0 : (byte) (user.getStatus().getStatus().ordinal() + 1));
+    }
+
+    public UserEntity readUser(ByteBuffer in) {
+        String id = readString(in);
+        String email = readEmail(in);
+        String fullName = readString(in);
+        int role = in.get();
+        int status = in.get();
+        return new UserEntity(id, email, fullName,
+                role == 0 ? null : UserRole.of(UserRole.TYPE.values()[role - 1]),
+                status == 0 ? null : UserStatus.of(UserStatus.STATUS.values()[status - 1]));
+    }
+
+    /**
+     * Read the id and email of a user written by writeUser, and skip the rest of it without decoding it
+     * */
+    public UserKey readUserKey(ByteBuffer in) {
+        String id = readString(in);
+        String email = readEmail(in);
+        skipString(in);
+        // role and status
+        skip(in, 2);
+        return new UserKey(id, email);
+    }
+
+    public int sizeOf(UserEntity user) {
+        return sizeOfString(user.getId()) + sizeOfEmail(user.getEmail()) + sizeOfString(user.getFullName()) + 2;
+    }
+    //endregion
+
+    //region GooglePojo
+    public void writeGooglePojo(ByteBuffer out, GooglePojo pojo) {
+        writeString(out, pojo.getId());
+        writeEmail(out, pojo.getEmail());
+        out.put(pojo.isVerified_email() ? (byte) 1 : 0);
+        writeString(out, pojo.getName());
+        writeString(out, pojo.getGiven_name());
+        writeString(out, pojo.getFamily_name());
+        writeString(out, pojo.getPicture());
+    }
+
+    public GooglePojo readGooglePojo(ByteBuffer in) {
+        GooglePojo pojo = new GooglePojo();
+        pojo.setId(readString(in));
+        pojo.setEmail(readEmail(in));
+        pojo.setVerified_email(in.get() != 0);
+        pojo.setName(readString(in));
+        pojo.setGiven_name(readString(in));
+        pojo.setFamily_name(readString(in));
+        pojo.setPicture(readString(in));
+        return pojo;
+    }
+
+    public int sizeOf(GooglePojo pojo) {
+        return sizeOfString(pojo.getId()) + sizeOfEmail(pojo.getEmail()) + 1 + sizeOfString(pojo.getName())
+                + sizeOfString(pojo.getGiven_name()) + sizeOfString(pojo.getFamily_name()) + sizeOfString(pojo.getPicture());
+    }
+    //endregion
+
+    //region emails
+    private void writeEmail(ByteBuffer out, String email) {
+        if (email == null) {
+            writeVarint(out, NULL_TAG);
+            return;
+        }
+        int at = email.lastIndexOf('@');
+        Integer tag = at < 0 ? null : domainTags.get(email.substring(at + 1));
+        if (tag == null) {
+            writeVarint(out, INLINE_EMAIL_TAG);
+            writeUtf8(out, email, 0, email.length());
+            return;
+        }
+        writeVarint(out, tag);
+        writeUtf8(out, email, 0, at);
+    }
+
+    private String readEmail(ByteBuffer in) {
+        int tag = readVarint(in);
+        if (tag == NULL_TAG) {
+            return null;
+        }
+        String local = readUtf8(in);
+        if (tag == INLINE_EMAIL_TAG) {
+            return local;
+        }
+        int domain = tag - FIRST_DOMAIN_TAG;
+        if (domain >= domains.length) {
+            throw new IllegalArgumentException("Unknown email domain " + domain + ", was it written with another dictionary?");
+        }
+        return local + '@' + domains[domain];
+    }
+
+    private int sizeOfEmail(String email) {
+        if (email == null) {
+            return 1;
+        }
+        int at = email.lastIndexOf('@');
+        Integer tag = at < 0 ? null : domainTags.get(email.substring(at + 1));
+        if (tag == null) {
+            return 1 + sizeOfUtf8(email, 0, email.length());
+        }
+        return sizeOfVarint(tag) + sizeOfUtf8(email, 0, at);
+    }
+    //endregion
+
+    //region strings and varints
+    private static void writeString(ByteBuffer out, String value) {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        int length = utf8Length(value, 0, value.length());
+        writeVarint(out, length + 1);
+        putUtf8(out, value, 0, value.length());
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarint(in) - 1;
+        return length < 0 ? null : decodeUtf8(in, length);
+    }
+
+    private static void skipString(ByteBuffer in) {
+        int length = readVarint(in) - 1;
+        if (length > 0) {
+            skip(in, length);
+        }
+    }
+
+    private static void skip(ByteBuffer in, int length) {
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        in.position(in.position() + length);
+    }
+
+    private static int sizeOfString(String value) {
+        if (value == null) {
+            return 1;
+        }
+        int length = utf8Length(value, 0, value.length());
+        return sizeOfVarint(length + 1) + length;
+    }
+
+    // length prefixed, never null
+    private static void writeUtf8(ByteBuffer out, String value, int from, int to) {
+        writeVarint(out, utf8Length(value, from, to));
+        putUtf8(out, value, from, to);
+    }
+
+    private static String readUtf8(ByteBuffer in) {
+        return decodeUtf8(in, readVarint(in));
+    }
+
+    private static int sizeOfUtf8(String value, int from, int to) {
+        int length = utf8Length(value, from, to);
+        return sizeOfVarint(length) + length;
+    }
+
+    private static String decodeUtf8(ByteBuffer in, int length) {
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (in.hasArray()) {
+            // heap buffers are decoded in place
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static int utf8Length(String value, int from, int to) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // encodes without an intermediate byte[]; unpaired surrogates become '?' like String.getBytes does
+    private static void putUtf8(ByteBuffer out, String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static void writeVarint(ByteBuffer out, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative varint " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static int sizeOfVarint(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+    //endregion
+
+    /**
+     * Encode into a new heap buffer of exactly the right size
+     * */
+    public ByteBuffer encode(UserEntity user) {
+        ByteBuffer out = ByteBuffer.allocate(sizeOf(user));
+        writeUser(out, user);
+        out.flip();
+        return out;
+    }
+}
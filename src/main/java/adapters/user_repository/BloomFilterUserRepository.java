@@ -0,0 +1,129 @@
+package adapters.user_repository;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.EmailMembership;
+import domain.ports.testonly.testonly.PreloadableUserCache;
+import domain.ports.testonly.testonly.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answer lookups of emails no user has from a Bloom filter of the known emails, without asking the repository.
+ * The filter has to know every email in the repository: warm it up with all of them at startup
+ * (or restore a snapshot of it), and let every insert go through this decorator, which adds the email first.
+ * An insert made around it would be invisible until the next warm up.
+ * Emails are normalized with EmailKeys, like the repositories do.
+ * */
+public class BloomFilterUserRepository implements UserRepository, EmailMembership, PreloadableUserCache {
+    private final UserRepository userRepository;
+    private final ScalableBloomFilter knownEmails;
+
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong falsePositiveCount = new AtomicLong();
+
+    public BloomFilterUserRepository(UserRepository userRepository, long expectedUsers, double falsePositiveRate) {
+        this(userRepository, new ScalableBloomFilter(expectedUsers, falsePositiveRate));
+    }
+
+    /**
+     * @param knownEmails a filter restored with ScalableBloomFilter.readFrom, or a new one
+     * */
+    public BloomFilterUserRepository(UserRepository userRepository, ScalableBloomFilter knownEmails) {
+        this.userRepository = userRepository;
+        this.knownEmails = knownEmails;
+    }
+
+    /**
+     * Add emails of users that already exist, typically all of them at startup
+     * */
+    public void warmUp(Iterable<String> emails) {
+        for (String email : emails) {
+            knownEmails.add(EmailKeys.normalize(email));
+        }
+    }
+
+    @Override
+    public void preload(Collection<UserEntity> users) {
+        for (UserEntity user : users) {
+            knownEmails.add(EmailKeys.normalize(user.getEmail()));
+        }
+    }
+
+    @Override
+    public boolean mightContain(String email) {
+        return knownEmails.mightContain(EmailKeys.normalize(email));
+    }
+
+    @Override
+    public UserEntity getUserByEmail(String email) throws ConnectionException {
+        if (!mightContain(email)) {
+            skippedCount.incrementAndGet();
+            return null;
+        }
+        UserEntity user = userRepository.getUserByEmail(email);
+        if (user == null) {
+            falsePositiveCount.incrementAndGet();
+        }
+        return user;
+    }
+
+    @Override
+    public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws ConnectionException, AlreadyExistException {
+        // before the insert, so no lookup can miss a user that is already stored.
+        // If the insert fails the email only costs a false positive
+        knownEmails.add(EmailKeys.normalize(email));
+        return userRepository.addUser(email, fullName, avatar, role, userStatus);
+    }
+
+    @Override
+    public Map<String, UserEntity> getUsersByEmails(Collection<String> emails) throws ConnectionException {
+        List<String> maybeKnown = new ArrayList<>(emails.size());
+        for (String email : emails) {
+            if (mightContain(email)) {
+                maybeKnown.add(email);
+            }
+        }
+        skippedCount.addAndGet(emails.size() - maybeKnown.size());
+        if (maybeKnown.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, UserEntity> users = userRepository.getUsersByEmails(maybeKnown);
+        falsePositiveCount.addAndGet(maybeKnown.size() - users.size());
+        return users;
+    }
+
+    @Override
+    public Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+        for (NewUser newUser : newUsers) {
+            knownEmails.add(EmailKeys.normalize(newUser.email));
+        }
+        return userRepository.addUsers(newUsers);
+    }
+
+    public ScalableBloomFilter getKnownEmails() {
+        return knownEmails;
+    }
+
+    /**
+     * Lookups answered by the filter alone
+     * */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * Lookups the filter let through for emails no user has
+     * */
+    public long getFalsePositiveCount() {
+        return falsePositiveCount.get();
+    }
+}
@@ -0,0 +1,140 @@
+package adapters.user_repository;
+
+import adapters.AdaptiveConcurrencyLimiter;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.CircuitOpenException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.errors.OverloadedException;
+import domain.ports.testonly.testonly.UserRepository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Keep the calls to the repository within the limit of its own AdaptiveConcurrencyLimiter,
+ * separate from the one for Google, so a slow database cannot take the threads Google calls need and the other way round.
+ * Calls over the limit fail fast with OverloadedException. AlreadyExistException is an answer, not a failure.
+ * A batch call takes one slot, like the single round trip it is, and is held to the latency target times its size.
+ * A call refused further down, by another bulkhead or an open circuit, says nothing about the repository's latency
+ * and leaves the limit alone.
+ * */
+public class BulkheadUserRepository implements UserRepository {
+    private final UserRepository userRepository;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final LongSupplier nanoClock;
+
+    public BulkheadUserRepository(UserRepository userRepository, AdaptiveConcurrencyLimiter limiter) {
+        this(userRepository, limiter, System::nanoTime);
+    }
+
+    public BulkheadUserRepository(UserRepository userRepository, AdaptiveConcurrencyLimiter limiter, LongSupplier nanoClock) {
+        this.userRepository = userRepository;
+        this.limiter = limiter;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public UserEntity getUserByEmail(String email) throws ConnectionException {
+        long start = acquire();
+        boolean released = false;
+        try {
+            UserEntity user = userRepository.getUserByEmail(email);
+            released = onSuccess(start);
+            return user;
+        } catch (ConnectionException ex) {
+            released = onDropped(ex);
+            throw ex;
+        } finally {
+            if (!released) {
+                limiter.onIgnore();
+            }
+        }
+    }
+
+    @Override
+    public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws ConnectionException, AlreadyExistException {
+        long start = acquire();
+        boolean released = false;
+        try {
+            UserEntity user = userRepository.addUser(email, fullName, avatar, role, userStatus);
+            released = onSuccess(start);
+            return user;
+        } catch (AlreadyExistException ex) {
+            released = onSuccess(start);
+            throw ex;
+        } catch (ConnectionException ex) {
+            released = onDropped(ex);
+            throw ex;
+        } finally {
+            if (!released) {
+                limiter.onIgnore();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, UserEntity> getUsersByEmails(Collection<String> emails) throws ConnectionException {
+        long start = acquire();
+        boolean released = false;
+        try {
+            Map<String, UserEntity> users = userRepository.getUsersByEmails(emails);
+            released = onSuccess(start, emails.size());
+            return users;
+        } catch (ConnectionException ex) {
+            released = onDropped(ex);
+            throw ex;
+        } finally {
+            if (!released) {
+                limiter.onIgnore();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+        long start = acquire();
+        boolean released = false;
+        try {
+            Map<String, UserEntity> added = userRepository.addUsers(newUsers);
+            released = onSuccess(start, newUsers.size());
+            return added;
+        } catch (ConnectionException ex) {
+            released = onDropped(ex);
+            throw ex;
+        } finally {
+            if (!released) {
+                limiter.onIgnore();
+            }
+        }
+    }
+
+    private long acquire() throws OverloadedException {
+        if (!limiter.tryAcquire()) {
+            throw new OverloadedException("Too many calls to the user repository in progress");
+        }
+        return nanoClock.getAsLong();
+    }
+
+    private boolean onSuccess(long start) {
+        limiter.onSuccess(nanoClock.getAsLong() - start);
+        return true;
+    }
+
+    private boolean onSuccess(long start, int batchSize) {
+        limiter.onSuccess(nanoClock.getAsLong() - start, batchSize);
+        return true;
+    }
+
+    // refused calls are left to the finally blocks, which ignore them
+    private boolean onDropped(ConnectionException ex) {
+        if (ex instanceof OverloadedException || ex instanceof CircuitOpenException) {
+            return false;
+        }
+        limiter.onDropped();
+        return true;
+    }
+}
@@ -0,0 +1,157 @@
+package adapters.user_repository;
+
+import adapters.cache.ExpiringLruCache;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.PreloadableUserCache;
+import domain.ports.testonly.testonly.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache in front of a UserRepository.
+ * Found users are kept for ttl, unknown emails for the (usually much shorter) notFoundTtl,
+ * and added users are written through to the cache.
+ * Call invalidate when a user's status or role is changed somewhere else;
+ * a read that started before the invalidate does not put the old user back.
+ * preload fills the cache at startup without replacing entries already read from the repository.
+ * */
+public class CachingUserRepository implements UserRepository, PreloadableUserCache {
+    private final UserRepository userRepository;
+    private final ExpiringLruCache<String, Optional<UserEntity>> cache;
+    private final long notFoundTtlNanos;
+
+    public CachingUserRepository(UserRepository userRepository, int maxSize, long ttl, long notFoundTtl, TimeUnit unit) {
+        this(userRepository, new ExpiringLruCache<>(maxSize, ttl, unit), notFoundTtl, unit);
+    }
+
+    public CachingUserRepository(UserRepository userRepository, ExpiringLruCache<String, Optional<UserEntity>> cache, long notFoundTtl, TimeUnit unit) {
+        this.userRepository = userRepository;
+        this.cache = cache;
+        this.notFoundTtlNanos = unit.toNanos(notFoundTtl);
+    }
+
+    @Override
+    public UserEntity getUserByEmail(String email) throws ConnectionException {
+        String key = EmailKeys.normalize(email);
+        Optional<UserEntity> cached = cache.get(key);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+
+        long invalidationCount = cache.getInvalidationCount();
+        UserEntity user = userRepository.getUserByEmail(email);
+        if (user != null) {
+            cache.putIfNotInvalidatedSince(key, Optional.of(user), invalidationCount);
+        } else if (notFoundTtlNanos > 0) {
+            cache.putIfNotInvalidatedSince(key, Optional.empty(), notFoundTtlNanos, TimeUnit.NANOSECONDS, invalidationCount);
+        }
+        return user;
+    }
+
+    @Override
+    public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws ConnectionException, AlreadyExistException {
+        String key = EmailKeys.normalize(email);
+        UserEntity user;
+        try {
+            user = userRepository.addUser(email, fullName, avatar, role, userStatus);
+        } catch (AlreadyExistException ex) {
+            // whatever we remembered about this email is out of date
+            cache.invalidate(key);
+            throw ex;
+        }
+        cache.put(key, Optional.of(user));
+        return user;
+    }
+
+    @Override
+    public Map<String, UserEntity> getUsersByEmails(Collection<String> emails) throws ConnectionException {
+        Map<String, UserEntity> users = new HashMap<>();
+        List<String> missed = new ArrayList<>();
+        for (String email : emails) {
+            Optional<UserEntity> cached = cache.get(EmailKeys.normalize(email));
+            if (cached == null) {
+                missed.add(email);
+            } else if (cached.isPresent()) {
+                users.put(email, cached.get());
+            }
+        }
+        if (missed.isEmpty()) {
+            return users;
+        }
+
+        // one round trip for everything we did not have
+        long invalidationCount = cache.getInvalidationCount();
+        Map<String, UserEntity> found = userRepository.getUsersByEmails(missed);
+        for (String email : missed) {
+            UserEntity user = found.get(email);
+            if (user != null) {
+                cache.putIfNotInvalidatedSince(EmailKeys.normalize(email), Optional.of(user), invalidationCount);
+                users.put(email, user);
+            } else if (notFoundTtlNanos > 0) {
+                cache.putIfNotInvalidatedSince(EmailKeys.normalize(email), Optional.empty(), notFoundTtlNanos, TimeUnit.NANOSECONDS, invalidationCount);
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+        Map<String, UserEntity> added = userRepository.addUsers(newUsers);
+        for (NewUser newUser : newUsers) {
+            UserEntity user = added.get(newUser.email);
+            if (user != null) {
+                cache.put(EmailKeys.normalize(newUser.email), Optional.of(user));
+            } else {
+                cache.invalidate(EmailKeys.normalize(newUser.email));
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public void preload(Collection<UserEntity> users) {
+        Map<String, Optional<UserEntity>> values = new HashMap<>();
+        for (UserEntity user : users) {
+            values.put(EmailKeys.normalize(user.getEmail()), Optional.of(user));
+        }
+        cache.putAllIfAbsent(values);
+    }
+
+    public void invalidate(String email) {
+        cache.invalidate(EmailKeys.normalize(email));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,15 @@
+package adapters.user_repository;
+
+import java.util.Locale;
+
+/**
+ * Emails are case insensitive, so user stores and caches key them by this normalized form.
+ * */
+public final class EmailKeys {
+    private EmailKeys() {
+    }
+
+    public static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,34 @@
+package adapters.user_repository;
+
+import adapters.AsyncCalls;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.testonly.testonly.AsyncUserRepository;
+import domain.ports.testonly.testonly.UserRepository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapt a blocking UserRepository to AsyncUserRepository by running it on the given executor.
+ * */
+public class ExecutorAsyncUserRepository implements AsyncUserRepository {
+    private final UserRepository userRepository;
+    private final Executor executor;
+
+    public ExecutorAsyncUserRepository(UserRepository userRepository, Executor executor) {
+        this.userRepository = userRepository;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<UserEntity> getUserByEmailAsync(String email) {
+        return AsyncCalls.runOn(executor, () -> userRepository.getUserByEmail(email));
+    }
+
+    @Override
+    public CompletableFuture<UserEntity> addUserAsync(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) {
+        return AsyncCalls.runOn(executor, () -> userRepository.addUser(email, fullName, avatar, role, userStatus));
+    }
+}
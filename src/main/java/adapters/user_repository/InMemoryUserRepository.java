@@ -0,0 +1,57 @@
+package adapters.user_repository;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.testonly.testonly.UserRepository;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UserRepository kept in a ConcurrentHashMap keyed by normalized email.
+ * Reads take no lock, and adding is atomic: of two concurrent adds of the same email
+ * exactly one succeeds and the other gets an AlreadyExistException.
+ * */
+public class InMemoryUserRepository implements UserRepository {
+    private final ConcurrentHashMap<String, UserEntity> usersByEmail;
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public InMemoryUserRepository() {
+        this(1024);
+    }
+
+    public InMemoryUserRepository(int expectedUsers) {
+        this.usersByEmail = new ConcurrentHashMap<>(expectedUsers);
+    }
+
+    @Override
+    public UserEntity getUserByEmail(String email) {
+        return usersByEmail.get(EmailKeys.normalize(email));
+    }
+
+    @Override
+    public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws AlreadyExistException {
+        UserEntity[] added = new UserEntity[1];
+        usersByEmail.computeIfAbsent(EmailKeys.normalize(email),
+                key -> added[0] = new UserEntity(String.valueOf(nextId.getAndIncrement()), email, fullName, role, userStatus));
+        if (added[0] == null) {
+            throw new AlreadyExistException();
+        }
+        return added[0];
+    }
+
+    public int size() {
+        return usersByEmail.size();
+    }
+
+    /**
+     * The normalized emails of all users, a live view
+     * */
+    public Set<String> emails() {
+        return Collections.unmodifiableSet(usersByEmail.keySet());
+    }
+}
@@ -0,0 +1,372 @@
+package adapters.user_repository;
+
+import adapters.serialization.BinaryUserCodec;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.UserRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Durable UserRepository without a database: users are appended to a memory mapped log file,
+ * and an in memory email -> offset index is rebuilt from the log when the file is opened.
+ * A lookup is a hash probe plus a read from the mapping. Updates append a new version of the user,
+ * and compact rewrites the file with only the latest version of each user.
+ *
+ * Log layout: MAGIC, VERSION, then records of [payload length][crc32 of payload][BinaryUserCodec payload].
+ * A zero length marks the end of the log; a record with a bad length or checksum is a torn write and ends it too.
+ * The whole log is one mapping, so it is limited to 2 GB.
+ * Writes after close throw IllegalStateException.
+ * */
+public class MappedFileUserRepository implements UserRepository, Closeable {
+    public enum SyncPolicy {
+        // force the mapping to disk after every write
+        ALWAYS,
+        // force it once a second, losing at most a second of writes on a crash
+        EVERY_SECOND,
+        // leave it to the OS until close
+        ON_CLOSE
+    }
+
+    private static final int MAGIC = 0x55535231; // "USR1"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int DEFAULT_INITIAL_CAPACITY = 1 << 20;
+    private static final BinaryUserCodec CODEC = new BinaryUserCodec();
+
+    // The mapping and the offsets into it, swapped together so readers never mix two files
+    private static class Log {
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final ConcurrentHashMap<String, Integer> offsetsByEmail;
+
+        Log(FileChannel channel, MappedByteBuffer buffer, ConcurrentHashMap<String, Integer> offsetsByEmail) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.offsetsByEmail = offsetsByEmail;
+        }
+    }
+
+    private final Path file;
+    private final SyncPolicy syncPolicy;
+    private final int initialCapacity;
+    private final ScheduledExecutorService syncScheduler;
+
+    private volatile Log log;
+    // guarded by this
+    private int writePosition;
+    private long nextId;
+    private boolean dirty;
+    private boolean closed;
+
+    public MappedFileUserRepository(Path file) throws IOException {
+        this(file, SyncPolicy.EVERY_SECOND);
+    }
+
+    public MappedFileUserRepository(Path file, SyncPolicy syncPolicy) throws IOException {
+        this(file, syncPolicy, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public MappedFileUserRepository(Path file, SyncPolicy syncPolicy, int initialCapacity) throws IOException {
+        this.file = file;
+        this.syncPolicy = syncPolicy;
+        this.initialCapacity = Math.max(initialCapacity, HEADER_SIZE + RECORD_HEADER_SIZE);
+        open();
+        if (syncPolicy == SyncPolicy.EVERY_SECOND) {
+            syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "user-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncScheduler.scheduleWithFixedDelay(this::syncIfDirty, 1, 1, TimeUnit.SECONDS);
+        } else {
+            syncScheduler = null;
+        }
+    }
+
+    @Override
+    public UserEntity getUserByEmail(String email) {
+        String key = EmailKeys.normalize(email);
+        while (true) {
+            Integer offset = log.offsetsByEmail.get(key);
+            if (offset == null) {
+                return null;
+            }
+            // read the log again after the index: the record may have been written after the mapping grew
+            Log current = log;
+            if (!offset.equals(current.offsetsByEmail.get(key))) {
+                // updated or compacted in between, so look again
+                continue;
+            }
+            ByteBuffer record = current.buffer.duplicate();
+            record.position(offset + RECORD_HEADER_SIZE);
+            return CODEC.readUser(record);
+        }
+    }
+
+    @Override
+    public synchronized UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws ConnectionException, AlreadyExistException {
+        ensureOpen();
+        UserEntity user = appendNew(email, fullName, role, userStatus);
+        syncAfterWrite();
+        return user;
+    }
+
+    @Override
+    public synchronized Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+        ensureOpen();
+        Map<String, UserEntity> added = new HashMap<>();
+        for (NewUser newUser : newUsers) {
+            try {
+                added.put(newUser.email, appendNew(newUser.email, newUser.fullName, newUser.role, newUser.userStatus));
+            } catch (AlreadyExistException ex) {
+                // skipped, as UserRepository.addUsers says
+            }
+        }
+        // one sync for the whole batch
+        syncAfterWrite();
+        return added;
+    }
+
+    /**
+     * Store a new version of an existing user, e.g. after their status or role changed
+     * */
+    public synchronized void updateUser(UserEntity user) throws ConnectionException {
+        ensureOpen();
+        String key = EmailKeys.normalize(user.getEmail());
+        if (!log.offsetsByEmail.containsKey(key)) {
+            throw new IllegalArgumentException("Unknown user " + user.getEmail());
+        }
+        append(key, user);
+        syncAfterWrite();
+    }
+
+    public int size() {
+        return log.offsetsByEmail.size();
+    }
+
+    /**
+     * The normalized emails of all users, as of now
+     * */
+    public Set<String> emails() {
+        return Collections.unmodifiableSet(new HashSet<>(log.offsetsByEmail.keySet()));
+    }
+
+    /**
+     * Bytes of the log in use, old versions of updated users included
+     * */
+    public synchronized int logSize() {
+        return writePosition;
+    }
+
+    /**
+     * Rewrite the log with only the latest version of every user, then switch to the new file.
+     * Reads keep working during compaction, writes wait for it.
+     * The new log is written and mapped before it replaces the file, so a failure leaves the current log in use.
+     * */
+    public synchronized void compact() throws IOException {
+        ensureOpen();
+        Log current = log;
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        ConcurrentHashMap<String, Integer> offsetsByEmail = new ConcurrentHashMap<>();
+        int position = HEADER_SIZE;
+        FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Log compactedLog;
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            channel.write(header);
+            for (Map.Entry<String, Integer> entry : current.offsetsByEmail.entrySet()) {
+                int offset = entry.getValue();
+                ByteBuffer record = current.buffer.duplicate();
+                int length = record.getInt(offset);
+                record.position(offset).limit(offset + RECORD_HEADER_SIZE + length);
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+                offsetsByEmail.put(entry.getKey(), position);
+                position += RECORD_HEADER_SIZE + length;
+            }
+            channel.force(true);
+            // the zeros past the records end the log
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max((long) position + RECORD_HEADER_SIZE, initialCapacity));
+            compactedLog = new Log(channel, buffer, offsetsByEmail);
+            current.buffer.force();
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            Files.deleteIfExists(compacted);
+            throw ex;
+        }
+        log = compactedLog;
+        writePosition = position;
+        current.channel.close();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (syncScheduler != null) {
+            syncScheduler.shutdown();
+        }
+        log.buffer.force();
+        log.channel.close();
+    }
+
+    // Must be called while holding the lock on this
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("User log " + file + " is closed");
+        }
+    }
+
+    // Must be called while holding the lock on this
+    private UserEntity appendNew(String email, String fullName, UserRole role, UserStatus userStatus) throws ConnectionException, AlreadyExistException {
+        String key = EmailKeys.normalize(email);
+        if (log.offsetsByEmail.containsKey(key)) {
+            throw new AlreadyExistException();
+        }
+        UserEntity user = new UserEntity(String.valueOf(nextId), email, fullName, role, userStatus);
+        append(key, user);
+        nextId++;
+        return user;
+    }
+
+    // Must be called while holding the lock on this
+    private void append(String key, UserEntity user) throws ConnectionException {
+        int length = CODEC.sizeOf(user);
+
+        try {
+            ensureCapacity(writePosition + RECORD_HEADER_SIZE + length + RECORD_HEADER_SIZE);
+        } catch (IOException ex) {
+            throw new ConnectionException("Cannot grow user log: " + ex.getMessage());
+        }
+        Log current = log;
+        ByteBuffer buffer = current.buffer.duplicate();
+        int offset = writePosition;
+        buffer.position(offset + RECORD_HEADER_SIZE);
+        CODEC.writeUser(buffer, user);
+        buffer.putInt(offset + 4, checksum(current.buffer, offset + RECORD_HEADER_SIZE, length));
+        // the length goes last, so a crash in the middle leaves a record that replay ignores
+        buffer.putInt(offset, length);
+
+        writePosition = offset + RECORD_HEADER_SIZE + length;
+        dirty = true;
+        current.offsetsByEmail.put(key, offset);
+    }
+
+    // Must be called while holding the lock on this
+    private void ensureCapacity(int needed) throws IOException {
+        Log current = log;
+        if (needed <= current.buffer.capacity()) {
+            return;
+        }
+        long capacity = Math.max((long) current.buffer.capacity() * 2, needed);
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("User log is limited to 2 GB, compact it");
+        }
+        MappedByteBuffer grown = current.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        log = new Log(current.channel, grown, current.offsetsByEmail);
+    }
+
+    private void syncAfterWrite() {
+        if (syncPolicy == SyncPolicy.ALWAYS) {
+            log.buffer.force();
+            dirty = false;
+        }
+    }
+
+    private synchronized void syncIfDirty() {
+        if (dirty && !closed) {
+            log.buffer.force();
+            dirty = false;
+        }
+    }
+
+    // Must be called while holding the lock on this, or from the constructor
+    private void open() throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("User log is larger than 2 GB");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, initialCapacity));
+        if (size == 0) {
+            buffer.putInt(0, MAGIC).putInt(4, VERSION);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException(file + " is not a user log");
+        }
+
+        ConcurrentHashMap<String, Integer> offsetsByEmail = new ConcurrentHashMap<>();
+        long maxId = 0;
+        int position = HEADER_SIZE;
+        ByteBuffer record = buffer.duplicate();
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()
+                    || buffer.getInt(position + 4) != checksum(buffer, position + RECORD_HEADER_SIZE, length)) {
+                break;
+            }
+            record.position(position + RECORD_HEADER_SIZE);
+            // only what the index needs, users are decoded when they are looked up
+            BinaryUserCodec.UserKey key = CODEC.readUserKey(record);
+            offsetsByEmail.put(EmailKeys.normalize(key.email), position);
+            maxId = Math.max(maxId, parseId(key.id));
+            position += RECORD_HEADER_SIZE + length;
+        }
+
+        log = new Log(channel, buffer, offsetsByEmail);
+        writePosition = position;
+        nextId = maxId + 1;
+        // drop whatever a torn write left behind the last good record
+        if (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(offset).limit(offset + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package adapters.user_repository;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collect concurrent addUser calls and write them with one addUsers call.
+ * A batch is written as soon as it has maxBatchSize users, or maxDelay after its first user arrived,
+ * so no caller waits longer than maxDelay plus one bulk write.
+ * Each caller still gets its own user back, or its own AlreadyExistException.
+ * Only worth it when the wrapped repository implements addUsers with a single round trip.
+ * */
+public class MicroBatchingUserRepository implements UserRepository, AutoCloseable {
+    private static class PendingAdd {
+        final NewUser newUser;
+        final CompletableFuture<UserEntity> result = new CompletableFuture<>();
+
+        PendingAdd(NewUser newUser) {
+            this.newUser = newUser;
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+    private List<PendingAdd> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong batchedAddCount = new AtomicLong();
+
+    public MicroBatchingUserRepository(UserRepository userRepository, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.userRepository = userRepository;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-insert-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public UserEntity getUserByEmail(String email) throws ConnectionException {
+        return userRepository.getUserByEmail(email);
+    }
+
+    @Override
+    public Map<String, UserEntity> getUsersByEmails(Collection<String> emails) throws ConnectionException {
+        return userRepository.getUsersByEmails(emails);
+    }
+
+    @Override
+    public Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+        return userRepository.addUsers(newUsers);
+    }
+
+    @Override
+    public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws ConnectionException, AlreadyExistException {
+        PendingAdd add = new PendingAdd(new NewUser(email, fullName, avatar, role, userStatus));
+        List<PendingAdd> fullBatch = null;
+        synchronized (lock) {
+            if (closed) {
+                throw new ConnectionException("User repository is closed");
+            }
+            pending.add(add);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = takePending();
+            } else if (pending.size() == 1) {
+                scheduledFlush = scheduler.schedule(this::flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            // the caller that filled the batch writes it, so a busy system does not wait on the timer
+            write(fullBatch);
+        }
+        return await(add.result);
+    }
+
+    /**
+     * Write whatever is waiting now
+     * */
+    public void flush() {
+        List<PendingAdd> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        write(batch);
+    }
+
+    // Must be called while holding the lock
+    private List<PendingAdd> takePending() {
+        List<PendingAdd> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void write(List<PendingAdd> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // The same email twice in one window: the first one is written, the others already exist
+        Map<String, PendingAdd> byEmail = new LinkedHashMap<>();
+        for (PendingAdd add : batch) {
+            if (byEmail.putIfAbsent(EmailKeys.normalize(add.newUser.email), add) != null) {
+                add.result.completeExceptionally(new AlreadyExistException());
+            }
+        }
+        List<NewUser> newUsers = new ArrayList<>(byEmail.size());
+        for (PendingAdd add : byEmail.values()) {
+            newUsers.add(add.newUser);
+        }
+
+        try {
+            Map<String, UserEntity> added = userRepository.addUsers(newUsers);
+            for (PendingAdd add : byEmail.values()) {
+                UserEntity user = added.get(add.newUser.email);
+                if (user != null) {
+                    add.result.complete(user);
+                } else {
+                    add.result.completeExceptionally(new AlreadyExistException());
+                }
+            }
+        } catch (Exception | Error ex) {
+            for (PendingAdd add : byEmail.values()) {
+                add.result.completeExceptionally(ex);
+            }
+        }
+        flushCount.incrementAndGet();
+        batchedAddCount.addAndGet(newUsers.size());
+    }
+
+    private static UserEntity await(CompletableFuture<UserEntity> result) throws ConnectionException, AlreadyExistException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException ex) {
+                    // the insert is already queued, so wait for its outcome anyway
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof ConnectionException) {
+                        throw (ConnectionException) cause;
+                    }
+                    if (cause instanceof AlreadyExistException) {
+                        throw (AlreadyExistException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public double getAverageBatchSize() {
+        long flushes = flushCount.get();
+        return flushes == 0 ? 0 : (double) batchedAddCount.get() / flushes;
+    }
+
+    /**
+     * Write what is still waiting and stop the timer. Later addUser calls fail with a ConnectionException.
+     * */
+    @Override
+    public void close() {
+        List<PendingAdd> batch;
+        synchronized (lock) {
+            closed = true;
+            batch = takePending();
+        }
+        write(batch);
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,208 @@
+package adapters.user_repository;
+
+import adapters.serialization.BinaryUserCodec;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * A file of users, e.g. an export of the repository, that caches can be warmed up from.
+ * Reading is split in two: next() reads the raw records in order, and parse(record) turns one into a
+ * UserEntity, so the parsing can run on many threads while one thread reads the file.
+ *
+ * CSV: one user per line, id,email,role,status,fullName with role and status as enum names or empty for null.
+ * The full name is the rest of the line, so it may contain commas. Blank lines and lines starting with # are skipped.
+ * writeCsv refuses users that would not read back the same: a line break in any field, a comma in the id or email,
+ * or an id starting with #.
+ * BINARY: MAGIC, then records of [payload length][BinaryUserCodec payload] until the end of the file.
+ * */
+public final class RosterFile {
+    public enum Format {
+        CSV, BINARY;
+
+        // .csv files are CSV, anything else is BINARY
+        public static Format of(Path file) {
+            return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : BINARY;
+        }
+    }
+
+    private static final int MAGIC = 0x52535431; // "RST1"
+    // far more than any user takes, a larger length is a corrupt file
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+    private static final BinaryUserCodec CODEC = new BinaryUserCodec();
+
+    abstract static class Reader<R> implements Closeable {
+        // the next raw record, null at the end of the file
+        abstract R next() throws IOException;
+
+        // throws IllegalArgumentException or a BufferUnderflowException when the record is malformed
+        abstract UserEntity parse(R record);
+    }
+
+    private RosterFile() {
+    }
+
+    static Reader<?> open(Path file, Format format) throws IOException {
+        return format == Format.CSV ? new CsvReader(file) : new BinaryReader(file);
+    }
+
+    public static void writeCsv(Path file, Iterable<UserEntity> users) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# id,email,role,status,fullName");
+            out.newLine();
+            for (UserEntity user : users) {
+                String id = nullToEmpty(user.getId());
+                String fullName = user.getFullName();
+                if (hasLineBreak(fullName)) {
+                    throw new IllegalArgumentException("Full name of " + user.getEmail() + " has a line break");
+                }
+                if (hasLineBreak(id) || id.indexOf(',') >= 0 || id.startsWith("#")) {
+                    throw new IllegalArgumentException("Id of " + user.getEmail() + " cannot be written to CSV: " + id);
+                }
+                if (hasLineBreak(user.getEmail()) || user.getEmail().indexOf(',') >= 0) {
+                    throw new IllegalArgumentException("Email cannot be written to CSV: " + user.getEmail());
+                }
+                out.write(id);
+                out.write(',');
+                out.write(user.getEmail());
+                out.write(',');
+                out.write(user.getRole() == null ? "" : user.getRole().getType().name());
+                out.write(',');
+                out.write(user.getStatus() == null ? "" : user.getStatus().getStatus().name());
+                out.write(',');
+                out.write(nullToEmpty(fullName));
+                out.newLine();
+            }
+        }
+    }
+
+    public static void writeBinary(Path file, Iterable<UserEntity> users) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            for (UserEntity user : users) {
+                ByteBuffer payload = CODEC.encode(user);
+                out.writeInt(payload.remaining());
+                out.write(payload.array(), payload.arrayOffset(), payload.remaining());
+            }
+        }
+    }
+
+    private static boolean hasLineBreak(String value) {
+        return value != null && (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static class CsvReader extends Reader<String> {
+        private final BufferedReader in;
+
+        CsvReader(Path file) throws IOException {
+            this.in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        String next() throws IOException {
+            String line;
+            do {
+                line = in.readLine();
+            } while (line != null && (line.isBlank() || line.startsWith("#")));
+            return line;
+        }
+
+        @Override
+        UserEntity parse(String line) {
+            int emailStart = line.indexOf(',') + 1;
+            int roleStart = line.indexOf(',', emailStart) + 1;
+            int statusStart = line.indexOf(',', roleStart) + 1;
+            int fullNameStart = line.indexOf(',', statusStart) + 1;
+            if (emailStart == 0 || roleStart == 0 || statusStart == 0 || fullNameStart == 0 || roleStart - 1 == emailStart) {
+                throw new IllegalArgumentException("Expected id,email,role,status,fullName but got " + line);
+            }
+            String role = line.substring(roleStart, statusStart - 1);
+            String status = line.substring(statusStart, fullNameStart - 1);
+            return new UserEntity(
+                    emptyToNull(line.substring(0, emailStart - 1)),
+                    line.substring(emailStart, roleStart - 1),
+                    emptyToNull(line.substring(fullNameStart)),
+                    role.isEmpty() ? null : UserRole.of(UserRole.TYPE.valueOf(role)),
+                    status.isEmpty() ? null : UserStatus.of(UserStatus.STATUS.valueOf(status)));
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static class BinaryReader extends Reader<byte[]> {
+        private final DataInputStream in;
+        private final long size;
+        // of the next record
+        private long offset = 4;
+
+        BinaryReader(Path file) throws IOException {
+            this.size = Files.size(file);
+            InputStream stream = Files.newInputStream(file);
+            this.in = new DataInputStream(new BufferedInputStream(stream));
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException(file + " is not a binary roster file");
+                }
+            } catch (IOException ex) {
+                in.close();
+                throw ex;
+            }
+        }
+
+        @Override
+        byte[] next() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException ex) {
+                return null;
+            }
+            // checked before allocating, so a corrupt length cannot take the heap
+            if (length < 0 || length > MAX_RECORD_LENGTH || length > size - offset - 4) {
+                throw new IOException("Bad record length " + length + " at offset " + offset);
+            }
+            byte[] record = new byte[length];
+            // a torn last record is an error, not the end
+            in.readFully(record);
+            offset += 4 + length;
+            return record;
+        }
+
+        @Override
+        UserEntity parse(byte[] record) {
+            return CODEC.readUser(ByteBuffer.wrap(record));
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
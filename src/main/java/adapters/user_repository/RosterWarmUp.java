@@ -0,0 +1,172 @@
+package adapters.user_repository;
+
+import domain.entities.UserEntity;
+import domain.ports.testonly.testonly.PreloadableUserCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fill user cache tiers from a roster file at startup, so the first logins after a deploy do not all go to the repository.
+ * The calling thread reads the file in chunks of raw records, and each chunk is parsed and preloaded on the
+ * fork join pool, split in slices of LEAF_SIZE records. Each slice is preloaded with one call per tier,
+ * so a tier behind a lock takes it once per slice and not once per user.
+ * At most two chunks per pool thread are in flight, so memory stays bounded however big the roster is.
+ * Malformed records are counted and skipped.
+ * */
+public class RosterWarmUp {
+    public static class Report {
+        public final long loadedCount;
+        public final long malformedCount;
+        public final long elapsedNanos;
+
+        public Report(long loadedCount, long malformedCount, long elapsedNanos) {
+            this.loadedCount = loadedCount;
+            this.malformedCount = malformedCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Users loaded per second
+         * */
+        public double getLoadRate() {
+            return elapsedNanos == 0 ? 0 : loadedCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("loaded %d users (%d malformed) in %d ms, %.0f users/s",
+                    loadedCount, malformedCount, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getLoadRate());
+        }
+    }
+
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+    private static final int LEAF_SIZE = 512;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    public RosterWarmUp() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public RosterWarmUp(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = 2 * pool.getParallelism();
+    }
+
+    /**
+     * Load the roster into every tier, the format is told by the file name, see RosterFile.Format.of
+     * */
+    public Report load(Path roster, PreloadableUserCache... tiers) throws IOException {
+        return load(roster, RosterFile.Format.of(roster), Arrays.asList(tiers));
+    }
+
+    public Report load(Path roster, RosterFile.Format format, Collection<PreloadableUserCache> tiers) throws IOException {
+        long start = System.nanoTime();
+        try (RosterFile.Reader<?> reader = RosterFile.open(roster, format)) {
+            long[] counts = load(reader, new ArrayList<>(tiers));
+            return new Report(counts[0], counts[1], System.nanoTime() - start);
+        }
+    }
+
+    // {loaded, malformed}
+    private <R> long[] load(RosterFile.Reader<R> reader, List<PreloadableUserCache> tiers) throws IOException {
+        ArrayDeque<ForkJoinTask<Integer>> inFlight = new ArrayDeque<>();
+        ArrayDeque<Integer> inFlightSizes = new ArrayDeque<>();
+        long[] counts = new long[2];
+        try {
+            List<R> chunk = new ArrayList<>(chunkSize);
+            R record;
+            while ((record = reader.next()) != null) {
+                chunk.add(record);
+                if (chunk.size() == chunkSize) {
+                    if (inFlight.size() == maxChunksInFlight) {
+                        // backpressure: wait for the oldest chunk before reading more
+                        count(inFlight.poll().join(), inFlightSizes.poll(), counts);
+                    }
+                    inFlight.add(pool.submit(new Slice<>(reader, chunk, tiers)));
+                    inFlightSizes.add(chunk.size());
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(pool.submit(new Slice<>(reader, chunk, tiers)));
+                inFlightSizes.add(chunk.size());
+            }
+            while (!inFlight.isEmpty()) {
+                count(inFlight.poll().join(), inFlightSizes.poll(), counts);
+            }
+        } finally {
+            for (ForkJoinTask<Integer> task : inFlight) {
+                task.cancel(false);
+            }
+        }
+        return counts;
+    }
+
+    private static void count(int malformed, int size, long[] counts) {
+        counts[0] += size - malformed;
+        counts[1] += malformed;
+    }
+
+    // Parses and preloads records, returning how many were malformed
+    private static class Slice<R> extends RecursiveTask<Integer> {
+        private final RosterFile.Reader<R> reader;
+        private final List<R> records;
+        private final List<PreloadableUserCache> tiers;
+
+        Slice(RosterFile.Reader<R> reader, List<R> records, List<PreloadableUserCache> tiers) {
+            this.reader = reader;
+            this.records = records;
+            this.tiers = tiers;
+        }
+
+        @Override
+        protected Integer compute() {
+            int size = records.size();
+            if (size > LEAF_SIZE) {
+                Slice<R> left = new Slice<>(reader, records.subList(0, size / 2), tiers);
+                Slice<R> right = new Slice<>(reader, records.subList(size / 2, size), tiers);
+                left.fork();
+                int malformed = right.compute();
+                return malformed + left.join();
+            }
+
+            List<UserEntity> users = new ArrayList<>(size);
+            int malformed = 0;
+            for (R record : records) {
+                UserEntity user;
+                try {
+                    user = reader.parse(record);
+                } catch (RuntimeException ex) {
+                    malformed++;
+                    continue;
+                }
+                if (user.getEmail() == null) {
+                    malformed++;
+                } else {
+                    users.add(user);
+                }
+            }
+            for (PreloadableUserCache tier : tiers) {
+                tier.preload(users);
+            }
+            return malformed;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package adapters.user_repository;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of strings that keeps its false positive rate when it grows past its expected size.
+ * It is a chain of plain Bloom filters: when the newest one is full, a new one with twice the capacity and
+ * half the false positive rate is added, so the rates of all of them add up to at most falsePositiveRate.
+ * Adding and querying never lock, bits are set with compare and set. Only adding a new stage is synchronized.
+ * writeTo and readFrom save and restore the filter, so a restart does not need to read every user again.
+ * */
+public class ScalableBloomFilter {
+    private static final int MAGIC = 0x424c4f4d;
+    private static final int VERSION = 1;
+    private static final double LN2 = Math.log(2);
+
+    private static final class Stage {
+        final long capacity;
+        final int hashCount;
+        final long bitCount;
+        final AtomicLongArray words;
+        final AtomicLong size;
+
+        Stage(long capacity, double falsePositiveRate) {
+            this(capacity, hashCountFor(bitCountFor(capacity, falsePositiveRate), capacity),
+                    bitCountFor(capacity, falsePositiveRate), 0, null);
+        }
+
+        Stage(long capacity, int hashCount, long bitCount, long size, long[] words) {
+            this.capacity = capacity;
+            this.hashCount = hashCount;
+            this.bitCount = bitCount;
+            this.words = words == null ? new AtomicLongArray((int) ((bitCount + 63) / 64)) : new AtomicLongArray(words);
+            this.size = new AtomicLong(size);
+        }
+
+        private static long bitCountFor(long capacity, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+            if (bits > 64L * Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Bloom filter stage too large");
+            }
+            return Math.max(64, bits);
+        }
+
+        private static int hashCountFor(long bitCount, long capacity) {
+            return Math.max(1, (int) Math.round((double) bitCount / capacity * LN2));
+        }
+
+        // double hashing, bit i is h1 + i * h2
+        boolean add(long h1, long h2) {
+            boolean changed = false;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word = words.get(index);
+                while ((word & mask) == 0) {
+                    if (words.compareAndSet(index, word, word | mask)) {
+                        changed = true;
+                        break;
+                    }
+                    word = words.get(index);
+                }
+            }
+            return changed;
+        }
+
+        boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final double falsePositiveRate;
+    private volatile Stage[] stages;
+
+    /**
+     * @param falsePositiveRate upper bound of the chance that mightContain says true for a string never added
+     * */
+    public ScalableBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        // the first stage gets half the budget, the next ones a quarter, an eighth...
+        this.stages = new Stage[]{new Stage(expectedInsertions, falsePositiveRate / 2)};
+    }
+
+    private ScalableBloomFilter(double falsePositiveRate, Stage[] stages) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages = stages;
+    }
+
+    public void add(String value) {
+        long h1 = hash(value, 0x9e3779b97f4a7c15L);
+        long h2 = hash(value, 0xc2b2ae3d27d4eb4fL) | 1;
+        Stage[] current = stages;
+        for (Stage stage : current) {
+            // already in, from this stage's point of view
+            if (stage.mightContain(h1, h2)) {
+                return;
+            }
+        }
+        Stage newest = current[current.length - 1];
+        if (newest.size.get() >= newest.capacity) {
+            newest = grow(current);
+        }
+        if (newest.add(h1, h2)) {
+            newest.size.incrementAndGet();
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long h1 = hash(value, 0x9e3779b97f4a7c15L);
+        long h2 = hash(value, 0xc2b2ae3d27d4eb4fL) | 1;
+        for (Stage stage : stages) {
+            if (stage.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized Stage grow(Stage[] seen) {
+        Stage[] current = stages;
+        if (current != seen) {
+            return current[current.length - 1];
+        }
+        Stage newest = current[current.length - 1];
+        double stageRate = falsePositiveRate / (2L << current.length);
+        Stage[] grown = new Stage[current.length + 1];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        grown[current.length] = new Stage(newest.capacity * 2, stageRate);
+        stages = grown;
+        return grown[current.length];
+    }
+
+    /**
+     * Approximate count of added strings, duplicates and false positives make it lower than the true count
+     * */
+    public long size() {
+        long size = 0;
+        for (Stage stage : stages) {
+            size += stage.size.get();
+        }
+        return size;
+    }
+
+    public int stageCount() {
+        return stages.length;
+    }
+
+    /**
+     * Bits of all stages, the memory the filter takes
+     * */
+    public long bitCount() {
+        long bits = 0;
+        for (Stage stage : stages) {
+            bits += stage.bitCount;
+        }
+        return bits;
+    }
+
+    public synchronized void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        Stage[] current = stages;
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeDouble(falsePositiveRate);
+        out.writeInt(current.length);
+        for (Stage stage : current) {
+            out.writeLong(stage.capacity);
+            out.writeInt(stage.hashCount);
+            out.writeLong(stage.bitCount);
+            out.writeLong(stage.size.get());
+            for (int i = 0; i < stage.words.length(); i++) {
+                out.writeLong(stage.words.get(i));
+            }
+        }
+        out.flush();
+    }
+
+    public static ScalableBloomFilter readFrom(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a Bloom filter snapshot");
+        }
+        double falsePositiveRate = in.readDouble();
+        int stageCount = in.readInt();
+        if (stageCount <= 0 || stageCount > 64) {
+            throw new IOException("Corrupted Bloom filter snapshot");
+        }
+        Stage[] stages = new Stage[stageCount];
+        for (int s = 0; s < stageCount; s++) {
+            long capacity = in.readLong();
+            int hashCount = in.readInt();
+            long bitCount = in.readLong();
+            long size = in.readLong();
+            if (capacity <= 0 || hashCount <= 0 || bitCount <= 0 || bitCount > 64L * Integer.MAX_VALUE) {
+                throw new IOException("Corrupted Bloom filter snapshot");
+            }
+            long[] words = new long[(int) ((bitCount + 63) / 64)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            stages[s] = new Stage(capacity, hashCount, bitCount, size, words);
+        }
+        return new ScalableBloomFilter(falsePositiveRate, stages);
+    }
+
+    // 64 bit hash of the chars, FNV-1a finished with the murmur3 mixer, seeded so two seeds give independent hashes
+    private static long hash(String value, long seed) {
+        long hash = seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,270 @@
+package adapters.user_repository;
+
+import adapters.AsyncCalls;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * UserRepository spread over several shards by consistent hashing of the normalized email.
+ * Every shard is placed on a ring at `replicas` points (virtual nodes), and an email belongs to the shard
+ * of the first point at or after its hash, so adding a shard only moves the emails that now fall on its points,
+ * about 1 / (shards + 1) of them, and moves them all to the new shard.
+ *
+ * Shards assign user ids, so users cannot be copied to their new shard here. Instead addShard keeps the ring
+ * it replaced: an email that is not on its current shard is looked for on the shard it had on older rings,
+ * and an insert checks there first so a moved email is never added twice. Only the moved emails pay for that.
+ * Once their users are moved some other way, forgetPreviousRings stops the extra lookups.
+ *
+ * Batch calls are split per shard and the shards are called in parallel on fanOutExecutor.
+ * */
+public class ShardedUserRepository implements UserRepository {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Immutable, the shards and their points sorted by position
+    private static class Ring {
+        final Map<String, UserRepository> shards;
+        final long[] points;
+        final String[] owners;
+
+        Ring(Map<String, UserRepository> shards, int replicas) {
+            this.shards = shards;
+            int size = shards.size() * replicas;
+            long[] unsortedPoints = new long[size];
+            String[] unsortedOwners = new String[size];
+            Integer[] order = new Integer[size];
+            int i = 0;
+            for (String name : shards.keySet()) {
+                for (int replica = 0; replica < replicas; replica++, i++) {
+                    unsortedPoints[i] = hash(name + '#' + replica);
+                    unsortedOwners[i] = name;
+                    order[i] = i;
+                }
+            }
+            // ties, which are very unlikely, are broken by name so the ring does not depend on the map order
+            Arrays.sort(order, (a, b) -> unsortedPoints[a] != unsortedPoints[b]
+                    ? Long.compare(unsortedPoints[a], unsortedPoints[b])
+                    : unsortedOwners[a].compareTo(unsortedOwners[b]));
+            this.points = new long[size];
+            this.owners = new String[size];
+            for (i = 0; i < size; i++) {
+                points[i] = unsortedPoints[order[i]];
+                owners[i] = unsortedOwners[order[i]];
+            }
+        }
+
+        String ownerOf(long hash) {
+            int i = Arrays.binarySearch(points, hash);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            return owners[i == points.length ? 0 : i];
+        }
+    }
+
+    private interface ShardCall<T> {
+        Map<String, UserEntity> call(UserRepository shard, List<T> items) throws ConnectionException;
+    }
+
+    private final int replicas;
+    private final Executor fanOutExecutor;
+    // newest first, rings[0] is where new users go
+    private volatile Ring[] rings;
+
+    /**
+     * @param shards by name, the name places the shard on the ring so it must stay the same across restarts
+     * @param replicas points per shard on the ring, the more the more even the spread, e.g. 100 to 200
+     * */
+    public ShardedUserRepository(Map<String, UserRepository> shards, int replicas, Executor fanOutExecutor) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        if (replicas <= 0) {
+            throw new IllegalArgumentException("replicas must be positive");
+        }
+        this.replicas = replicas;
+        this.fanOutExecutor = fanOutExecutor;
+        this.rings = new Ring[]{new Ring(new LinkedHashMap<>(shards), replicas)};
+    }
+
+    public synchronized void addShard(String name, UserRepository shard) {
+        Ring[] current = rings;
+        if (current[0].shards.containsKey(name)) {
+            throw new IllegalArgumentException("There is already a shard named " + name);
+        }
+        Map<String, UserRepository> shards = new LinkedHashMap<>(current[0].shards);
+        shards.put(name, shard);
+        Ring[] next = new Ring[current.length + 1];
+        next[0] = new Ring(shards, replicas);
+        System.arraycopy(current, 0, next, 1, current.length);
+        rings = next;
+    }
+
+    /**
+     * Look up emails on their current shard only, once the users of moved emails were moved to it
+     * */
+    public synchronized void forgetPreviousRings() {
+        rings = new Ring[]{rings[0]};
+    }
+
+    /**
+     * Name of the shard new users of this email are added to
+     * */
+    public String shardOf(String email) {
+        return rings[0].ownerOf(hash(EmailKeys.normalize(email)));
+    }
+
+    @Override
+    public UserEntity getUserByEmail(String email) throws ConnectionException {
+        Ring[] rings = this.rings;
+        long hash = hash(EmailKeys.normalize(email));
+        for (int i = 0; i < rings.length; i++) {
+            String owner = rings[i].ownerOf(hash);
+            if (isOwnerOnNewerRing(rings, i, hash, owner)) {
+                continue;
+            }
+            UserEntity user = rings[i].shards.get(owner).getUserByEmail(email);
+            if (user != null) {
+                return user;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws ConnectionException, AlreadyExistException {
+        Ring[] rings = this.rings;
+        long hash = hash(EmailKeys.normalize(email));
+        for (int i = 1; i < rings.length; i++) {
+            String owner = rings[i].ownerOf(hash);
+            if (!isOwnerOnNewerRing(rings, i, hash, owner) && rings[i].shards.get(owner).getUserByEmail(email) != null) {
+                throw new AlreadyExistException();
+            }
+        }
+        return rings[0].shards.get(rings[0].ownerOf(hash)).addUser(email, fullName, avatar, role, userStatus);
+    }
+
+    @Override
+    public Map<String, UserEntity> getUsersByEmails(Collection<String> emails) throws ConnectionException {
+        Ring[] rings = this.rings;
+        Map<String, UserEntity> users = new HashMap<>();
+        List<String> missing = new ArrayList<>(emails);
+        for (int i = 0; i < rings.length && !missing.isEmpty(); i++) {
+            Map<String, List<String>> emailsByShard = byShard(rings, i, missing, email -> email);
+            users.putAll(fanOut(rings[i], emailsByShard, UserRepository::getUsersByEmails));
+            missing.removeIf(users::containsKey);
+        }
+        return users;
+    }
+
+    @Override
+    public Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+        Ring[] rings = this.rings;
+        List<NewUser> toAdd = new ArrayList<>(newUsers);
+        if (rings.length > 1) {
+            // moved emails whose users are still on their old shard are skipped like any existing user
+            List<String> emails = new ArrayList<>(toAdd.size());
+            for (NewUser newUser : toAdd) {
+                emails.add(newUser.email);
+            }
+            Map<String, UserEntity> existing = new HashMap<>();
+            for (int i = 1; i < rings.length; i++) {
+                existing.putAll(fanOut(rings[i], byShard(rings, i, emails, email -> email), UserRepository::getUsersByEmails));
+            }
+            toAdd.removeIf(newUser -> existing.containsKey(newUser.email));
+        }
+        return fanOut(rings[0], byShard(rings, 0, toAdd, newUser -> newUser.email), UserRepository::addUsers);
+    }
+
+    // Group the items by their owner on rings[ring], leaving out those owned by the same shard on a newer ring
+    private static <T> Map<String, List<T>> byShard(Ring[] rings, int ring, Collection<T> items, Function<T, String> emailOf) {
+        Map<String, List<T>> itemsByShard = new HashMap<>();
+        for (T item : items) {
+            long hash = hash(EmailKeys.normalize(emailOf.apply(item)));
+            String owner = rings[ring].ownerOf(hash);
+            if (!isOwnerOnNewerRing(rings, ring, hash, owner)) {
+                itemsByShard.computeIfAbsent(owner, key -> new ArrayList<>()).add(item);
+            }
+        }
+        return itemsByShard;
+    }
+
+    private static boolean isOwnerOnNewerRing(Ring[] rings, int ring, long hash, String owner) {
+        for (int newer = 0; newer < ring; newer++) {
+            if (rings[newer].ownerOf(hash).equals(owner)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // One call per shard, in parallel when there is more than one
+    private <T> Map<String, UserEntity> fanOut(Ring ring, Map<String, List<T>> itemsByShard, ShardCall<T> shardCall) throws ConnectionException {
+        if (itemsByShard.isEmpty()) {
+            return new HashMap<>();
+        }
+        if (itemsByShard.size() == 1) {
+            Map.Entry<String, List<T>> only = itemsByShard.entrySet().iterator().next();
+            return new HashMap<>(shardCall.call(ring.shards.get(only.getKey()), only.getValue()));
+        }
+
+        List<CompletableFuture<Map<String, UserEntity>>> calls = new ArrayList<>(itemsByShard.size());
+        for (Map.Entry<String, List<T>> items : itemsByShard.entrySet()) {
+            UserRepository shard = ring.shards.get(items.getKey());
+            calls.add(AsyncCalls.runOn(fanOutExecutor, () -> shardCall.call(shard, items.getValue())));
+        }
+        Map<String, UserEntity> merged = new HashMap<>();
+        Throwable failure = null;
+        // wait for every shard, so no call is still running after we return
+        for (CompletableFuture<Map<String, UserEntity>> call : calls) {
+            try {
+                merged.putAll(call.join());
+            } catch (CompletionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause();
+                }
+            }
+        }
+        if (failure instanceof ConnectionException) {
+            throw (ConnectionException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw new CompletionException(failure);
+        }
+        return merged;
+    }
+
+    // FNV-1a over the chars, then the murmur3 finalizer so close emails land far apart
+    static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,22 +1,34 @@
 package domain.entities;
 
+/**
+ * Entities are equal when they are of the same class and have the same id.
+ * An entity without id is only equal to itself
+ * */
 public abstract class Entity {
-    public String id;
+    public final String id;
+    private final int hash;
 
     protected Entity()
     {
-
+        this(null);
     }
 
     protected Entity(String id)
     {
-        id = id;
+        this.id = id;
+        this.hash = id == null ? System.identityHashCode(this) : id.hashCode();
     }
 
+    @Override
     public boolean equals (Object obj) {
-        if (!(obj instanceof Entity)) return false;
-        if (id.equals(((Entity) obj).id)) return true;
         if (obj == this) return true;
-        return false;
+        if (obj == null || obj.getClass() != getClass()) return false;
+        Entity other = (Entity) obj;
+        return id != null && other.hash == hash && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode () {
+        return hash;
     }
 }
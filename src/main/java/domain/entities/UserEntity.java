@@ -7,8 +7,8 @@ public class UserEntity extends Entity {
     private UserStatus status;
 
     public UserEntity(String id, String email, String name, UserRole role, UserStatus status) {
+        super(id);
         this.email = email;
-        this.id = id;
         this.fullName = name;
         this.role = role;
         this.status = status;
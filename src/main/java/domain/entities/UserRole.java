@@ -5,16 +5,43 @@ public class UserRole {
         ADMIN, STUDENT, GUEST, MENTOR
     }
 
-    private TYPE type;
+    private static final UserRole[] ROLES = new UserRole[TYPE.values().length];
 
+    static {
+        for (TYPE type : TYPE.values()) {
+            ROLES[type.ordinal()] = new UserRole(type);
+        }
+    }
+
+    private final TYPE type;
+
+    /**
+     * Prefer UserRole.of, which returns the shared instance of the type
+     * */
     public UserRole(TYPE type) {
         this.type = type;
     }
 
+    public static UserRole of(TYPE type) {
+        return ROLES[type.ordinal()];
+    }
+
     public TYPE getType() {
         return type;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (!(obj instanceof UserRole)) return false;
+        return type == ((UserRole) obj).type;
+    }
+
+    @Override
+    public int hashCode() {
+        return type == null ? 0 : type.ordinal() + 1;
+    }
+
     @Override
     public String toString() {
         return "UserRole{" +
@@ -5,16 +5,43 @@ public class UserStatus {
         BLOCKED, ACTIVE
     }
 
-    private STATUS status;
+    private static final UserStatus[] STATUSES = new UserStatus[STATUS.values().length];
 
+    static {
+        for (STATUS status : STATUS.values()) {
+            STATUSES[status.ordinal()] = new UserStatus(status);
+        }
+    }
+
+    private final STATUS status;
+
+    /**
+     * Prefer UserStatus.of, which returns the shared instance of the status
+     * */
     public UserStatus(STATUS status) {
         this.status = status;
     }
 
+    public static UserStatus of(STATUS status) {
+        return STATUSES[status.ordinal()];
+    }
+
     public STATUS getStatus() {
         return status;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (!(obj instanceof UserStatus)) return false;
+        return status == ((UserStatus) obj).status;
+    }
+
+    @Override
+    public int hashCode() {
+        return status == null ? 0 : status.ordinal() + 1;
+    }
+
     @Override
     public String toString() {
         return "UserStatus{" +
@@ -0,0 +1,10 @@
+package domain.ports.errors;
+
+/**
+ * The call was refused before it was made, because the dependency failed too often lately
+ * */
+public class CircuitOpenException extends ConnectionException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
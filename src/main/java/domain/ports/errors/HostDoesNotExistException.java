@@ -1,6 +1,6 @@
 package domain.ports.errors;
 
-public class HostDoesNotExistException extends Exception {
+public class HostDoesNotExistException extends ConnectionException {
     public HostDoesNotExistException(String message) {
         super(message);
     }
@@ -0,0 +1,10 @@
+package domain.ports.errors;
+
+/**
+ * The call was refused before it was made, because too many calls are already in progress
+ * */
+public class OverloadedException extends ConnectionException {
+    public OverloadedException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,6 @@
 package domain.ports.errors;
 
-public class TimeOutException extends Exception {
+public class TimeOutException extends ConnectionException {
     public TimeOutException(String message) {
         super(message);
     }
@@ -0,0 +1,11 @@
+package domain.ports.google_api;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non blocking version of GoogleGetUserEndpoint.
+ * Connection problems complete the future exceptionally with a ConnectionException.
+ * */
+public interface AsyncGoogleGetUserEndpoint {
+     CompletableFuture<GoogleGetUserEndpoint.Result> getUserAsync(String accessToken);
+}
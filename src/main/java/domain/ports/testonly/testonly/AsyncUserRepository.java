@@ -0,0 +1,18 @@
+package domain.ports.testonly.testonly;
+
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non blocking version of UserRepository.
+ * Connection problems complete the future exceptionally with a ConnectionException.
+ * */
+public interface AsyncUserRepository {
+    CompletableFuture<UserEntity> getUserByEmailAsync (String email);
+
+    CompletableFuture<UserEntity> addUserAsync (String email, String fullName, String avatar, UserRole role, UserStatus userStatus);
+}
@@ -0,0 +1,9 @@
+package domain.ports.testonly.testonly;
+
+/**
+ * Cheap in memory answer to "can this email belong to a user", without asking the repository.
+ * False is certain: no user has this email. True only means the repository has to be asked.
+ * */
+public interface EmailMembership {
+    boolean mightContain (String email);
+}
@@ -0,0 +1,14 @@
+package domain.ports.testonly.testonly;
+
+import domain.entities.UserEntity;
+
+import java.util.Collection;
+
+/**
+ * A cache tier in front of the user repository that can be filled before any login asks for it.
+ * Preloaded users must not replace what the tier already learned from the repository,
+ * which may be newer than the source of the preload. May be called from many threads at once.
+ * */
+public interface PreloadableUserCache {
+    void preload (Collection<UserEntity> users);
+}
@@ -4,12 +4,64 @@ package domain.ports.testonly.testonly;
 import domain.entities.UserEntity;
 import domain.entities.UserRole;
 import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
 import domain.ports.errors.ConnectionException;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 
 public interface UserRepository {
+    class NewUser {
+        public final String email;
+        public final String fullName;
+        public final String avatar;
+        public final UserRole role;
+        public final UserStatus userStatus;
+
+        public NewUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) {
+            this.email = email;
+            this.fullName = fullName;
+            this.avatar = avatar;
+            this.role = role;
+            this.userStatus = userStatus;
+        }
+    }
+
     UserEntity getUserByEmail (String email) throws ConnectionException;
 
-    UserEntity addUser (String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws ConnectionException;
+    UserEntity addUser (String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws ConnectionException, AlreadyExistException;
+
+    /**
+     * Users of the given emails, keyed by the email as it was passed in. Emails without a user are left out.
+     * Implementations backed by a remote store should override this with a single round trip.
+     * */
+    default Map<String, UserEntity> getUsersByEmails (Collection<String> emails) throws ConnectionException {
+        Map<String, UserEntity> users = new HashMap<>();
+        for (String email : emails) {
+            UserEntity user = getUserByEmail(email);
+            if (user != null) {
+                users.put(email, user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Add all the users, keyed by the email as it was passed in. Users that already exist are skipped and left out.
+     * Implementations backed by a remote store should override this with a single round trip.
+     * */
+    default Map<String, UserEntity> addUsers (Collection<NewUser> newUsers) throws ConnectionException {
+        Map<String, UserEntity> added = new HashMap<>();
+        for (NewUser newUser : newUsers) {
+            try {
+                added.put(newUser.email, addUser(newUser.email, newUser.fullName, newUser.avatar, newUser.role, newUser.userStatus));
+            } catch (AlreadyExistException ex) {
+                // skipped, see above
+            }
+        }
+        return added;
+    }
 }
 
@@ -0,0 +1,98 @@
+package login;
+
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.errors.OverloadedException;
+import domain.ports.google_api.AsyncGoogleGetUserEndpoint;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import domain.ports.testonly.testonly.AsyncUserRepository;
+import login.LoginWithGoogleUseCase.Result;
+import login.LoginWithGoogleUseCase.Result.*;
+import login_convention.EmailValidator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Non blocking version of LoginWithGoogleUseCase, with the same rules and the same results.
+ * No thread is held while waiting for Google or the repository.
+ * */
+public class AsyncLoginWithGoogleUseCase {
+    private final AsyncGoogleGetUserEndpoint googleGetUserEndpoint;
+    private final AsyncUserRepository userRepository;
+    private final EmailValidator emailValidator;
+
+    public AsyncLoginWithGoogleUseCase(AsyncGoogleGetUserEndpoint loginApi, AsyncUserRepository userRepository, EmailValidator emailValidator) {
+        this.googleGetUserEndpoint = loginApi;
+        this.userRepository = userRepository;
+        this.emailValidator = emailValidator;
+    }
+
+    public CompletableFuture<Result> executesAsync(String googleAccessToken) {
+        return googleGetUserEndpoint.getUserAsync(googleAccessToken)
+                .thenCompose(getUserResult -> {
+                    if (getUserResult instanceof GoogleGetUserEndpoint.Result.AuthError) {
+                        return CompletableFuture.completedFuture(new AuthError());
+                    }
+
+                    if (getUserResult instanceof GoogleGetUserEndpoint.Result.GeneralError) {
+                        return CompletableFuture.completedFuture(new GeneralError());
+                    }
+                    GooglePojo pojo = ((GoogleGetUserEndpoint.Result.Success) getUserResult).googlePojo;
+                    return loginWithGooglePojo(pojo);
+                })
+                .exceptionally(AsyncLoginWithGoogleUseCase::connectionExceptionToGeneralError);
+    }
+
+    private CompletableFuture<Result> loginWithGooglePojo(GooglePojo pojo) {
+        String fullName = pojo.getFullName();
+        String email = pojo.getEmail();
+
+        return userRepository.getUserByEmailAsync(email)
+                .thenCompose(user -> {
+                    if (user != null) {
+                        return CompletableFuture.completedFuture(new Success(user));
+                    }
+
+                    EmailValidator.Result validatorResult = emailValidator.check(email);
+                    if (!validatorResult.isValid) {
+                        return CompletableFuture.completedFuture(new NotAllowed());
+                    }
+                    return userRepository.addUserAsync(email, fullName, pojo.getPicture(), validatorResult.role, UserStatus.of(UserStatus.STATUS.ACTIVE))
+                            .handle((added, throwable) -> {
+                                if (throwable == null) {
+                                    return CompletableFuture.<Result>completedFuture(new Success(added));
+                                }
+                                if (!(unwrap(throwable) instanceof AlreadyExistException)) {
+                                    return CompletableFuture.<Result>failedFuture(throwable);
+                                }
+                                // Another login added this user since our lookup, so use theirs
+                                return userRepository.getUserByEmailAsync(email)
+                                        .thenApply(existing -> existing != null ? new Success(existing) : new GeneralError());
+                            })
+                            .thenCompose(result -> result);
+                });
+    }
+
+    private static Result connectionExceptionToGeneralError(Throwable throwable) {
+        Throwable cause = unwrap(throwable);
+        if (cause instanceof OverloadedException) {
+            return new Overloaded();
+        }
+        if (cause instanceof ConnectionException) {
+            return new GeneralError();
+        }
+        throw throwable instanceof CompletionException ? (CompletionException) throwable : new CompletionException(throwable);
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,62 @@
+package login;
+
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import domain.ports.testonly.testonly.UserRepository;
+import login.LoginWithGoogleUseCase.Result.*;
+import login_convention.EmailValidator;
+
+/**
+ * Same as LoginWithGoogleUseCase, but concurrent logins with the same access token share one execution,
+ * and concurrent logins of the same email share one repository lookup / insert.
+ * The latter stops double submitted first time logins from adding the same user twice.
+ * Every caller still gets a Result of its own and is counted in metrics, a caller that joined another's login
+ * with the outcome it saw: the user it got already existed for it.
+ * */
+public class CoalescingLoginWithGoogleUseCase extends LoginWithGoogleUseCase {
+    private final SingleFlight<String, Result> tokenFlights = new SingleFlight<>();
+    private final SingleFlight<String, Result> emailFlights = new SingleFlight<>();
+    private final LoginMetrics metrics;
+
+    public CoalescingLoginWithGoogleUseCase(GoogleGetUserEndpoint loginApi, UserRepository userRepository, EmailValidator emailValidator) {
+        this(loginApi, userRepository, emailValidator, LoginMetrics.NOOP);
+    }
+
+    public CoalescingLoginWithGoogleUseCase(GoogleGetUserEndpoint loginApi, UserRepository userRepository, EmailValidator emailValidator, LoginMetrics metrics) {
+        super(loginApi, userRepository, emailValidator, metrics);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Result executes(String googleAccessToken) {
+        long start = metrics.nanoTime();
+        return tokenFlights.execute(googleAccessToken, () -> super.executes(googleAccessToken), result -> {
+            Result own = joined(result);
+            metrics.recordLatency(LoginMetrics.Operation.LOGIN, metrics.nanoTime() - start, own instanceof GeneralError);
+            return own;
+        });
+    }
+
+    @Override
+    protected Result loginWithGooglePojo(GooglePojo pojo) throws ConnectionException {
+        return emailFlights.execute(pojo.getEmail(), () -> super.loginWithGooglePojo(pojo), this::joined);
+    }
+
+    // a copy of the result of another caller's login, counted as the outcome of this caller's
+    private Result joined(Result result) {
+        if (result instanceof Success) {
+            return outcome(LoginMetrics.Outcome.SUCCESS_EXISTING, new Success(((Success) result).user));
+        }
+        if (result instanceof NotAllowed) {
+            return outcome(LoginMetrics.Outcome.NOT_ALLOWED, new NotAllowed());
+        }
+        if (result instanceof AuthError) {
+            return outcome(LoginMetrics.Outcome.AUTH_ERROR, new AuthError());
+        }
+        if (result instanceof Overloaded) {
+            return outcome(LoginMetrics.Outcome.OVERLOADED, new Overloaded());
+        }
+        return outcome(LoginMetrics.Outcome.GENERAL_ERROR, new GeneralError());
+    }
+}
@@ -0,0 +1,119 @@
+package login;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * One token bucket per key, allowing rate calls per period with bursts of up to burst calls.
+ * Buckets are kept as GCRA: a single AtomicLong per key holding the time its bucket will be full again,
+ * so tryAcquire is one map lookup and one compare and set, without any lock.
+ * About maxKeys buckets are kept. A full bucket carries no information, so when the map is full a new key drops
+ * the oldest refilled bucket among the few oldest keys; if none refilled, the oldest key is dropped
+ * and starts again with a full bucket.
+ * */
+public class KeyedRateLimiter<K> {
+    private static final int EVICTION_SCAN = 16;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<K, AtomicLong> fullAtByKey = new ConcurrentHashMap<>();
+    // every key of the map once, oldest first, so eviction does not have to walk the map
+    private final ConcurrentLinkedQueue<K> keysByAge = new ConcurrentLinkedQueue<>();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public KeyedRateLimiter(int rate, long period, TimeUnit unit, int burst, int maxKeys) {
+        this(rate, period, unit, burst, maxKeys, System::nanoTime);
+    }
+
+    public KeyedRateLimiter(int rate, long period, TimeUnit unit, int burst, int maxKeys, LongSupplier nanoClock) {
+        if (rate <= 0 || period <= 0) {
+            throw new IllegalArgumentException("rate and period must be positive");
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("burst must be positive");
+        }
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys must be positive");
+        }
+        this.emissionIntervalNanos = Math.max(1, unit.toNanos(period) / rate);
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Take one call from the bucket of this key, false when it is empty
+     * */
+    public boolean tryAcquire(K key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong fullAt = fullAtByKey.get(key);
+        if (fullAt == null) {
+            if (fullAtByKey.size() >= maxKeys) {
+                evict(now);
+            }
+            AtomicLong created = new AtomicLong(now);
+            fullAt = fullAtByKey.putIfAbsent(key, created);
+            if (fullAt == null) {
+                fullAt = created;
+                keysByAge.offer(key);
+            }
+        }
+        while (true) {
+            long current = fullAt.get();
+            long start = current - now < 0 ? now : current;
+            long next = start + emissionIntervalNanos;
+            if (next - now > burstToleranceNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    private void evict(long now) {
+        // look at a few of the oldest keys only, so a flood of new keys costs every caller the same small amount
+        K oldestBusy = null;
+        int removed = 0;
+        for (int scanned = 0; scanned < EVICTION_SCAN && removed == 0; scanned++) {
+            K key = keysByAge.poll();
+            if (key == null) {
+                break;
+            }
+            AtomicLong fullAt = fullAtByKey.get(key);
+            if (fullAt == null) {
+                continue;
+            }
+            if (fullAt.get() - now <= 0) {
+                if (fullAtByKey.remove(key, fullAt)) {
+                    removed++;
+                }
+            } else if (oldestBusy == null) {
+                oldestBusy = key;
+            } else {
+                keysByAge.offer(key);
+            }
+        }
+        if (oldestBusy != null) {
+            if (removed == 0 && fullAtByKey.remove(oldestBusy) != null) {
+                removed++;
+            } else {
+                keysByAge.offer(oldestBusy);
+            }
+        }
+        evictionCount.addAndGet(removed);
+    }
+
+    public int size() {
+        return fullAtByKey.size();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+}
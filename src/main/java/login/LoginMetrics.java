@@ -0,0 +1,48 @@
+package login;
+
+/**
+ * Where LoginWithGoogleUseCase reports what it did and how long each step took.
+ * Implementations are called on the login path by every request thread, so they must be thread safe and cheap.
+ * NOOP records nothing and does not even read the clock.
+ * */
+public interface LoginMetrics {
+    enum Outcome {
+        SUCCESS_EXISTING, SUCCESS_CREATED, NOT_ALLOWED, AUTH_ERROR, GENERAL_ERROR, OVERLOADED,
+        // refused by RateLimitedLoginWithGoogleUseCase before the use case ran
+        TOO_MANY_REQUESTS
+    }
+
+    enum Operation {
+        // a whole executes call
+        LOGIN,
+        GOOGLE_GET_USER, GET_USER_BY_EMAIL, ADD_USER, EMAIL_CHECK,
+        GET_USERS_BY_EMAILS, ADD_USERS
+    }
+
+    LoginMetrics NOOP = new LoginMetrics() {
+        @Override
+        public long nanoTime() {
+            return 0;
+        }
+
+        @Override
+        public void recordOutcome(Outcome outcome) {
+        }
+
+        @Override
+        public void recordLatency(Operation operation, long nanos, boolean failed) {
+        }
+    };
+
+    /**
+     * The clock latencies are measured with
+     * */
+    long nanoTime();
+
+    void recordOutcome(Outcome outcome);
+
+    /**
+     * @param failed whether the operation ended with an exception (for the ports) or a GeneralError (for LOGIN)
+     * */
+    void recordLatency(Operation operation, long nanos, boolean failed);
+}
@@ -0,0 +1,97 @@
+package login;
+
+import login.LoginWithGoogleUseCase.Result;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run LoginWithGoogleUseCase.executes on its own virtual thread per login.
+ * At most maxConcurrency logins run at the same time, up to maxQueued more wait for a slot,
+ * and anything beyond that is rejected right away with a RejectedExecutionException.
+ * */
+public class LoginService implements AutoCloseable {
+    private final LoginWithGoogleUseCase loginWithGoogleUseCase;
+    private final ExecutorService executor;
+    private final int maxConcurrency;
+    private final int maxQueued;
+    private final Semaphore runningPermits;
+    private final AtomicInteger admitted = new AtomicInteger();
+
+    public LoginService(LoginWithGoogleUseCase loginWithGoogleUseCase, int maxConcurrency, int maxQueued) {
+        this(loginWithGoogleUseCase, maxConcurrency, maxQueued, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public LoginService(LoginWithGoogleUseCase loginWithGoogleUseCase, int maxConcurrency, int maxQueued, ExecutorService executor) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued must not be negative");
+        }
+        this.loginWithGoogleUseCase = loginWithGoogleUseCase;
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueued = maxQueued;
+        this.executor = executor;
+        this.runningPermits = new Semaphore(maxConcurrency);
+    }
+
+    public CompletableFuture<Result> login(String googleAccessToken) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        if (admitted.incrementAndGet() > maxConcurrency + maxQueued) {
+            admitted.decrementAndGet();
+            future.completeExceptionally(new RejectedExecutionException("Too many logins in progress"));
+            return future;
+        }
+
+        try {
+            executor.execute(() -> run(googleAccessToken, future));
+        } catch (RejectedExecutionException ex) {
+            admitted.decrementAndGet();
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private void run(String googleAccessToken, CompletableFuture<Result> future) {
+        try {
+            runningPermits.acquire();
+        } catch (InterruptedException ex) {
+            admitted.decrementAndGet();
+            future.completeExceptionally(ex);
+            return;
+        }
+        Result result = null;
+        Throwable failure = null;
+        try {
+            result = loginWithGoogleUseCase.executes(googleAccessToken);
+        } catch (Throwable ex) {
+            failure = ex;
+        } finally {
+            runningPermits.release();
+            admitted.decrementAndGet();
+        }
+        // complete only after the slot is given back, so callers never see a stale inProgressCount
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(result);
+        }
+    }
+
+    /**
+     * Logins that are running or waiting for a slot
+     * */
+    public int inProgressCount() {
+        return admitted.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
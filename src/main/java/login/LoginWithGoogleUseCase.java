@@ -1,14 +1,34 @@
 package login;
 
+import adapters.user_repository.EmailKeys;
 import domain.entities.UserEntity;
+import domain.entities.UserRole;
 import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
 import domain.ports.errors.ConnectionException;
+import domain.ports.errors.OverloadedException;
 import domain.ports.google_api.GoogleGetUserEndpoint;
 import domain.ports.google_api.GooglePojo;
 import domain.ports.testonly.testonly.UserRepository;
 import login.LoginWithGoogleUseCase.Result.*;
 import login_convention.EmailValidator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * Accept google access token then send this access token to get the user info from Google
  * If user is already exist in db then allow them to access
@@ -31,46 +51,342 @@ public class LoginWithGoogleUseCase {
         }
         public static class GeneralError extends Result {
         }
+        /**
+         * Refused without trying, because Google or the repository already has as many calls as it can take.
+         * Unlike GeneralError the client should back off before retrying
+         * */
+        public static class Overloaded extends Result {
+        }
+        /**
+         * Refused by RateLimitedLoginWithGoogleUseCase, this client or token tried too often
+         * */
+        public static class TooManyRequests extends Result {
+        }
     }
 
     private final GoogleGetUserEndpoint googleGetUserEndpoint;
     private final UserRepository userRepository;
     private final EmailValidator emailValidator;
+    private final LoginMetrics metrics;
 
     public LoginWithGoogleUseCase(GoogleGetUserEndpoint loginApi, UserRepository userRepository, EmailValidator emailValidator) {
+        this(loginApi, userRepository, emailValidator, LoginMetrics.NOOP);
+    }
+
+    /**
+     * Report every outcome and the latency of every login and port call to metrics.
+     * Port calls are counted per execution, so calls a subclass coalesced count as one,
+     * while every login is counted with its own outcome
+     * */
+    public LoginWithGoogleUseCase(GoogleGetUserEndpoint loginApi, UserRepository userRepository, EmailValidator emailValidator, LoginMetrics metrics) {
         this.googleGetUserEndpoint = loginApi;
         this.userRepository = userRepository;
         this.emailValidator = emailValidator;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Repository lookup of the user of an email, started before Google told us the email of the token
+     * */
+    protected static final class UserPrefetch {
+        final String email;
+        final CompletableFuture<UserEntity> user;
+        final long timeoutNanos;
+
+        /**
+         * @param timeout how long the login waits for the lookup once Google answered, before looking the user up itself
+         * */
+        public UserPrefetch(String email, CompletableFuture<UserEntity> user, long timeout, TimeUnit unit) {
+            this.email = EmailKeys.normalize(email);
+            this.user = user;
+            this.timeoutNanos = unit.toNanos(timeout);
+        }
+
+        boolean isFor(String email) {
+            // repositories key users by the normalized email, so any spelling of it finds the same user
+            return this.email.equals(EmailKeys.normalize(email));
+        }
+
+        // a lookup still queued is then skipped
+        void cancel() {
+            user.cancel(false);
+        }
+
+        // TimeoutException when the lookup is still queued or running, e.g. behind other work on its executor
+        UserEntity get() throws ConnectionException, TimeoutException {
+            try {
+                return user.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ConnectionException("Interrupted while waiting for the user lookup");
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof ConnectionException) {
+                    throw (ConnectionException) ex.getCause();
+                }
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new CompletionException(ex.getCause());
+            }
+        }
     }
 
     public Result executes(String googleAccessToken) {
+        return executes(googleAccessToken, null);
+    }
+
+    /**
+     * Same as executes, but when Google returns the email of prefetch, its lookup is used instead of a new one
+     * */
+    protected final Result executes(String googleAccessToken, UserPrefetch prefetch) {
+        long start = metrics.nanoTime();
+        Result result = login(googleAccessToken, prefetch);
+        metrics.recordLatency(LoginMetrics.Operation.LOGIN, metrics.nanoTime() - start, result instanceof GeneralError);
+        return result;
+    }
+
+    private Result login(String googleAccessToken, UserPrefetch prefetch) {
         try {
-            GoogleGetUserEndpoint.Result getUserResult = googleGetUserEndpoint.getUser(googleAccessToken);
+            GoogleGetUserEndpoint.Result getUserResult = getUser(googleAccessToken);
 
             if (getUserResult instanceof GoogleGetUserEndpoint.Result.AuthError) {
-                return new AuthError();
+                return outcome(LoginMetrics.Outcome.AUTH_ERROR, new AuthError());
             }
 
             if (getUserResult instanceof GoogleGetUserEndpoint.Result.GeneralError) {
-                return new GeneralError();
+                return outcome(LoginMetrics.Outcome.GENERAL_ERROR, new GeneralError());
             }
             GooglePojo pojo = ((GoogleGetUserEndpoint.Result.Success) getUserResult).googlePojo;
-            String fullName = pojo.getFullName();
-            String email = pojo.getEmail();
+            if (prefetch == null) {
+                return loginWithGooglePojo(pojo);
+            }
+            if (!prefetch.isFor(pojo.getEmail())) {
+                prefetch.cancel();
+                return loginWithGooglePojo(pojo);
+            }
+            UserEntity user;
+            try {
+                user = prefetch.get();
+            } catch (TimeoutException | ConnectionException ex) {
+                // the prefetch is only a shortcut: waiting longer could take more than a lookup of our own,
+                // and a failed one says nothing about the next
+                return loginWithGooglePojo(pojo);
+            }
+            return loginWithGooglePojo(pojo, user, null);
+        } catch (OverloadedException ex) {
+            return outcome(LoginMetrics.Outcome.OVERLOADED, new Overloaded());
+        } catch (ConnectionException ex) {
+            return outcome(LoginMetrics.Outcome.GENERAL_ERROR, new GeneralError());
+        }
+    }
+
+    /**
+     * Find the user of this google account in db, or add them if they have fpt email
+     * */
+    protected Result loginWithGooglePojo(GooglePojo pojo) throws ConnectionException {
+        return loginWithGooglePojo(pojo, getUserByEmail(pojo.getEmail()), null);
+    }
+
+    /**
+     * The rest of loginWithGooglePojo once the user of the email was looked up (null when there is none),
+     * with the check of the email when it was already made
+     * */
+    protected final Result loginWithGooglePojo(GooglePojo pojo, UserEntity user, EmailValidator.Result validatorResult) throws ConnectionException {
+        String email = pojo.getEmail();
+        if (user != null) {
+            return outcome(LoginMetrics.Outcome.SUCCESS_EXISTING, new Success(user));
+        }
 
-            UserEntity user = userRepository.getUserByEmail(pojo.getEmail());
-            if (user != null) {
-                return new Success(user);
+        if (validatorResult == null) {
+            validatorResult = check(email);
+        }
+        if (!validatorResult.isValid) {
+            return outcome(LoginMetrics.Outcome.NOT_ALLOWED, new Result.NotAllowed());
+        }
+        try {
+            // full name is built only here, returning users do not need it
+            user = addUser(email, pojo.getFullName(), pojo.getPicture(), validatorResult.role, UserStatus.of(UserStatus.STATUS.ACTIVE));
+        } catch (AlreadyExistException ex) {
+            // Another login added this user since our lookup, so use theirs
+            user = getUserByEmail(email);
+            if (user == null) {
+                return outcome(LoginMetrics.Outcome.GENERAL_ERROR, new GeneralError());
+            }
+            return outcome(LoginMetrics.Outcome.SUCCESS_EXISTING, new Success(user));
+        }
+        return outcome(LoginMetrics.Outcome.SUCCESS_CREATED, new Success(user));
+    }
+
+    /**
+     * Same rules as executes, for many access tokens at once.
+     * The repository is read with one getUsersByEmails and new users are added with one addUsers,
+     * so a batch costs a fixed number of repository round trips instead of one or two per user.
+     * Results are in the same order as the tokens.
+     * */
+    public List<Result> executesBatch(List<String> googleAccessTokens) {
+        int size = googleAccessTokens.size();
+        Result[] results = new Result[size];
+        GooglePojo[] pojos = new GooglePojo[size];
+        Set<String> emails = new LinkedHashSet<>();
+
+        for (int i = 0; i < size; i++) {
+            try {
+                GoogleGetUserEndpoint.Result getUserResult = getUser(googleAccessTokens.get(i));
+                if (getUserResult instanceof GoogleGetUserEndpoint.Result.AuthError) {
+                    results[i] = outcome(LoginMetrics.Outcome.AUTH_ERROR, new AuthError());
+                } else if (getUserResult instanceof GoogleGetUserEndpoint.Result.GeneralError) {
+                    results[i] = outcome(LoginMetrics.Outcome.GENERAL_ERROR, new GeneralError());
+                } else {
+                    pojos[i] = ((GoogleGetUserEndpoint.Result.Success) getUserResult).googlePojo;
+                    emails.add(pojos[i].getEmail());
+                }
+            } catch (OverloadedException ex) {
+                results[i] = outcome(LoginMetrics.Outcome.OVERLOADED, new Overloaded());
+            } catch (ConnectionException ex) {
+                results[i] = outcome(LoginMetrics.Outcome.GENERAL_ERROR, new GeneralError());
             }
+        }
 
-            EmailValidator.Result validatorResult = emailValidator.check(email);
+        if (!emails.isEmpty()) {
+            try {
+                loginWithGooglePojos(pojos, emails, results);
+            } catch (ConnectionException ex) {
+                boolean overloaded = ex instanceof OverloadedException;
+                for (int i = 0; i < size; i++) {
+                    if (results[i] == null) {
+                        results[i] = overloaded
+                                ? outcome(LoginMetrics.Outcome.OVERLOADED, new Overloaded())
+                                : outcome(LoginMetrics.Outcome.GENERAL_ERROR, new GeneralError());
+                    }
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void loginWithGooglePojos(GooglePojo[] pojos, Set<String> emails, Result[] results) throws ConnectionException {
+        Map<String, UserEntity> users = new LinkedHashMap<>(getUsersByEmails(emails));
+        Set<String> created = Collections.emptySet();
+
+        Map<String, UserRepository.NewUser> newUsers = new LinkedHashMap<>();
+        for (int i = 0; i < pojos.length; i++) {
+            GooglePojo pojo = pojos[i];
+            if (pojo == null || users.containsKey(pojo.getEmail())) {
+                continue;
+            }
+            EmailValidator.Result validatorResult = check(pojo.getEmail());
             if (!validatorResult.isValid) {
-                return new Result.NotAllowed();
+                results[i] = outcome(LoginMetrics.Outcome.NOT_ALLOWED, new NotAllowed());
+                continue;
             }
-            user = userRepository.addUser(email, fullName, pojo.getPicture(), validatorResult.role, new UserStatus(UserStatus.STATUS.ACTIVE));
-            return new Success(user);
-        } catch (ConnectionException ex) {
-            return new GeneralError();
+            newUsers.putIfAbsent(pojo.getEmail(), new UserRepository.NewUser(pojo.getEmail(), pojo.getFullName(),
+                    pojo.getPicture(), validatorResult.role, UserStatus.of(UserStatus.STATUS.ACTIVE)));
+        }
+
+        if (!newUsers.isEmpty()) {
+            Map<String, UserEntity> added = addUsers(newUsers.values());
+            created = added.keySet();
+            users.putAll(added);
+            // Skipped ones were added by another login since our lookup, so use theirs
+            Set<String> skipped = new HashSet<>(newUsers.keySet());
+            skipped.removeAll(added.keySet());
+            if (!skipped.isEmpty()) {
+                users.putAll(getUsersByEmails(new ArrayList<>(skipped)));
+            }
+        }
+
+        for (int i = 0; i < pojos.length; i++) {
+            if (pojos[i] == null || results[i] != null) {
+                continue;
+            }
+            String email = pojos[i].getEmail();
+            UserEntity user = users.get(email);
+            if (user == null) {
+                results[i] = outcome(LoginMetrics.Outcome.GENERAL_ERROR, new GeneralError());
+            } else {
+                results[i] = outcome(created.contains(email)
+                        ? LoginMetrics.Outcome.SUCCESS_CREATED : LoginMetrics.Outcome.SUCCESS_EXISTING, new Success(user));
+            }
+        }
+    }
+
+    protected final Result outcome(LoginMetrics.Outcome outcome, Result result) {
+        metrics.recordOutcome(outcome);
+        return result;
+    }
+
+    private GoogleGetUserEndpoint.Result getUser(String accessToken) throws ConnectionException {
+        long start = metrics.nanoTime();
+        boolean failed = true;
+        try {
+            GoogleGetUserEndpoint.Result result = googleGetUserEndpoint.getUser(accessToken);
+            failed = false;
+            return result;
+        } finally {
+            metrics.recordLatency(LoginMetrics.Operation.GOOGLE_GET_USER, metrics.nanoTime() - start, failed);
+        }
+    }
+
+    protected final UserEntity getUserByEmail(String email) throws ConnectionException {
+        long start = metrics.nanoTime();
+        boolean failed = true;
+        try {
+            UserEntity user = userRepository.getUserByEmail(email);
+            failed = false;
+            return user;
+        } finally {
+            metrics.recordLatency(LoginMetrics.Operation.GET_USER_BY_EMAIL, metrics.nanoTime() - start, failed);
+        }
+    }
+
+    private UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws ConnectionException, AlreadyExistException {
+        long start = metrics.nanoTime();
+        boolean failed = true;
+        try {
+            UserEntity user = userRepository.addUser(email, fullName, avatar, role, userStatus);
+            failed = false;
+            return user;
+        } catch (AlreadyExistException ex) {
+            failed = false;
+            throw ex;
+        } finally {
+            metrics.recordLatency(LoginMetrics.Operation.ADD_USER, metrics.nanoTime() - start, failed);
+        }
+    }
+
+    private Map<String, UserEntity> getUsersByEmails(Collection<String> emails) throws ConnectionException {
+        long start = metrics.nanoTime();
+        boolean failed = true;
+        try {
+            Map<String, UserEntity> users = userRepository.getUsersByEmails(emails);
+            failed = false;
+            return users;
+        } finally {
+            metrics.recordLatency(LoginMetrics.Operation.GET_USERS_BY_EMAILS, metrics.nanoTime() - start, failed);
+        }
+    }
+
+    private Map<String, UserEntity> addUsers(Collection<UserRepository.NewUser> newUsers) throws ConnectionException {
+        long start = metrics.nanoTime();
+        boolean failed = true;
+        try {
+            Map<String, UserEntity> added = userRepository.addUsers(newUsers);
+            failed = false;
+            return added;
+        } finally {
+            metrics.recordLatency(LoginMetrics.Operation.ADD_USERS, metrics.nanoTime() - start, failed);
+        }
+    }
+
+    protected final EmailValidator.Result check(String email) {
+        long start = metrics.nanoTime();
+        boolean failed = true;
+        try {
+            EmailValidator.Result result = emailValidator.check(email);
+            failed = false;
+            return result;
+        } finally {
+            metrics.recordLatency(LoginMetrics.Operation.EMAIL_CHECK, metrics.nanoTime() - start, failed);
         }
     }
 }
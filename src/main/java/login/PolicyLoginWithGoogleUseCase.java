@@ -0,0 +1,116 @@
+package login;
+
+import adapters.user_repository.EmailKeys;
+import domain.entities.UserEntity;
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import domain.ports.testonly.testonly.EmailMembership;
+import domain.ports.testonly.testonly.UserRepository;
+import login_convention.EmailValidator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same rules as LoginWithGoogleUseCase, with a configurable order for the work of a login.
+ * BEFORE_LOOKUP checks the email before reading the repository, so when membership knows the email
+ * is not in the repository a not allowed email costs no round trip at all.
+ * executesWithHint(token, emailHint) reads the repository for the hinted email on prefetchExecutor
+ * while Google is asked about the token, and uses that read when Google returns the same email in any case.
+ * A read still not done prefetchTimeout after Google answered is not waited for, nor is a failed read trusted,
+ * the login then reads the repository itself. A hint membership knows is not in the repository is not prefetched.
+ * Without membership or a prefetchExecutor it behaves and costs like LoginWithGoogleUseCase.
+ * */
+public class PolicyLoginWithGoogleUseCase extends LoginWithGoogleUseCase {
+    public enum CheckOrder {
+        AFTER_LOOKUP, BEFORE_LOOKUP
+    }
+
+    private static final long DEFAULT_PREFETCH_TIMEOUT_MILLIS = 100;
+
+    private final CheckOrder checkOrder;
+    private final EmailMembership membership;
+    private final Executor prefetchExecutor;
+    private final long prefetchTimeoutNanos;
+
+    /**
+     * @param membership may be null, then every email is looked up
+     * @param prefetchExecutor may be null, then email hints are ignored
+     * */
+    public PolicyLoginWithGoogleUseCase(GoogleGetUserEndpoint loginApi, UserRepository userRepository, EmailValidator emailValidator,
+                                        LoginMetrics metrics, CheckOrder checkOrder, EmailMembership membership, Executor prefetchExecutor) {
+        this(loginApi, userRepository, emailValidator, metrics, checkOrder, membership, prefetchExecutor,
+                DEFAULT_PREFETCH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public PolicyLoginWithGoogleUseCase(GoogleGetUserEndpoint loginApi, UserRepository userRepository, EmailValidator emailValidator,
+                                        LoginMetrics metrics, CheckOrder checkOrder, EmailMembership membership, Executor prefetchExecutor,
+                                        long prefetchTimeout, TimeUnit unit) {
+        super(loginApi, userRepository, emailValidator, metrics);
+        if (prefetchTimeout < 0) {
+            throw new IllegalArgumentException("prefetchTimeout must not be negative");
+        }
+        this.checkOrder = checkOrder;
+        this.membership = membership;
+        this.prefetchExecutor = prefetchExecutor;
+        this.prefetchTimeoutNanos = unit.toNanos(prefetchTimeout);
+    }
+
+    /**
+     * Login with an email the client expects the token to be of, e.g. the one it gave Google as login_hint.
+     * A wrong or missing hint only costs the prefetch, the result is the same as executes(token).
+     * */
+    public Result executesWithHint(String googleAccessToken, String emailHint) {
+        if (emailHint == null || prefetchExecutor == null) {
+            return executes(googleAccessToken);
+        }
+        emailHint = EmailKeys.normalize(emailHint);
+        // membership alone, the email is checked (and metered) once, when Google said whose token it is
+        if (membership != null && !membership.mightContain(emailHint)) {
+            return executes(googleAccessToken);
+        }
+        CompletableFuture<UserEntity> user = prefetch(emailHint);
+        return executes(googleAccessToken, user == null ? null : new UserPrefetch(emailHint, user, prefetchTimeoutNanos, TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    protected Result loginWithGooglePojo(GooglePojo pojo) throws ConnectionException {
+        if (checkOrder == CheckOrder.AFTER_LOOKUP) {
+            return super.loginWithGooglePojo(pojo);
+        }
+        String email = pojo.getEmail();
+        EmailValidator.Result validatorResult = check(email);
+        if (isAbsent(email, validatorResult)) {
+            return outcome(LoginMetrics.Outcome.NOT_ALLOWED, new Result.NotAllowed());
+        }
+        return loginWithGooglePojo(pojo, getUserByEmail(email), validatorResult);
+    }
+
+    // Users with a not allowed email can still be in the repository, e.g. admins, so only membership may skip them
+    private boolean isAbsent(String email, EmailValidator.Result validatorResult) {
+        return !validatorResult.isValid && membership != null && !membership.mightContain(email);
+    }
+
+    // null when the executor is saturated, then the login looks the user up itself
+    private CompletableFuture<UserEntity> prefetch(String email) {
+        CompletableFuture<UserEntity> future = new CompletableFuture<>();
+        try {
+            prefetchExecutor.execute(() -> {
+                if (future.isCancelled()) {
+                    return;
+                }
+                try {
+                    future.complete(getUserByEmail(email));
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            return null;
+        }
+        return future;
+    }
+}
@@ -0,0 +1,66 @@
+package login;
+
+import login.LoginWithGoogleUseCase.Result;
+
+/**
+ * Refuse logins over the rate limits with TooManyRequests before the use case calls Google or the repository,
+ * so clients spinning on a bad token cost us nothing upstream.
+ * Each client key (for example the caller IP) has its own budget, and so does each access token.
+ * Tokens are keyed by a 64 bit hash, the limiter never holds on to the tokens themselves.
+ * Refused logins are counted as TOO_MANY_REQUESTS in metrics, the others by the use case itself.
+ * */
+public class RateLimitedLoginWithGoogleUseCase {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final LoginWithGoogleUseCase loginWithGoogleUseCase;
+    private final KeyedRateLimiter<String> clientLimiter;
+    private final KeyedRateLimiter<Long> tokenLimiter;
+    private final LoginMetrics metrics;
+
+    public RateLimitedLoginWithGoogleUseCase(LoginWithGoogleUseCase loginWithGoogleUseCase,
+                                             KeyedRateLimiter<String> clientLimiter, KeyedRateLimiter<Long> tokenLimiter) {
+        this(loginWithGoogleUseCase, clientLimiter, tokenLimiter, LoginMetrics.NOOP);
+    }
+
+    /**
+     * @param metrics usually the metrics of loginWithGoogleUseCase, so refused logins are counted with the others
+     * */
+    public RateLimitedLoginWithGoogleUseCase(LoginWithGoogleUseCase loginWithGoogleUseCase,
+                                             KeyedRateLimiter<String> clientLimiter, KeyedRateLimiter<Long> tokenLimiter,
+                                             LoginMetrics metrics) {
+        this.loginWithGoogleUseCase = loginWithGoogleUseCase;
+        this.clientLimiter = clientLimiter;
+        this.tokenLimiter = tokenLimiter;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Login limited by the access token only
+     * */
+    public Result executes(String googleAccessToken) {
+        return executes(null, googleAccessToken);
+    }
+
+    /**
+     * @param clientKey who is calling, null when unknown, then only the token limit applies
+     * */
+    public Result executes(String clientKey, String googleAccessToken) {
+        if ((clientKey != null && !clientLimiter.tryAcquire(clientKey))
+                || (googleAccessToken != null && !tokenLimiter.tryAcquire(tokenKey(googleAccessToken)))) {
+            metrics.recordOutcome(LoginMetrics.Outcome.TOO_MANY_REQUESTS);
+            return new Result.TooManyRequests();
+        }
+        return loginWithGoogleUseCase.executes(googleAccessToken);
+    }
+
+    static long tokenKey(String token) {
+        // FNV-1a over the chars, tokens are ASCII so this is the hash of their bytes
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < token.length(); i++) {
+            hash ^= token.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
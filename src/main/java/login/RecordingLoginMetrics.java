@@ -0,0 +1,115 @@
+package login;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoginMetrics kept in memory: a LongAdder per outcome, and per operation a LatencyHistogram and a failure count.
+ * Nothing is ever locked, snapshot reads the counters while logins keep going.
+ * */
+public class RecordingLoginMetrics implements LoginMetrics {
+    private static final Outcome[] OUTCOMES = Outcome.values();
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final double[] EXPORTED_PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LongAdder[] outcomeCounts = new LongAdder[OUTCOMES.length];
+    private final LongAdder[] failureCounts = new LongAdder[OPERATIONS.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+
+    public RecordingLoginMetrics() {
+        for (int i = 0; i < outcomeCounts.length; i++) {
+            outcomeCounts[i] = new LongAdder();
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            failureCounts[i] = new LongAdder();
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void recordOutcome(Outcome outcome) {
+        outcomeCounts[outcome.ordinal()].increment();
+    }
+
+    @Override
+    public void recordLatency(Operation operation, long nanos, boolean failed) {
+        latencies[operation.ordinal()].record(nanos);
+        if (failed) {
+            failureCounts[operation.ordinal()].increment();
+        }
+    }
+
+    public Snapshot snapshot() {
+        Map<Outcome, Long> outcomes = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : OUTCOMES) {
+            outcomes.put(outcome, outcomeCounts[outcome.ordinal()].sum());
+        }
+        Map<Operation, LatencyHistogram.Snapshot> operationLatencies = new EnumMap<>(Operation.class);
+        Map<Operation, Long> failures = new EnumMap<>(Operation.class);
+        for (Operation operation : OPERATIONS) {
+            operationLatencies.put(operation, latencies[operation.ordinal()].snapshot());
+            failures.put(operation, failureCounts[operation.ordinal()].sum());
+        }
+        return new Snapshot(outcomes, operationLatencies, failures);
+    }
+
+    public static class Snapshot {
+        public final Map<Outcome, Long> outcomes;
+        public final Map<Operation, LatencyHistogram.Snapshot> latencies;
+        public final Map<Operation, Long> failures;
+
+        Snapshot(Map<Outcome, Long> outcomes, Map<Operation, LatencyHistogram.Snapshot> latencies, Map<Operation, Long> failures) {
+            this.outcomes = Collections.unmodifiableMap(outcomes);
+            this.latencies = Collections.unmodifiableMap(latencies);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * The snapshot in the Prometheus text format, latencies as summaries in seconds
+         * */
+        public String export() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("# TYPE login_outcome_total counter\n");
+            for (Map.Entry<Outcome, Long> entry : outcomes.entrySet()) {
+                builder.append("login_outcome_total{outcome=\"").append(label(entry.getKey())).append("\"} ")
+                        .append(entry.getValue()).append('\n');
+            }
+            builder.append("# TYPE login_operation_failures_total counter\n");
+            for (Map.Entry<Operation, Long> entry : failures.entrySet()) {
+                builder.append("login_operation_failures_total{operation=\"").append(label(entry.getKey())).append("\"} ")
+                        .append(entry.getValue()).append('\n');
+            }
+            builder.append("# TYPE login_operation_latency_seconds summary\n");
+            for (Map.Entry<Operation, LatencyHistogram.Snapshot> entry : latencies.entrySet()) {
+                String operation = label(entry.getKey());
+                LatencyHistogram.Snapshot latency = entry.getValue();
+                for (double percentile : EXPORTED_PERCENTILES) {
+                    builder.append("login_operation_latency_seconds{operation=\"").append(operation)
+                            .append("\",quantile=\"").append(percentile / 100).append("\"} ")
+                            .append(seconds(latency.valueAtPercentile(percentile))).append('\n');
+                }
+                builder.append("login_operation_latency_seconds_sum{operation=\"").append(operation).append("\"} ")
+                        .append(seconds(latency.sum)).append('\n');
+                builder.append("login_operation_latency_seconds_count{operation=\"").append(operation).append("\"} ")
+                        .append(latency.count).append('\n');
+            }
+            return builder.toString();
+        }
+
+        private static String label(Enum<?> value) {
+            return value.name().toLowerCase(Locale.ROOT);
+        }
+
+        private static String seconds(long nanos) {
+            return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+        }
+    }
+}
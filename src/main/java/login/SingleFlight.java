@@ -0,0 +1,83 @@
+package login;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collapse concurrent calls with the same key into one execution.
+ * The first caller runs the call, the others wait and get the same value (or the same exception).
+ * Nothing is remembered once the call is finished, so later calls run again.
+ * */
+public class SingleFlight<K, V> {
+    public interface Call<V, E extends Exception> {
+        V call() throws E;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public <E extends Exception> V execute(K key, Call<V, E> call) throws E {
+        return execute(key, call, UnaryOperator.identity());
+    }
+
+    /**
+     * Same as execute, but the callers that joined another one's call get forJoined applied to its value,
+     * e.g. to give each of them an object of their own
+     * */
+    @SuppressWarnings("unchecked")
+    public <E extends Exception> V execute(K key, Call<V, E> call, UnaryOperator<V> forJoined) throws E {
+        CompletableFuture<V> ownFlight = new CompletableFuture<>();
+        CompletableFuture<V> flight = inFlight.putIfAbsent(key, ownFlight);
+        if (flight == null) {
+            try {
+                V value = call.call();
+                ownFlight.complete(value);
+                return value;
+            } catch (Exception | Error ex) {
+                ownFlight.completeExceptionally(ex);
+                throw ex;
+            } finally {
+                inFlight.remove(key, ownFlight);
+            }
+        }
+
+        try {
+            return forJoined.apply(joinUninterruptibly(flight));
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            // The leader ran the same call, so it can only throw what E allows
+            throw (E) cause;
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static <V> V joinUninterruptibly(CompletableFuture<V> flight) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return flight.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (CancellationException ex) {
+                    throw new ExecutionException(ex);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
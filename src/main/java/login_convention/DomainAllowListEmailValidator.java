@@ -0,0 +1,181 @@
+package login_convention;
+
+import domain.entities.UserRole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EmailValidator backed by a hashed allow-list of domains, each with its own role rule.
+ * The list is read from a file like
+ * <pre>
+ * # domain          role     [subdomains]
+ * fpt.edu.vn        AUTO
+ * fe.edu.vn         AUTO
+ * partner.edu.vn    MENTOR   subdomains
+ * </pre>
+ * where AUTO is the EmailValidatorImp rule (student when the address has at least 4 digits, guest otherwise)
+ * and any other role is a UserRole.TYPE given to everyone of that domain.
+ * Reloading builds a new table and swaps it in, so checks in progress are never blocked or see half a list.
+ * */
+public class DomainAllowListEmailValidator implements EmailValidator {
+    private static final String AUTO_ROLE = "AUTO";
+    private static final String SUBDOMAINS = "subdomains";
+
+    private static final Result NOT_ALLOWED = new Result(null, false);
+
+    public static class Rule {
+        public final String domain;
+        // null means AUTO
+        public final UserRole.TYPE role;
+        public final boolean includeSubdomains;
+        private final Result result;
+
+        public Rule(String domain, UserRole.TYPE role, boolean includeSubdomains) {
+            this.domain = domain.toLowerCase(Locale.ROOT);
+            this.role = role;
+            this.includeSubdomains = includeSubdomains;
+            this.result = role == null ? null : new Result(UserRole.of(role), true);
+        }
+
+        Result check(String email, int domainStart) {
+            return result != null ? result : EmailValidatorImp.roleByDigits(email, domainStart);
+        }
+    }
+
+    private final Path file;
+    private volatile Map<String, Rule> rules;
+    private volatile FileTime loadedModifiedTime;
+
+    public DomainAllowListEmailValidator(Path file) throws IOException {
+        this.file = file;
+        reload();
+    }
+
+    public DomainAllowListEmailValidator(Collection<Rule> rules) {
+        this.file = null;
+        this.rules = index(rules);
+    }
+
+    @Override
+    public Result check(String email) {
+        int domainStart = email.indexOf('@') + 1;
+        String domain = email.substring(domainStart).toLowerCase(Locale.ROOT);
+        Map<String, Rule> current = rules;
+
+        Rule rule = current.get(domain);
+        if (rule != null) {
+            return rule.check(email, domainStart);
+        }
+
+        // a.b.partner.edu.vn -> b.partner.edu.vn -> partner.edu.vn -> ...
+        int dot = domain.indexOf('.');
+        while (dot >= 0) {
+            rule = current.get(domain.substring(dot + 1));
+            if (rule != null && rule.includeSubdomains) {
+                return rule.check(email, domainStart);
+            }
+            dot = domain.indexOf('.', dot + 1);
+        }
+        return NOT_ALLOWED;
+    }
+
+    /**
+     * Read the file again and swap in the new list. The current list is kept if the file cannot be read or parsed.
+     * */
+    public void reload() throws IOException {
+        requireFile();
+        FileTime modifiedTime = Files.getLastModifiedTime(file);
+        Map<String, Rule> loaded;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            loaded = parse(reader);
+        }
+        rules = loaded;
+        loadedModifiedTime = modifiedTime;
+    }
+
+    public boolean reloadIfModified() throws IOException {
+        requireFile();
+        if (Files.getLastModifiedTime(file).equals(loadedModifiedTime)) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    /**
+     * Check the file for changes every period. A broken file is ignored until it is fixed.
+     * */
+    public ScheduledFuture<?> watch(ScheduledExecutorService scheduler, long period, TimeUnit unit) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reloadIfModified();
+            } catch (IOException | IllegalArgumentException ex) {
+                // keep serving the last good list
+            }
+        }, period, period, unit);
+    }
+
+    private void requireFile() {
+        if (file == null) {
+            throw new IllegalStateException("Allow-list was not loaded from a file");
+        }
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    private static Map<String, Rule> parse(BufferedReader reader) throws IOException {
+        Map<String, Rule> loaded = new HashMap<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            String[] columns = line.split("\\s+");
+            if (columns.length > 3 || (columns.length == 3 && !columns[2].equalsIgnoreCase(SUBDOMAINS))) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": expected <domain> [role] [" + SUBDOMAINS + "]");
+            }
+            UserRole.TYPE role = null;
+            if (columns.length > 1 && !columns[1].equalsIgnoreCase(AUTO_ROLE)) {
+                try {
+                    role = UserRole.TYPE.valueOf(columns[1].toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": unknown role " + columns[1]);
+                }
+            }
+            Rule rule = new Rule(columns[0], role, columns.length == 3);
+            loaded.put(rule.domain, rule);
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    private static Map<String, Rule> index(Collection<Rule> rules) {
+        Map<String, Rule> indexed = new HashMap<>();
+        for (Rule rule : rules) {
+            indexed.put(rule.domain, rule);
+        }
+        return Collections.unmodifiableMap(indexed);
+    }
+}
@@ -5,8 +5,8 @@ import domain.entities.UserRole;
 
 public interface EmailValidator {
       class Result {
-        public UserRole role;
-          public boolean isValid;
+        public final UserRole role;
+        public final boolean isValid;
 
         public Result( UserRole role, boolean isValid) {
             this.role = role;
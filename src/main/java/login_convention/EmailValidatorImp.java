@@ -3,30 +3,52 @@ package login_convention;
 import domain.entities.UserRole;
 
 public class EmailValidatorImp implements EmailValidator {
+    private static final String FPT_DOMAIN = "fpt.edu.vn";
+    private static final String FE_DOMAIN = "fe.edu.vn";
+    private static final int STUDENT_MIN_DIGITS = 4;
+
+    // Results never change, so every check shares these instead of allocating new ones
+    private static final Result NOT_ALLOWED = new Result(null, false);
+    private static final Result STUDENT = new Result(UserRole.of(UserRole.TYPE.STUDENT), true);
+    private static final Result GUEST = new Result(UserRole.of(UserRole.TYPE.GUEST), true);
 
     public EmailValidatorImp () {
 
     }
 
     public Result check (String email) {
-        String domain = email.substring(email.indexOf("@")+1);
-
-        if (!(domain.equals("fpt.edu.vn") || domain.equals("fe.edu.vn"))) {
-            return new Result(null, false);
+        int domainStart = email.indexOf('@') + 1;
+        if (!(isDomain(email, domainStart, FPT_DOMAIN) || isDomain(email, domainStart, FE_DOMAIN))) {
+            return NOT_ALLOWED;
         }
 
-        int numOfDigit = email.replaceAll("\\D+", "").length();
+        return roleByDigits(email, domainStart);
+    }
+
+    /**
+     * Student when the local part of an allowed email has at least STUDENT_MIN_DIGITS digits, guest otherwise
+     * */
+    static Result roleByDigits (String email, int domainStart) {
+        // Only the local part is scanned, without regex or substrings
+        int numOfDigit = 0;
+        for (int i = 0; i < domainStart && numOfDigit < STUDENT_MIN_DIGITS; i++) {
+            char c = email.charAt(i);
+            if (c >= '0' && c <= '9') {
+                numOfDigit++;
+            }
+        }
 
-        UserRole userRole;
         // Student
-        if (numOfDigit >= 4) {
-            userRole = new UserRole(UserRole.TYPE.STUDENT);
-            // Staff or Lecturer
-        } else {
-            userRole = new UserRole(UserRole.TYPE.GUEST);
+        if (numOfDigit >= STUDENT_MIN_DIGITS) {
+            return STUDENT;
         }
+        // Staff or Lecturer
+        return GUEST;
+    }
 
-        return new Result(userRole, true);
+    private static boolean isDomain(String email, int domainStart, String domain) {
+        return email.length() - domainStart == domain.length()
+                && email.regionMatches(domainStart, domain, 0, domain.length());
     }
 
 }
@@ -0,0 +1,275 @@
+package user_import;
+
+import domain.entities.UserStatus;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.UserRepository;
+import domain.ports.testonly.testonly.UserRepository.NewUser;
+import login_convention.EmailValidator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Add the users of a file, e.g. a new intake of students, with the same rules as a first login:
+ * only emails the EmailValidator allows are added, with the role it gives, and existing users are left alone.
+ *
+ * The file is streamed through three stages joined by bounded queues:
+ * the calling thread reads batches of lines, validator threads check the emails of a batch and look them up
+ * with one getUsersByEmails, and one writer thread adds what is left with one addUsers.
+ * A full queue blocks the stage before it, so at most a few batches per validator are in memory whatever the file size.
+ *
+ * Lines are email[,fullName], the full name being the rest of the line. Blank lines and lines starting with # are skipped.
+ * A batch whose repository call fails is counted as failed and the import goes on.
+ * */
+public class ImportUsersUseCase {
+    public static class Report {
+        public final long readCount;
+        public final long notAllowedCount;
+        // already in the repository, or earlier in the file
+        public final long existingCount;
+        public final long addedCount;
+        public final long failedCount;
+        public final long elapsedNanos;
+
+        public Report(long readCount, long notAllowedCount, long existingCount, long addedCount, long failedCount, long elapsedNanos) {
+            this.readCount = readCount;
+            this.notAllowedCount = notAllowedCount;
+            this.existingCount = existingCount;
+            this.addedCount = addedCount;
+            this.failedCount = failedCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Lines done per second
+         * */
+        public double getThroughput() {
+            long done = notAllowedCount + existingCount + addedCount + failedCount;
+            return elapsedNanos == 0 ? 0 : done * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("read %d, added %d, existing %d, not allowed %d, failed %d in %d ms, %.0f users/s",
+                    readCount, addedCount, existingCount, notAllowedCount, failedCount,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput());
+        }
+    }
+
+    // Lines of the file going to the validators, then the users left to add going to the writer
+    private static class Batch {
+        final List<String> lines;
+        final List<NewUser> newUsers = new ArrayList<>();
+        int notAllowedCount;
+        int existingCount;
+        int failedCount;
+
+        Batch(List<String> lines) {
+            this.lines = lines;
+        }
+    }
+
+    private static final Batch END = new Batch(null);
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final UserRepository userRepository;
+    private final EmailValidator emailValidator;
+    private final int validators;
+    private final int batchSize;
+
+    public ImportUsersUseCase(UserRepository userRepository, EmailValidator emailValidator) {
+        this(userRepository, emailValidator, Runtime.getRuntime().availableProcessors(), 500);
+    }
+
+    public ImportUsersUseCase(UserRepository userRepository, EmailValidator emailValidator, int validators, int batchSize) {
+        if (validators <= 0) {
+            throw new IllegalArgumentException("validators must be positive");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.userRepository = userRepository;
+        this.emailValidator = emailValidator;
+        this.validators = validators;
+        this.batchSize = batchSize;
+    }
+
+    public Report executes(Path file, Consumer<Report> progressListener) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return executes(in, progressListener);
+        }
+    }
+
+    /**
+     * @param progressListener called on the writer thread with the totals so far after every batch
+     * */
+    public Report executes(BufferedReader in, Consumer<Report> progressListener) throws IOException {
+        long start = System.nanoTime();
+        BlockingQueue<Batch> toValidate = new ArrayBlockingQueue<>(2 * validators);
+        BlockingQueue<Batch> toWrite = new ArrayBlockingQueue<>(2 * validators);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService stages = Executors.newFixedThreadPool(validators + 1, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<Report> writerFuture = stages.submit(() -> write(toWrite, start, progressListener));
+            List<Future<?>> stageFutures = new ArrayList<>();
+            stageFutures.add(writerFuture);
+            for (int i = 0; i < validators; i++) {
+                stageFutures.add(stages.submit(() -> validate(toValidate, toWrite, writerFuture)));
+            }
+
+            long readCount = read(in, toValidate, stageFutures);
+            for (int i = 0; i < validators; i++) {
+                put(toValidate, END, stageFutures);
+            }
+            for (Future<?> validatorFuture : stageFutures.subList(1, stageFutures.size())) {
+                validatorFuture.get();
+            }
+            put(toWrite, END, Collections.singletonList(writerFuture));
+
+            Report written = writerFuture.get();
+            return new Report(readCount, written.notAllowedCount, written.existingCount, written.addedCount,
+                    written.failedCount, System.nanoTime() - start);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while importing users");
+        } catch (ExecutionException ex) {
+            // a validator that saw the writer fail rethrows the writer's ExecutionException
+            Throwable cause = ex.getCause();
+            while (cause instanceof ExecutionException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            stages.shutdownNow();
+        }
+    }
+
+    private long read(BufferedReader in, BlockingQueue<Batch> toValidate, List<Future<?>> stageFutures) throws IOException, InterruptedException, ExecutionException {
+        long readCount = 0;
+        List<String> lines = new ArrayList<>(batchSize);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            readCount++;
+            lines.add(line);
+            if (lines.size() == batchSize) {
+                put(toValidate, new Batch(lines), stageFutures);
+                lines = new ArrayList<>(batchSize);
+            }
+        }
+        if (!lines.isEmpty()) {
+            put(toValidate, new Batch(lines), stageFutures);
+        }
+        return readCount;
+    }
+
+    // Blocks while the queue is full, but gives up when a later stage failed so a failed import does not hang.
+    // Stages only end normally after taking END, which is what is left to put then.
+    private static void put(BlockingQueue<Batch> queue, Batch batch, List<? extends Future<?>> consumers) throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            for (Future<?> consumer : consumers) {
+                if (consumer.isDone()) {
+                    // throws the failure of the stage
+                    consumer.get();
+                }
+            }
+        }
+    }
+
+    private Void validate(BlockingQueue<Batch> toValidate, BlockingQueue<Batch> toWrite, Future<Report> writerFuture) throws InterruptedException, ExecutionException {
+        Batch batch;
+        while ((batch = toValidate.take()) != END) {
+            // keyed by the email in lower case, so the same user twice in a batch is added once
+            Map<String, NewUser> newUsers = new LinkedHashMap<>();
+            for (String line : batch.lines) {
+                int comma = line.indexOf(',');
+                String email = (comma < 0 ? line : line.substring(0, comma)).trim();
+                String fullName = comma < 0 ? null : line.substring(comma + 1).trim();
+                EmailValidator.Result validatorResult = email.isEmpty() ? null : emailValidator.check(email);
+                if (validatorResult == null || !validatorResult.isValid) {
+                    batch.notAllowedCount++;
+                } else if (newUsers.putIfAbsent(email.toLowerCase(Locale.ROOT),
+                        new NewUser(email, fullName, null, validatorResult.role, UserStatus.of(UserStatus.STATUS.ACTIVE))) != null) {
+                    batch.existingCount++;
+                }
+            }
+            if (!newUsers.isEmpty()) {
+                try {
+                    List<String> emails = new ArrayList<>(newUsers.size());
+                    for (NewUser newUser : newUsers.values()) {
+                        emails.add(newUser.email);
+                    }
+                    Map<String, ?> existing = userRepository.getUsersByEmails(emails);
+                    for (NewUser newUser : newUsers.values()) {
+                        if (existing.containsKey(newUser.email)) {
+                            batch.existingCount++;
+                        } else {
+                            batch.newUsers.add(newUser);
+                        }
+                    }
+                } catch (ConnectionException ex) {
+                    batch.failedCount += newUsers.size();
+                }
+            }
+            put(toWrite, batch, Collections.singletonList(writerFuture));
+        }
+        return null;
+    }
+
+    private Report write(BlockingQueue<Batch> toWrite, long start, Consumer<Report> progressListener) throws InterruptedException {
+        long readCount = 0;
+        long notAllowedCount = 0;
+        long existingCount = 0;
+        long addedCount = 0;
+        long failedCount = 0;
+        Batch batch;
+        while ((batch = toWrite.take()) != END) {
+            if (!batch.newUsers.isEmpty()) {
+                try {
+                    int added = userRepository.addUsers(batch.newUsers).size();
+                    addedCount += added;
+                    // added by someone else since the lookup, or earlier in the file
+                    existingCount += batch.newUsers.size() - added;
+                } catch (ConnectionException ex) {
+                    failedCount += batch.newUsers.size();
+                }
+            }
+            readCount += batch.lines.size();
+            notAllowedCount += batch.notAllowedCount;
+            existingCount += batch.existingCount;
+            failedCount += batch.failedCount;
+            if (progressListener != null) {
+                progressListener.accept(new Report(readCount, notAllowedCount, existingCount, addedCount, failedCount, System.nanoTime() - start));
+            }
+        }
+        return new Report(readCount, notAllowedCount, existingCount, addedCount, failedCount, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,119 @@
+package adapters;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class AdaptiveConcurrencyLimiterTest {
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private AdaptiveConcurrencyLimiter SUT;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        SUT = new AdaptiveConcurrencyLimiter(10, 2, 20, 100, TimeUnit.MILLISECONDS);
+    }
+
+    private void acquire (int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(SUT.tryAcquire());
+        }
+    }
+
+    @Test
+    public void tryAcquire_limitReached_rejected () {
+        acquire(10);
+        assertFalse(SUT.tryAcquire());
+        assertEquals(SUT.getRejectedCount(), 1);
+        assertEquals(SUT.getInFlight(), 10);
+    }
+
+    @Test
+    public void onSuccess_slotFreed_acquireAgain () {
+        acquire(10);
+        SUT.onSuccess(FAST_NANOS);
+        assertTrue(SUT.tryAcquire());
+    }
+
+    @Test
+    public void onSuccess_fastCallsAtLimit_limitGrowsAdditively () {
+        for (int round = 0; round < 10; round++) {
+            acquire(10);
+            for (int i = 0; i < 10; i++) {
+                SUT.onSuccess(FAST_NANOS);
+            }
+        }
+        int limit = SUT.getLimit();
+        assertTrue(limit > 10 && limit <= 20, "limit " + limit);
+    }
+
+    @Test
+    public void onSuccess_fastCallsWhileIdle_limitUnchanged () {
+        for (int i = 0; i < 100; i++) {
+            acquire(1);
+            SUT.onSuccess(FAST_NANOS);
+        }
+        assertEquals(SUT.getLimit(), 10);
+    }
+
+    @Test
+    public void onSuccess_slowCall_limitCutMultiplicatively () {
+        acquire(1);
+        SUT.onSuccess(SLOW_NANOS);
+        assertEquals(SUT.getLimit(), 9);
+    }
+
+    @Test
+    public void onSuccess_burstOfSlowCallsInFlightTogether_limitCutOnce () {
+        acquire(10);
+        for (int i = 0; i < 10; i++) {
+            SUT.onSuccess(SLOW_NANOS);
+        }
+        assertEquals(SUT.getLimit(), 9);
+    }
+
+    @Test
+    public void onSuccess_slowCallsAfterALimitOfCompletions_limitCutAgain () {
+        acquire(10);
+        for (int i = 0; i < 10; i++) {
+            SUT.onSuccess(SLOW_NANOS);
+        }
+        acquire(1);
+        SUT.onSuccess(SLOW_NANOS);
+        assertEquals(SUT.getLimit(), 8);
+    }
+
+    @Test
+    public void onSuccess_batchWithinTargetTimesSize_limitKept () {
+        acquire(1);
+        SUT.onSuccess(SLOW_NANOS, 10);
+        assertEquals(SUT.getLimit(), 10);
+        acquire(1);
+        SUT.onSuccess(SLOW_NANOS, 2);
+        assertEquals(SUT.getLimit(), 9);
+    }
+
+    @Test
+    public void onDropped_manyFailures_limitStopsAtMinimum () {
+        for (int i = 0; i < 200; i++) {
+            acquire(1);
+            SUT.onDropped();
+        }
+        assertEquals(SUT.getLimit(), 2);
+        assertEquals(SUT.getInFlight(), 0);
+    }
+
+    @Test
+    public void onIgnore_limitUnchanged () {
+        acquire(1);
+        SUT.onIgnore();
+        assertEquals(SUT.getLimit(), 10);
+        assertEquals(SUT.getInFlight(), 0);
+    }
+}
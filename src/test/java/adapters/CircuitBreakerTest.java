@@ -0,0 +1,130 @@
+package adapters;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+public class CircuitBreakerTest {
+    private static final long OPEN_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private CircuitBreaker SUT;
+    private long now;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        now = 0;
+        SUT = new CircuitBreaker(3, OPEN_NANOS, TimeUnit.NANOSECONDS, () -> now);
+    }
+
+    private void fail (int times) {
+        for (int i = 0; i < times; i++) {
+            CircuitBreaker.Permit permit = SUT.tryAcquire();
+            assertNotNull(permit);
+            SUT.onFailure(permit);
+        }
+    }
+
+    @Test
+    public void onFailure_belowThreshold_staysClosed () {
+        fail(2);
+        assertEquals(SUT.getState(), CircuitBreaker.State.CLOSED);
+        assertNotNull(SUT.tryAcquire());
+    }
+
+    @Test
+    public void onSuccess_betweenFailures_resetsCount () {
+        fail(2);
+        SUT.onSuccess(SUT.tryAcquire());
+        fail(2);
+        assertEquals(SUT.getState(), CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void onFailure_thresholdReached_opensAndRejects () {
+        fail(3);
+        assertEquals(SUT.getState(), CircuitBreaker.State.OPEN);
+        assertNull(SUT.tryAcquire());
+        assertEquals(SUT.getRejectedCount(), 1);
+    }
+
+    @Test
+    public void tryAcquire_afterOpenDuration_singleTrialAllowed () {
+        fail(3);
+        now += OPEN_NANOS;
+        assertNotNull(SUT.tryAcquire());
+        assertEquals(SUT.getState(), CircuitBreaker.State.HALF_OPEN);
+        assertNull(SUT.tryAcquire());
+    }
+
+    @Test
+    public void onSuccess_trialCall_closes () {
+        fail(3);
+        now += OPEN_NANOS;
+        SUT.onSuccess(SUT.tryAcquire());
+        assertEquals(SUT.getState(), CircuitBreaker.State.CLOSED);
+        assertNotNull(SUT.tryAcquire());
+    }
+
+    @Test
+    public void onFailure_trialCall_opensAgain () {
+        fail(3);
+        now += OPEN_NANOS;
+        SUT.onFailure(SUT.tryAcquire());
+        assertEquals(SUT.getState(), CircuitBreaker.State.OPEN);
+        now += OPEN_NANOS - 1;
+        assertNull(SUT.tryAcquire());
+        now += 1;
+        assertNotNull(SUT.tryAcquire());
+    }
+
+    @Test
+    public void onSuccess_callFromBeforeTheCircuitOpened_ignored () {
+        CircuitBreaker.Permit slow = SUT.tryAcquire();
+        fail(3);
+        SUT.onSuccess(slow);
+        assertEquals(SUT.getState(), CircuitBreaker.State.OPEN);
+
+        now += OPEN_NANOS;
+        CircuitBreaker.Permit trial = SUT.tryAcquire();
+        SUT.onSuccess(slow);
+        assertEquals(SUT.getState(), CircuitBreaker.State.HALF_OPEN);
+        SUT.onSuccess(trial);
+        assertEquals(SUT.getState(), CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void onFailure_callFromBeforeTheTrial_trialStillTheOnlyOne () {
+        CircuitBreaker.Permit slow = SUT.tryAcquire();
+        fail(3);
+        now += OPEN_NANOS;
+        assertNotNull(SUT.tryAcquire());
+
+        SUT.onFailure(slow);
+
+        assertEquals(SUT.getState(), CircuitBreaker.State.HALF_OPEN);
+        assertNull(SUT.tryAcquire());
+    }
+
+    @Test
+    public void onIgnored_manyCalls_staysClosed () {
+        for (int i = 0; i < 10; i++) {
+            SUT.onIgnored(SUT.tryAcquire());
+        }
+        fail(2);
+        assertEquals(SUT.getState(), CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void onIgnored_trialCall_nextTrialAllowed () {
+        fail(3);
+        now += OPEN_NANOS;
+        SUT.onIgnored(SUT.tryAcquire());
+        assertEquals(SUT.getState(), CircuitBreaker.State.HALF_OPEN);
+        assertNotNull(SUT.tryAcquire());
+    }
+}
@@ -0,0 +1,124 @@
+package adapters.google_api;
+
+import adapters.AdaptiveConcurrencyLimiter;
+import domain.ports.errors.CircuitOpenException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.errors.OverloadedException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class BulkheadGoogleGetUserEndpointTest {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final GooglePojo GOOGLE_POJO = new GooglePojo("ID", "EMAIL", true, "NAME", "GIVEN_NAME", "FAMILY_NAME", "", "");
+    private static final long LATENCY_TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private BulkheadGoogleGetUserEndpoint SUT;
+    private GoogleGetUserEndpointTdImp googleGetUserEndpointTd;
+    private AdaptiveConcurrencyLimiter limiter;
+    private long now;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        now = 0;
+        googleGetUserEndpointTd = new GoogleGetUserEndpointTdImp();
+        limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, LATENCY_TARGET_NANOS, TimeUnit.NANOSECONDS);
+        SUT = new BulkheadGoogleGetUserEndpoint(googleGetUserEndpointTd, limiter, () -> now);
+    }
+
+    private class GoogleGetUserEndpointTdImp implements GoogleGetUserEndpoint {
+        public int callCount;
+        public long latencyNanos;
+        public boolean isConnectionError;
+        public boolean isRuntimeError;
+        public ConnectionException refusal;
+        public Runnable duringCall;
+
+        @Override
+        public Result getUser(String accessToken) throws ConnectionException {
+            callCount++;
+            now += latencyNanos;
+            if (duringCall != null) {
+                Runnable nested = duringCall;
+                duringCall = null;
+                nested.run();
+            }
+            if (isConnectionError) {
+                throw new ConnectionException("");
+            }
+            if (refusal != null) {
+                throw refusal;
+            }
+            if (isRuntimeError) {
+                throw new IllegalStateException();
+            }
+            return new Result.Success(GOOGLE_POJO);
+        }
+    }
+
+    @Test
+    public void getUser_withinLimit_delegatedAndSlotReleased () throws ConnectionException {
+        assertTrue(SUT.getUser(ACCESS_TOKEN) instanceof GoogleGetUserEndpoint.Result.Success);
+        assertEquals(limiter.getInFlight(), 0);
+    }
+
+    @Test
+    public void getUser_limitReached_overloadedWithoutCallingGoogle () throws ConnectionException {
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        expectThrows(OverloadedException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        assertEquals(googleGetUserEndpointTd.callCount, 0);
+    }
+
+    @Test
+    public void getUser_concurrentCallsOverLimit_laterOneRefused () throws ConnectionException {
+        limiter.tryAcquire();
+        googleGetUserEndpointTd.duringCall = () ->
+                expectThrows(OverloadedException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        SUT.getUser(ACCESS_TOKEN);
+        assertEquals(googleGetUserEndpointTd.callCount, 1);
+        assertEquals(limiter.getRejectedCount(), 1);
+    }
+
+    @Test
+    public void getUser_slowAnswer_limitReduced () throws ConnectionException {
+        googleGetUserEndpointTd.latencyNanos = LATENCY_TARGET_NANOS * 2;
+        SUT.getUser(ACCESS_TOKEN);
+        SUT.getUser(ACCESS_TOKEN);
+        assertEquals(limiter.getLimit(), 1);
+    }
+
+    @Test
+    public void getUser_connectionError_limitReducedAndRethrown () {
+        googleGetUserEndpointTd.isConnectionError = true;
+        expectThrows(ConnectionException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        expectThrows(ConnectionException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        assertEquals(limiter.getLimit(), 1);
+        assertEquals(limiter.getInFlight(), 0);
+    }
+
+    @Test
+    public void getUser_refusedDownstream_slotReleasedLimitKept () {
+        googleGetUserEndpointTd.refusal = new OverloadedException("");
+        expectThrows(OverloadedException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        googleGetUserEndpointTd.refusal = new CircuitOpenException("");
+        expectThrows(CircuitOpenException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        assertEquals(limiter.getInFlight(), 0);
+        assertEquals(limiter.getLimit(), 2);
+    }
+
+    @Test
+    public void getUser_runtimeError_slotReleasedLimitKept () {
+        googleGetUserEndpointTd.isRuntimeError = true;
+        expectThrows(IllegalStateException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        assertEquals(limiter.getInFlight(), 0);
+        assertEquals(limiter.getLimit(), 2);
+    }
+}
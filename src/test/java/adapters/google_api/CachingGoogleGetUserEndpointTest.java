@@ -0,0 +1,110 @@
+package adapters.google_api;
+
+import adapters.cache.ExpiringLruCache;
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class CachingGoogleGetUserEndpointTest {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final String OTHER_ACCESS_TOKEN = "OTHER_ACCESS_TOKEN";
+    private static final GooglePojo GOOGLE_POJO = new GooglePojo("ID", "EMAIL", true, "NAME", "GIVEN_NAME", "FAMILY_NAME", "", "");
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private CachingGoogleGetUserEndpoint SUT;
+    private GoogleGetUserEndpointTdImp googleGetUserEndpointTd;
+    private long now;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        now = 0;
+        googleGetUserEndpointTd = new GoogleGetUserEndpointTdImp();
+        ExpiringLruCache<String, GoogleGetUserEndpoint.Result.Success> cache =
+                new ExpiringLruCache<>(1, TTL_NANOS, TimeUnit.NANOSECONDS, () -> now);
+        SUT = new CachingGoogleGetUserEndpoint(googleGetUserEndpointTd, cache);
+    }
+
+    private static class GoogleGetUserEndpointTdImp implements GoogleGetUserEndpoint {
+        public int callCount;
+        public boolean isGeneralError;
+        public boolean isAuthError;
+        public boolean isConnectionError;
+
+        @Override
+        public Result getUser(String accessToken) throws ConnectionException {
+            callCount++;
+            if (isGeneralError) {
+                return new Result.GeneralError();
+            }
+            if (isAuthError) {
+                return new Result.AuthError();
+            }
+            if (isConnectionError) {
+                throw new ConnectionException("");
+            }
+            return new Result.Success(GOOGLE_POJO);
+        }
+    }
+
+    @Test
+    public void getUser_sameTokenTwice_endpointCalledOnce () throws ConnectionException {
+        GoogleGetUserEndpoint.Result first = SUT.getUser(ACCESS_TOKEN);
+        GoogleGetUserEndpoint.Result second = SUT.getUser(ACCESS_TOKEN);
+        assertEquals(googleGetUserEndpointTd.callCount, 1);
+        assertSame(second, first);
+        assertEquals(SUT.getHitCount(), 1);
+        assertEquals(SUT.getMissCount(), 1);
+    }
+
+    @Test
+    public void getUser_entryExpired_endpointCalledAgain () throws ConnectionException {
+        SUT.getUser(ACCESS_TOKEN);
+        now += TTL_NANOS;
+        SUT.getUser(ACCESS_TOKEN);
+        assertEquals(googleGetUserEndpointTd.callCount, 2);
+        assertEquals(SUT.getExpirationCount(), 1);
+    }
+
+    @Test
+    public void getUser_authError_notCached () throws ConnectionException {
+        googleGetUserEndpointTd.isAuthError = true;
+        SUT.getUser(ACCESS_TOKEN);
+        GoogleGetUserEndpoint.Result result = SUT.getUser(ACCESS_TOKEN);
+        assertTrue(result instanceof GoogleGetUserEndpoint.Result.AuthError);
+        assertEquals(googleGetUserEndpointTd.callCount, 2);
+        assertEquals(SUT.size(), 0);
+    }
+
+    @Test
+    public void getUser_generalError_notCached () throws ConnectionException {
+        googleGetUserEndpointTd.isGeneralError = true;
+        SUT.getUser(ACCESS_TOKEN);
+        SUT.getUser(ACCESS_TOKEN);
+        assertEquals(googleGetUserEndpointTd.callCount, 2);
+        assertEquals(SUT.size(), 0);
+    }
+
+    @Test(expectedExceptions = ConnectionException.class)
+    public void getUser_connectionException_propagated () throws ConnectionException {
+        googleGetUserEndpointTd.isConnectionError = true;
+        SUT.getUser(ACCESS_TOKEN);
+    }
+
+    @Test
+    public void getUser_cacheFull_leastRecentlyUsedEvicted () throws ConnectionException {
+        SUT.getUser(ACCESS_TOKEN);
+        SUT.getUser(OTHER_ACCESS_TOKEN);
+        SUT.getUser(ACCESS_TOKEN);
+        assertEquals(googleGetUserEndpointTd.callCount, 3);
+        assertEquals(SUT.getEvictionCount(), 2);
+        assertEquals(SUT.size(), 1);
+    }
+}
@@ -0,0 +1,268 @@
+package adapters.google_api;
+
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class IdTokenGoogleGetUserEndpointTest {
+    private static final String CLIENT_ID = "1234567890-abc.apps.googleusercontent.com";
+    private static final String EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final long NOW_SECONDS = 1_700_000_000L;
+    private static final KeyPair KEY_PAIR = generateKeyPair();
+    private static final KeyPair OTHER_KEY_PAIR = generateKeyPair();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private IdTokenGoogleGetUserEndpoint SUT;
+    private Path jwksFile;
+    private int fetchCount;
+    private long now;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () throws IOException {
+        now = 0;
+        fetchCount = 0;
+        jwksFile = Files.createTempFile("jwks", ".json");
+        writeJwks(jwk("key-1", KEY_PAIR));
+        JwksKeySet.Source fileSource = JwksKeySet.fromFile(jwksFile);
+        JwksKeySet keySet = new JwksKeySet(() -> {
+            fetchCount++;
+            return fileSource.fetch();
+        }, 60, 1, TimeUnit.MINUTES, () -> now);
+        SUT = new IdTokenGoogleGetUserEndpoint(keySet, CLIENT_ID, () -> NOW_SECONDS * 1000);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown () throws IOException {
+        Files.deleteIfExists(jwksFile);
+    }
+
+    private static KeyPair generateKeyPair () {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String jwk (String keyId, KeyPair keyPair) {
+        RSAPublicKey key = (RSAPublicKey) keyPair.getPublic();
+        return "{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"" + keyId + "\""
+                + ",\"n\":\"" + ENCODER.encodeToString(unsigned(key.getModulus().toByteArray())) + "\""
+                + ",\"e\":\"" + ENCODER.encodeToString(unsigned(key.getPublicExponent().toByteArray())) + "\"}";
+    }
+
+    private static byte[] unsigned (byte[] bytes) {
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+
+    private void writeJwks (String... jwks) throws IOException {
+        Files.write(jwksFile, ("{\"keys\":[" + String.join(",", jwks) + "]}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String claims (String iss, String aud, long exp) {
+        return "{\"iss\":\"" + iss + "\",\"aud\":" + aud + ",\"sub\":\"109876543210987654321\""
+                + ",\"email\":\"" + EMAIL + "\",\"email_verified\":true"
+                + ",\"name\":\"Nguy\\u1ec5n Minh Ho\\u00e0ng\",\"given_name\":\"Minh Ho\\u00e0ng\",\"family_name\":\"Nguy\\u1ec5n\""
+                + ",\"picture\":\"https://lh3.googleusercontent.com/a/photo.jpg\""
+                + ",\"iat\":" + (exp - 3600) + ",\"exp\":" + exp + "}";
+    }
+
+    private static String validClaims () {
+        return claims("https://accounts.google.com", "\"" + CLIENT_ID + "\"", NOW_SECONDS + 600);
+    }
+
+    private static String token (String alg, String keyId, String claims, KeyPair keyPair) {
+        String header = "{\"alg\":\"" + alg + "\",\"kid\":\"" + keyId + "\",\"typ\":\"JWT\"}";
+        String signedPart = ENCODER.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + ENCODER.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        try {
+            Signature signer = Signature.getInstance("SHA256withRSA");
+            signer.initSign(keyPair.getPrivate());
+            signer.update(signedPart.getBytes(StandardCharsets.US_ASCII));
+            return signedPart + "." + ENCODER.encodeToString(signer.sign());
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Test
+    public void getUser_validToken_googlePojoFromClaims () throws ConnectionException {
+        GoogleGetUserEndpoint.Result result = SUT.getUser(token("RS256", "key-1", validClaims(), KEY_PAIR));
+
+        assertTrue(result instanceof GoogleGetUserEndpoint.Result.Success);
+        GooglePojo pojo = ((GoogleGetUserEndpoint.Result.Success) result).googlePojo;
+        assertEquals(pojo.getId(), "109876543210987654321");
+        assertEquals(pojo.getEmail(), EMAIL);
+        assertTrue(pojo.isVerified_email());
+        assertEquals(pojo.getName(), "Nguy\u1ec5n Minh Ho\u00e0ng");
+        assertEquals(pojo.getGiven_name(), "Minh Ho\u00e0ng");
+        assertEquals(pojo.getFamily_name(), "Nguy\u1ec5n");
+        assertEquals(pojo.getPicture(), "https://lh3.googleusercontent.com/a/photo.jpg");
+    }
+
+    @Test
+    public void getUser_manyTokens_keysFetchedOnce () throws ConnectionException {
+        for (int i = 0; i < 5; i++) {
+            SUT.getUser(token("RS256", "key-1", validClaims(), KEY_PAIR));
+        }
+        assertEquals(fetchCount, 1);
+    }
+
+    @Test
+    public void getUser_audienceArrayWithClientId_success () throws ConnectionException {
+        String claims = claims("accounts.google.com", "[\"other\",\"" + CLIENT_ID + "\"]", NOW_SECONDS + 600);
+        assertTrue(SUT.getUser(token("RS256", "key-1", claims, KEY_PAIR)) instanceof GoogleGetUserEndpoint.Result.Success);
+    }
+
+    @Test
+    public void getUser_expiredToken_authError () throws ConnectionException {
+        String claims = claims("https://accounts.google.com", "\"" + CLIENT_ID + "\"", NOW_SECONDS - 120);
+        assertTrue(SUT.getUser(token("RS256", "key-1", claims, KEY_PAIR)) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    @Test
+    public void getUser_otherAudience_authError () throws ConnectionException {
+        String claims = claims("https://accounts.google.com", "\"someone-else\"", NOW_SECONDS + 600);
+        assertTrue(SUT.getUser(token("RS256", "key-1", claims, KEY_PAIR)) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    @Test
+    public void getUser_otherIssuer_authError () throws ConnectionException {
+        String claims = claims("https://evil.example.com", "\"" + CLIENT_ID + "\"", NOW_SECONDS + 600);
+        assertTrue(SUT.getUser(token("RS256", "key-1", claims, KEY_PAIR)) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    @Test
+    public void getUser_signedWithOtherKey_authError () throws ConnectionException {
+        assertTrue(SUT.getUser(token("RS256", "key-1", validClaims(), OTHER_KEY_PAIR)) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    @Test
+    public void getUser_tamperedClaims_authError () throws ConnectionException {
+        String token = token("RS256", "key-1", validClaims(), KEY_PAIR);
+        String[] parts = token.split("\\.");
+        String forged = ENCODER.encodeToString(validClaims().replace(EMAIL, "admin@fpt.edu.vn").getBytes(StandardCharsets.UTF_8));
+        assertTrue(SUT.getUser(parts[0] + "." + forged + "." + parts[2]) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    @Test
+    public void getUser_algNone_authError () throws ConnectionException {
+        String token = token("none", "key-1", validClaims(), KEY_PAIR);
+        assertTrue(SUT.getUser(token.substring(0, token.lastIndexOf('.') + 1)) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    private static String nested (int depth) {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            json.append('[');
+        }
+        for (int i = 0; i < depth; i++) {
+            json.append(']');
+        }
+        return json.toString();
+    }
+
+    @Test
+    public void getUser_deeplyNestedHeader_authError () throws ConnectionException {
+        String token = token("RS256", "key-1", validClaims(), KEY_PAIR);
+        String header = ENCODER.encodeToString(("{\"alg\":\"RS256\",\"x\":" + nested(200) + "}").getBytes(StandardCharsets.UTF_8));
+        assertTrue(SUT.getUser(header + token.substring(token.indexOf('.'))) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    @Test
+    public void getUser_oversizedHeader_authErrorWithoutParsing () throws ConnectionException {
+        String token = token("RS256", "key-1", validClaims(), KEY_PAIR);
+        String header = ENCODER.encodeToString(nested(20_000).getBytes(StandardCharsets.UTF_8));
+        assertTrue(SUT.getUser(header + token.substring(token.indexOf('.'))) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    @Test
+    public void getUser_deeplyNestedUnsignedClaims_authError () throws ConnectionException {
+        String token = token("RS256", "key-1", validClaims(), KEY_PAIR);
+        String[] parts = token.split("\\.");
+        String claims = ENCODER.encodeToString(nested(20_000).getBytes(StandardCharsets.UTF_8));
+        assertTrue(SUT.getUser(parts[0] + "." + claims + "." + parts[2]) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    @Test
+    public void getUser_deeplyNestedSignedClaims_authError () throws ConnectionException {
+        String claims = "{\"x\":" + nested(20_000) + "}";
+        assertTrue(SUT.getUser(token("RS256", "key-1", claims, KEY_PAIR)) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    @Test
+    public void getUser_malformedToken_authError () throws ConnectionException {
+        assertTrue(SUT.getUser("not-a-token") instanceof GoogleGetUserEndpoint.Result.AuthError);
+        assertTrue(SUT.getUser("a.b.c") instanceof GoogleGetUserEndpoint.Result.AuthError);
+        assertTrue(SUT.getUser("ya29.a0AfH6SMB") instanceof GoogleGetUserEndpoint.Result.AuthError);
+        assertTrue(SUT.getUser(null) instanceof GoogleGetUserEndpoint.Result.AuthError);
+    }
+
+    @Test
+    public void getUser_rotatedKey_keysRefetched () throws ConnectionException, IOException {
+        SUT.getUser(token("RS256", "key-1", validClaims(), KEY_PAIR));
+        writeJwks(jwk("key-1", KEY_PAIR), jwk("key-2", OTHER_KEY_PAIR));
+        now += TimeUnit.MINUTES.toNanos(2);
+
+        GoogleGetUserEndpoint.Result result = SUT.getUser(token("RS256", "key-2", validClaims(), OTHER_KEY_PAIR));
+
+        assertTrue(result instanceof GoogleGetUserEndpoint.Result.Success);
+        assertEquals(fetchCount, 2);
+    }
+
+    @Test
+    public void getUser_unknownKeyIds_refetchThrottled () throws ConnectionException {
+        SUT.getUser(token("RS256", "key-1", validClaims(), KEY_PAIR));
+        SUT.getUser(token("RS256", "made-up-1", validClaims(), KEY_PAIR));
+        assertEquals(fetchCount, 1);
+
+        now += TimeUnit.MINUTES.toNanos(2);
+        SUT.getUser(token("RS256", "made-up-2", validClaims(), KEY_PAIR));
+        SUT.getUser(token("RS256", "made-up-3", validClaims(), KEY_PAIR));
+        assertEquals(fetchCount, 2);
+    }
+
+    @Test
+    public void getUser_keySourceMissing_connectionException () throws IOException {
+        Files.delete(jwksFile);
+        expectThrows(ConnectionException.class, () -> SUT.getUser(token("RS256", "key-1", validClaims(), KEY_PAIR)));
+    }
+
+    @Test
+    public void getUser_refreshFails_previousKeysKept () throws ConnectionException, IOException {
+        SUT.getUser(token("RS256", "key-1", validClaims(), KEY_PAIR));
+        Files.write(jwksFile, "{broken".getBytes(StandardCharsets.UTF_8));
+        now += TimeUnit.HOURS.toNanos(2);
+
+        GoogleGetUserEndpoint.Result result = SUT.getUser(token("RS256", "key-1", validClaims(), KEY_PAIR));
+
+        assertTrue(result instanceof GoogleGetUserEndpoint.Result.Success);
+        assertEquals(fetchCount, 2);
+    }
+}
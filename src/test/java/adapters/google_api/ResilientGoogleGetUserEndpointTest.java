@@ -0,0 +1,237 @@
+package adapters.google_api;
+
+import adapters.AdaptiveConcurrencyLimiter;
+import adapters.CircuitBreaker;
+import domain.ports.errors.CircuitOpenException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.errors.HostDoesNotExistException;
+import domain.ports.errors.OverloadedException;
+import domain.ports.errors.TimeOutException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class ResilientGoogleGetUserEndpointTest {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final GooglePojo GOOGLE_POJO = new GooglePojo("ID", "EMAIL", true, "NAME", "GIVEN_NAME", "FAMILY_NAME", "", "");
+    private static final long CALL_TIMEOUT_MILLIS = 200;
+    private static final long TOTAL_TIMEOUT_MILLIS = 1000;
+    private static final long BASE_BACKOFF_MILLIS = 10;
+    private static final long MAX_BACKOFF_MILLIS = 30;
+
+    private ResilientGoogleGetUserEndpoint SUT;
+    private GoogleGetUserEndpointTdImp googleGetUserEndpointTd;
+    private CircuitBreaker circuitBreaker;
+    private ExecutorService executor;
+    private List<Long> sleeps;
+    private List<Long> jitterBounds;
+    private long now;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        now = 0;
+        sleeps = new ArrayList<>();
+        jitterBounds = new ArrayList<>();
+        googleGetUserEndpointTd = new GoogleGetUserEndpointTdImp();
+        circuitBreaker = new CircuitBreaker(3, 1, TimeUnit.SECONDS, () -> now);
+        executor = Executors.newCachedThreadPool();
+        SUT = new ResilientGoogleGetUserEndpoint(googleGetUserEndpointTd, executor,
+                CALL_TIMEOUT_MILLIS, TOTAL_TIMEOUT_MILLIS, 3, BASE_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS, TimeUnit.MILLISECONDS, circuitBreaker,
+                nanos -> sleeps.add(nanos),
+                bound -> {
+                    jitterBounds.add(bound);
+                    return bound / 2;
+                });
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown () {
+        googleGetUserEndpointTd.release.countDown();
+        executor.shutdownNow();
+    }
+
+    private static class GoogleGetUserEndpointTdImp implements GoogleGetUserEndpoint {
+        public final AtomicInteger callCount = new AtomicInteger();
+        public final CountDownLatch release = new CountDownLatch(1);
+        public volatile int connectionErrorsLeft;
+        public volatile boolean isHostDoesNotExist;
+        public volatile boolean isAuthError;
+        public volatile boolean isHanging;
+
+        @Override
+        public Result getUser(String accessToken) throws ConnectionException {
+            callCount.incrementAndGet();
+            if (isHanging) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new ConnectionException("interrupted");
+                }
+            }
+            if (isHostDoesNotExist) {
+                throw new HostDoesNotExistException("www.googleapis.com");
+            }
+            if (connectionErrorsLeft > 0) {
+                connectionErrorsLeft--;
+                throw new ConnectionException("");
+            }
+            if (isAuthError) {
+                return new Result.AuthError();
+            }
+            return new Result.Success(GOOGLE_POJO);
+        }
+    }
+
+    @Test
+    public void getUser_success_calledOnceWithoutSleep () throws ConnectionException {
+        GoogleGetUserEndpoint.Result result = SUT.getUser(ACCESS_TOKEN);
+        assertTrue(result instanceof GoogleGetUserEndpoint.Result.Success);
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 1);
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void getUser_transientConnectionError_retriedWithJitteredBackoff () throws ConnectionException {
+        googleGetUserEndpointTd.connectionErrorsLeft = 2;
+        GoogleGetUserEndpoint.Result result = SUT.getUser(ACCESS_TOKEN);
+        assertTrue(result instanceof GoogleGetUserEndpoint.Result.Success);
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 3);
+        long base = TimeUnit.MILLISECONDS.toNanos(BASE_BACKOFF_MILLIS);
+        assertEquals(jitterBounds.size(), 2);
+        assertEquals((long) jitterBounds.get(0), base);
+        assertEquals((long) jitterBounds.get(1), base * 2);
+        assertEquals((long) sleeps.get(1), base);
+    }
+
+    @Test
+    public void getUser_backoff_cappedAtMaxBackoff () throws ConnectionException {
+        SUT = new ResilientGoogleGetUserEndpoint(googleGetUserEndpointTd, executor,
+                CALL_TIMEOUT_MILLIS, TOTAL_TIMEOUT_MILLIS, 5, BASE_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS, TimeUnit.MILLISECONDS,
+                new CircuitBreaker(10, 1, TimeUnit.SECONDS, () -> now),
+                nanos -> sleeps.add(nanos), bound -> {
+                    jitterBounds.add(bound);
+                    return bound;
+                });
+        googleGetUserEndpointTd.connectionErrorsLeft = 4;
+        SUT.getUser(ACCESS_TOKEN);
+        assertEquals((long) jitterBounds.get(3), TimeUnit.MILLISECONDS.toNanos(MAX_BACKOFF_MILLIS));
+    }
+
+    @Test
+    public void getUser_connectionErrorEveryAttempt_lastErrorThrown () {
+        googleGetUserEndpointTd.connectionErrorsLeft = 10;
+        expectThrows(ConnectionException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 3);
+        assertEquals(sleeps.size(), 2);
+    }
+
+    @Test
+    public void getUser_hostDoesNotExist_notRetried () {
+        googleGetUserEndpointTd.isHostDoesNotExist = true;
+        expectThrows(HostDoesNotExistException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 1);
+    }
+
+    @Test
+    public void getUser_authError_returnedWithoutRetry () throws ConnectionException {
+        googleGetUserEndpointTd.isAuthError = true;
+        GoogleGetUserEndpoint.Result result = SUT.getUser(ACCESS_TOKEN);
+        assertTrue(result instanceof GoogleGetUserEndpoint.Result.AuthError);
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 1);
+    }
+
+    @Test
+    public void getUser_endpointHangs_timeOutAfterEachAttempt () {
+        googleGetUserEndpointTd.isHanging = true;
+        long start = System.nanoTime();
+        expectThrows(TimeOutException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 3);
+        assertTrue(elapsedMillis < CALL_TIMEOUT_MILLIS * 3 + 1000, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void getUser_endpointHangs_timeOutAtTheOverallDeadline () {
+        SUT = new ResilientGoogleGetUserEndpoint(googleGetUserEndpointTd, executor,
+                CALL_TIMEOUT_MILLIS, CALL_TIMEOUT_MILLIS + CALL_TIMEOUT_MILLIS / 2, 5, 0, 0, TimeUnit.MILLISECONDS, circuitBreaker,
+                nanos -> sleeps.add(nanos), bound -> bound);
+        googleGetUserEndpointTd.isHanging = true;
+        long start = System.nanoTime();
+        expectThrows(TimeOutException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 2);
+        assertTrue(elapsedMillis < CALL_TIMEOUT_MILLIS * 2, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void getUser_backoffPastTheDeadline_lastErrorThrownWithoutSleeping () {
+        SUT = new ResilientGoogleGetUserEndpoint(googleGetUserEndpointTd, executor,
+                CALL_TIMEOUT_MILLIS, TOTAL_TIMEOUT_MILLIS, 3, TOTAL_TIMEOUT_MILLIS, TOTAL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, circuitBreaker,
+                nanos -> sleeps.add(nanos), bound -> bound);
+        googleGetUserEndpointTd.connectionErrorsLeft = 10;
+        expectThrows(ConnectionException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 1);
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void getUser_circuitOpen_failsFastWithoutCallingEndpoint () {
+        googleGetUserEndpointTd.connectionErrorsLeft = 10;
+        expectThrows(ConnectionException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.OPEN);
+
+        expectThrows(CircuitOpenException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 3);
+    }
+
+    @Test
+    public void getUser_circuitHalfOpenAndUpstreamBack_closes () throws ConnectionException {
+        googleGetUserEndpointTd.connectionErrorsLeft = 3;
+        expectThrows(ConnectionException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        now += TimeUnit.SECONDS.toNanos(1);
+
+        GoogleGetUserEndpoint.Result result = SUT.getUser(ACCESS_TOKEN);
+        assertTrue(result instanceof GoogleGetUserEndpoint.Result.Success);
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void getUser_innerBulkheadSaturated_circuitStaysClosed () {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 1, TimeUnit.SECONDS);
+        assertTrue(limiter.tryAcquire());
+        SUT = new ResilientGoogleGetUserEndpoint(new BulkheadGoogleGetUserEndpoint(googleGetUserEndpointTd, limiter), executor,
+                CALL_TIMEOUT_MILLIS, TOTAL_TIMEOUT_MILLIS, 3, BASE_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS, TimeUnit.MILLISECONDS, circuitBreaker,
+                nanos -> sleeps.add(nanos), bound -> bound);
+
+        for (int i = 0; i < 10; i++) {
+            expectThrows(OverloadedException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        }
+
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.CLOSED);
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 0);
+    }
+
+    @Test
+    public void getUser_executorRejects_overloadedAndCircuitStaysClosed () {
+        executor.shutdown();
+        for (int i = 0; i < 10; i++) {
+            expectThrows(OverloadedException.class, () -> SUT.getUser(ACCESS_TOKEN));
+        }
+        assertEquals(circuitBreaker.getState(), CircuitBreaker.State.CLOSED);
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 0);
+    }
+}
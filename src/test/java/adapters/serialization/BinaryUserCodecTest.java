@@ -0,0 +1,136 @@
+package adapters.serialization;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.google_api.GooglePojo;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class BinaryUserCodecTest {
+    private static final String EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final String FULL_NAME = "Nguy\u1ec5n Minh Ho\u00e0ng \ud83d\ude00";
+    private static final UserEntity USER = new UserEntity("140123", EMAIL, FULL_NAME,
+            new UserRole(UserRole.TYPE.STUDENT), new UserStatus(UserStatus.STATUS.ACTIVE));
+    private static final GooglePojo GOOGLE_POJO = new GooglePojo("109876543210987654321", EMAIL, true, FULL_NAME,
+            "Minh Ho\u00e0ng", "Nguy\u1ec5n", "", "https://lh3.googleusercontent.com/a/photo.jpg");
+
+    private BinaryUserCodec SUT;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        SUT = new BinaryUserCodec(Arrays.asList("fpt.edu.vn", "fe.edu.vn"));
+    }
+
+    private void assertSameUser (UserEntity actual, UserEntity expected) {
+        assertEquals(actual.getId(), expected.getId());
+        assertEquals(actual.getEmail(), expected.getEmail());
+        assertEquals(actual.getFullName(), expected.getFullName());
+        assertEquals(actual.getRole() == null ? null : actual.getRole().getType(), expected.getRole() == null ? null : expected.getRole().getType());
+        assertEquals(actual.getStatus() == null ? null : actual.getStatus().getStatus(), expected.getStatus() == null ? null : expected.getStatus().getStatus());
+    }
+
+    @Test
+    public void writeUser_thenReadUser_sameUser () {
+        ByteBuffer buffer = ByteBuffer.allocate(SUT.sizeOf(USER));
+        SUT.writeUser(buffer, USER);
+        assertEquals(buffer.remaining(), 0);
+        buffer.flip();
+        assertSameUser(SUT.readUser(buffer), USER);
+        assertEquals(buffer.remaining(), 0);
+    }
+
+    @Test
+    public void readUserKey_idAndEmailRead_restSkipped () {
+        UserEntity other = new UserEntity("2", "someone@gmail.com", null, null, null);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SUT.sizeOf(USER) + SUT.sizeOf(other));
+        SUT.writeUser(buffer, USER);
+        SUT.writeUser(buffer, other);
+        buffer.flip();
+
+        BinaryUserCodec.UserKey key = SUT.readUserKey(buffer);
+        assertEquals(key.id, USER.getId());
+        assertEquals(key.email, EMAIL);
+        assertEquals(buffer.position(), SUT.sizeOf(USER));
+        key = SUT.readUserKey(buffer);
+        assertEquals(key.id, "2");
+        assertEquals(key.email, "someone@gmail.com");
+        assertEquals(buffer.remaining(), 0);
+    }
+
+    @Test
+    public void readUser_roleAndStatus_sharedInstances () {
+        ByteBuffer buffer = ByteBuffer.allocate(SUT.sizeOf(USER));
+        SUT.writeUser(buffer, USER);
+        buffer.flip();
+        UserEntity decoded = SUT.readUser(buffer);
+        assertSame(decoded.getRole(), UserRole.of(UserRole.TYPE.STUDENT));
+        assertSame(decoded.getStatus(), UserStatus.of(UserStatus.STATUS.ACTIVE));
+        assertEquals(decoded.getRole(), USER.getRole());
+        assertEquals(decoded.getRole().hashCode(), USER.getRole().hashCode());
+    }
+
+    @Test
+    public void writeUser_directBufferAndNulls_sameUser () {
+        UserEntity user = new UserEntity("1", "someone@gmail.com", null, null, null);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        SUT.writeUser(buffer, user);
+        assertEquals(buffer.position(), SUT.sizeOf(user));
+        buffer.flip();
+        assertSameUser(SUT.readUser(buffer), user);
+    }
+
+    @Test
+    public void writeGooglePojo_thenReadGooglePojo_sameValues () {
+        ByteBuffer buffer = ByteBuffer.allocate(SUT.sizeOf(GOOGLE_POJO));
+        SUT.writeGooglePojo(buffer, GOOGLE_POJO);
+        buffer.flip();
+        GooglePojo pojo = SUT.readGooglePojo(buffer);
+        assertEquals(pojo.getId(), GOOGLE_POJO.getId());
+        assertEquals(pojo.getEmail(), GOOGLE_POJO.getEmail());
+        assertTrue(pojo.isVerified_email());
+        assertEquals(pojo.getName(), GOOGLE_POJO.getName());
+        assertEquals(pojo.getFullName(), GOOGLE_POJO.getFullName());
+        assertEquals(pojo.getPicture(), GOOGLE_POJO.getPicture());
+    }
+
+    @Test
+    public void sizeOf_dictionaryDomain_smallerThanInline () {
+        BinaryUserCodec withoutDictionary = new BinaryUserCodec();
+        assertEquals(withoutDictionary.sizeOf(USER) - SUT.sizeOf(USER), "fpt.edu.vn".length() + 1);
+    }
+
+    @Test
+    public void sizeOf_comparedWithJson_smaller () throws JsonProcessingException {
+        ObjectMapper json = new ObjectMapper();
+        assertTrue(SUT.sizeOf(USER) * 2 <= json.writeValueAsBytes(USER).length);
+        assertTrue(SUT.sizeOf(GOOGLE_POJO) < json.writeValueAsBytes(GOOGLE_POJO).length);
+    }
+
+    @Test
+    public void readUser_unpairedSurrogate_replacedLikeGetBytes () {
+        UserEntity user = new UserEntity("1", EMAIL, "broken \ud83d name", null, null);
+        ByteBuffer buffer = SUT.encode(user);
+        assertEquals(SUT.readUser(buffer).getFullName(), new String(user.getFullName().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void readUser_nullEmail_nullReturned () {
+        UserEntity user = new UserEntity(null, null, null, null, null);
+        ByteBuffer buffer = SUT.encode(user);
+        UserEntity read = SUT.readUser(buffer);
+        assertNull(read.getId());
+        assertNull(read.getEmail());
+    }
+}
@@ -0,0 +1,125 @@
+package adapters.user_repository;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.UserRepository;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class BloomFilterUserRepositoryTest {
+    private static final String EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final String UNKNOWN_EMAIL = "hoang.nguyen@gmail.com";
+    private static final UserRole STUDENT_ROLE = UserRole.of(UserRole.TYPE.STUDENT);
+    private static final UserStatus ACTIVE_STATUS = UserStatus.of(UserStatus.STATUS.ACTIVE);
+
+    private BloomFilterUserRepository SUT;
+    private UserRepositoryTdImp userRepository;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        userRepository = new UserRepositoryTdImp();
+        SUT = new BloomFilterUserRepository(userRepository, 1000, 0.001);
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        public final InMemoryUserRepository users = new InMemoryUserRepository();
+        public int getUserByEmailCount;
+        public int getUsersByEmailsCount;
+        public Collection<String> lastBatch;
+
+        @Override
+        public UserEntity getUserByEmail(String email) {
+            getUserByEmailCount++;
+            return users.getUserByEmail(email);
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws AlreadyExistException {
+            return users.addUser(email, fullName, avatar, role, userStatus);
+        }
+
+        @Override
+        public Map<String, UserEntity> getUsersByEmails(Collection<String> emails) throws ConnectionException {
+            getUsersByEmailsCount++;
+            lastBatch = emails;
+            return UserRepository.super.getUsersByEmails(emails);
+        }
+    }
+
+    @Test
+    public void getUserByEmail_unknownEmail_nullWithoutCallingRepository () throws ConnectionException {
+        assertNull(SUT.getUserByEmail(UNKNOWN_EMAIL));
+        assertEquals(userRepository.getUserByEmailCount, 0);
+        assertEquals(SUT.getSkippedCount(), 1);
+        assertFalse(SUT.mightContain(UNKNOWN_EMAIL));
+    }
+
+    @Test
+    public void getUserByEmail_afterAddUser_readFromRepository () throws ConnectionException, AlreadyExistException {
+        SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+        assertNotNull(SUT.getUserByEmail(EMAIL.toUpperCase()));
+        assertEquals(userRepository.getUserByEmailCount, 1);
+        assertTrue(SUT.mightContain(EMAIL));
+    }
+
+    @Test
+    public void getUserByEmail_warmedUpWithExistingUsers_readFromRepository () throws ConnectionException, AlreadyExistException {
+        userRepository.users.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+        SUT.warmUp(userRepository.users.emails());
+        assertNotNull(SUT.getUserByEmail(EMAIL));
+    }
+
+    @Test
+    public void addUser_alreadyExist_rethrownAndEmailKnown () throws ConnectionException, AlreadyExistException {
+        userRepository.users.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+        expectThrows(AlreadyExistException.class, () -> SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS));
+        assertNotNull(SUT.getUserByEmail(EMAIL));
+    }
+
+    @Test
+    public void getUsersByEmails_mixedEmails_onlyMaybeKnownAsked () throws ConnectionException {
+        SUT.addUsers(Collections.singletonList(new UserRepository.NewUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS)));
+        Map<String, UserEntity> users = SUT.getUsersByEmails(Arrays.asList(EMAIL, UNKNOWN_EMAIL));
+        assertEquals(users.size(), 1);
+        assertEquals(userRepository.lastBatch, Collections.singletonList(EMAIL));
+        assertEquals(SUT.getSkippedCount(), 1);
+    }
+
+    @Test
+    public void getUsersByEmails_allUnknown_repositoryNotCalled () throws ConnectionException {
+        assertTrue(SUT.getUsersByEmails(Arrays.asList(UNKNOWN_EMAIL, "other@gmail.com")).isEmpty());
+        assertEquals(userRepository.getUsersByEmailsCount, 0);
+    }
+
+    @Test
+    public void snapshot_restoredFilter_knowsSameEmails () throws ConnectionException, AlreadyExistException, IOException {
+        SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SUT.getKnownEmails().writeTo(out);
+
+        BloomFilterUserRepository restarted = new BloomFilterUserRepository(userRepository,
+                ScalableBloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray())));
+
+        assertNotNull(restarted.getUserByEmail(EMAIL));
+        assertNull(restarted.getUserByEmail(UNKNOWN_EMAIL));
+        assertEquals(restarted.getSkippedCount(), 1);
+    }
+}
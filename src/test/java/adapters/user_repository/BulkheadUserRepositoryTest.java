@@ -0,0 +1,106 @@
+package adapters.user_repository;
+
+import adapters.AdaptiveConcurrencyLimiter;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.errors.OverloadedException;
+import domain.ports.testonly.testonly.UserRepository;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.expectThrows;
+
+public class BulkheadUserRepositoryTest {
+    private static final String EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final UserRole STUDENT_ROLE = UserRole.of(UserRole.TYPE.STUDENT);
+    private static final UserStatus ACTIVE_STATUS = UserStatus.of(UserStatus.STATUS.ACTIVE);
+
+    private BulkheadUserRepository SUT;
+    private UserRepositoryTdImp userRepository;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        userRepository = new UserRepositoryTdImp();
+        limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 1, TimeUnit.SECONDS);
+        SUT = new BulkheadUserRepository(userRepository, limiter, () -> 0);
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        private final InMemoryUserRepository users = new InMemoryUserRepository();
+        public int callCount;
+        public boolean isConnectionExceptionOccurs;
+        public boolean isOverloaded;
+
+        @Override
+        public UserEntity getUserByEmail(String email) throws ConnectionException {
+            callCount++;
+            if (isConnectionExceptionOccurs) {
+                throw new ConnectionException("");
+            }
+            if (isOverloaded) {
+                throw new OverloadedException("");
+            }
+            return users.getUserByEmail(email);
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws AlreadyExistException {
+            callCount++;
+            return users.addUser(email, fullName, avatar, role, userStatus);
+        }
+    }
+
+    @Test
+    public void addUser_thenGetUserByEmail_delegatedAndSlotsReleased () throws ConnectionException, AlreadyExistException {
+        SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+        assertNotNull(SUT.getUserByEmail(EMAIL));
+        assertEquals(SUT.getUsersByEmails(Collections.singletonList(EMAIL)).size(), 1);
+        assertEquals(SUT.addUsers(Arrays.asList(new UserRepository.NewUser("other@fpt.edu.vn", "", "", STUDENT_ROLE, ACTIVE_STATUS))).size(), 1);
+        assertEquals(limiter.getInFlight(), 0);
+    }
+
+    @Test
+    public void getUserByEmail_limitReached_overloadedWithoutCallingRepository () {
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        expectThrows(OverloadedException.class, () -> SUT.getUserByEmail(EMAIL));
+        expectThrows(OverloadedException.class, () -> SUT.getUsersByEmails(Collections.singletonList(EMAIL)));
+        assertEquals(userRepository.callCount, 0);
+    }
+
+    @Test
+    public void addUser_alreadyExist_rethrownLimitKept () throws ConnectionException, AlreadyExistException {
+        SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+        expectThrows(AlreadyExistException.class, () -> SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS));
+        assertEquals(limiter.getInFlight(), 0);
+        assertEquals(limiter.getLimit(), 2);
+    }
+
+    @Test
+    public void getUserByEmail_connectionException_limitReduced () {
+        userRepository.isConnectionExceptionOccurs = true;
+        expectThrows(ConnectionException.class, () -> SUT.getUserByEmail(EMAIL));
+        expectThrows(ConnectionException.class, () -> SUT.getUserByEmail(EMAIL));
+        assertEquals(limiter.getLimit(), 1);
+        assertEquals(limiter.getInFlight(), 0);
+    }
+
+    @Test
+    public void getUserByEmail_overloadedDownstream_slotReleasedLimitKept () {
+        userRepository.isOverloaded = true;
+        expectThrows(OverloadedException.class, () -> SUT.getUserByEmail(EMAIL));
+        expectThrows(OverloadedException.class, () -> SUT.getUserByEmail(EMAIL));
+        assertEquals(limiter.getLimit(), 2);
+        assertEquals(limiter.getInFlight(), 0);
+    }
+}
@@ -0,0 +1,211 @@
+package adapters.user_repository;
+
+import adapters.cache.ExpiringLruCache;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.UserRepository;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+public class CachingUserRepositoryTest {
+    private static final String EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final String ID = "ID";
+    private static final UserRole STUDENT_ROLE = new UserRole(UserRole.TYPE.STUDENT);
+    private static final UserStatus ACTIVE_STATUS = new UserStatus(UserStatus.STATUS.ACTIVE);
+    private static final UserEntity USER = new UserEntity(ID, EMAIL, "FULL_NAME", STUDENT_ROLE, ACTIVE_STATUS);
+    private static final long TTL_SECONDS = 60;
+    private static final long NOT_FOUND_TTL_SECONDS = 5;
+
+    private CachingUserRepository SUT;
+    private UserRepositoryTdImp userRepository;
+    private long now;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        now = 0;
+        userRepository = new UserRepositoryTdImp();
+        ExpiringLruCache<String, Optional<UserEntity>> cache =
+                new ExpiringLruCache<>(100, TTL_SECONDS, TimeUnit.SECONDS, () -> now);
+        SUT = new CachingUserRepository(userRepository, cache, NOT_FOUND_TTL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        public int getUserByEmailCount = 0;
+        public boolean isConnectionExceptionOccurs = false;
+        public boolean isAlreadyExist = false;
+        public UserEntity user = null;
+        public int getUsersByEmailsCount = 0;
+        public Collection<String> requestedEmails = null;
+        // runs after the user was read and before it is returned, like a change made elsewhere meanwhile
+        public Runnable duringRead = () -> {};
+
+        @Override
+        public UserEntity getUserByEmail(String email) throws ConnectionException {
+            getUserByEmailCount++;
+            if (isConnectionExceptionOccurs) {
+                throw new ConnectionException("");
+            }
+            UserEntity read = user;
+            duringRead.run();
+            return read;
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws AlreadyExistException {
+            if (isAlreadyExist) {
+                throw new AlreadyExistException();
+            }
+            user = new UserEntity(ID, email, fullName, role, userStatus);
+            return user;
+        }
+
+        @Override
+        public Map<String, UserEntity> getUsersByEmails(Collection<String> emails) {
+            getUsersByEmailsCount++;
+            requestedEmails = emails;
+            Map<String, UserEntity> found = new HashMap<>();
+            if (user != null && emails.contains(user.getEmail())) {
+                found.put(user.getEmail(), user);
+            }
+            duringRead.run();
+            return found;
+        }
+    }
+
+    private void passSeconds(long seconds) {
+        now += TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    @Test
+    public void getUserByEmail_calledTwice_repositoryReadOnce () throws ConnectionException {
+        userRepository.user = USER;
+        SUT.getUserByEmail(EMAIL);
+        UserEntity user = SUT.getUserByEmail(EMAIL.toUpperCase());
+        assertSame(user, USER);
+        assertEquals(userRepository.getUserByEmailCount, 1);
+        assertEquals(SUT.getHitRate(), 0.5);
+    }
+
+    @Test
+    public void getUserByEmail_afterTtl_repositoryReadAgain () throws ConnectionException {
+        userRepository.user = USER;
+        SUT.getUserByEmail(EMAIL);
+        passSeconds(TTL_SECONDS);
+        SUT.getUserByEmail(EMAIL);
+        assertEquals(userRepository.getUserByEmailCount, 2);
+    }
+
+    @Test
+    public void getUserByEmail_notFound_cachedForNotFoundTtl () throws ConnectionException {
+        assertNull(SUT.getUserByEmail(EMAIL));
+        assertNull(SUT.getUserByEmail(EMAIL));
+        assertEquals(userRepository.getUserByEmailCount, 1);
+
+        userRepository.user = USER;
+        passSeconds(NOT_FOUND_TTL_SECONDS);
+        assertSame(SUT.getUserByEmail(EMAIL), USER);
+        assertEquals(userRepository.getUserByEmailCount, 2);
+    }
+
+    @Test
+    public void addUser_afterNotFound_writtenThrough () throws ConnectionException, AlreadyExistException {
+        SUT.getUserByEmail(EMAIL);
+        UserEntity added = SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+        assertSame(SUT.getUserByEmail(EMAIL), added);
+        assertEquals(userRepository.getUserByEmailCount, 1);
+    }
+
+    @Test
+    public void addUser_alreadyExist_notFoundEntryDropped () throws ConnectionException {
+        SUT.getUserByEmail(EMAIL);
+        userRepository.isAlreadyExist = true;
+        userRepository.user = USER;
+        try {
+            SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+            fail("AlreadyExistException expected");
+        } catch (AlreadyExistException ex) {
+            assertSame(SUT.getUserByEmail(EMAIL), USER);
+        }
+    }
+
+    @Test
+    public void invalidate_userChangedElsewhere_repositoryReadAgain () throws ConnectionException {
+        userRepository.user = USER;
+        SUT.getUserByEmail(EMAIL);
+        SUT.invalidate(EMAIL);
+        SUT.getUserByEmail(EMAIL);
+        assertEquals(userRepository.getUserByEmailCount, 2);
+    }
+
+    @Test
+    public void getUserByEmail_invalidatedWhileReading_oldUserNotCached () throws ConnectionException {
+        UserEntity blocked = new UserEntity(ID, EMAIL, "FULL_NAME", STUDENT_ROLE, new UserStatus(UserStatus.STATUS.BLOCKED));
+        userRepository.user = USER;
+        userRepository.duringRead = () -> {
+            userRepository.duringRead = () -> {};
+            userRepository.user = blocked;
+            SUT.invalidate(EMAIL);
+        };
+
+        assertSame(SUT.getUserByEmail(EMAIL), USER);
+
+        assertSame(SUT.getUserByEmail(EMAIL), blocked);
+        assertEquals(userRepository.getUserByEmailCount, 2);
+    }
+
+    @Test
+    public void getUsersByEmails_invalidatedWhileReading_oldUserNotCached () throws ConnectionException {
+        UserEntity blocked = new UserEntity(ID, EMAIL, "FULL_NAME", STUDENT_ROLE, new UserStatus(UserStatus.STATUS.BLOCKED));
+        userRepository.user = USER;
+        userRepository.duringRead = () -> {
+            userRepository.duringRead = () -> {};
+            userRepository.user = blocked;
+            SUT.invalidate(EMAIL);
+        };
+
+        assertSame(SUT.getUsersByEmails(Arrays.asList(EMAIL)).get(EMAIL), USER);
+
+        assertSame(SUT.getUserByEmail(EMAIL), blocked);
+        assertEquals(userRepository.getUserByEmailCount, 1);
+    }
+
+    @Test
+    public void getUserByEmail_connectionException_nothingCached () throws ConnectionException {
+        userRepository.isConnectionExceptionOccurs = true;
+        try {
+            SUT.getUserByEmail(EMAIL);
+            fail("ConnectionException expected");
+        } catch (ConnectionException ex) {
+            assertEquals(SUT.size(), 0);
+        }
+    }
+
+    @Test
+    public void getUsersByEmails_someCached_onlyMissesReadInOneCall () throws ConnectionException {
+        userRepository.user = USER;
+        SUT.getUserByEmail(EMAIL);
+        Map<String, UserEntity> users = SUT.getUsersByEmails(Arrays.asList(EMAIL, "OTHER_EMAIL", "THIRD_EMAIL"));
+        assertEquals(userRepository.getUsersByEmailsCount, 1);
+        assertEquals(userRepository.requestedEmails, Arrays.asList("OTHER_EMAIL", "THIRD_EMAIL"));
+        assertEquals(users.size(), 1);
+        assertSame(users.get(EMAIL), USER);
+
+        SUT.getUsersByEmails(Arrays.asList(EMAIL, "OTHER_EMAIL"));
+        assertEquals(userRepository.getUsersByEmailsCount, 1);
+    }
+}
@@ -0,0 +1,97 @@
+package adapters.user_repository;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class InMemoryUserRepositoryTest {
+    private static final String EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final String FULL_NAME = "FAMILY_NAME GIVEN_NAME";
+    private static final UserRole STUDENT_ROLE = new UserRole(UserRole.TYPE.STUDENT);
+    private static final UserStatus ACTIVE_STATUS = new UserStatus(UserStatus.STATUS.ACTIVE);
+
+    private InMemoryUserRepository SUT;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        SUT = new InMemoryUserRepository();
+    }
+
+    @Test
+    public void getUserByEmail_notAdded_nullReturned () {
+        assertNull(SUT.getUserByEmail(EMAIL));
+    }
+
+    @Test
+    public void addUser_thenGetUserByEmail_sameUserReturned () throws AlreadyExistException {
+        UserEntity user = SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        assertSame(SUT.getUserByEmail(EMAIL), user);
+        assertEquals(user.getEmail(), EMAIL);
+        assertEquals(user.getFullName(), FULL_NAME);
+        assertSame(user.getRole(), STUDENT_ROLE);
+        assertSame(user.getStatus(), ACTIVE_STATUS);
+    }
+
+    @Test
+    public void getUserByEmail_otherCaseAndSpaces_sameUserReturned () throws AlreadyExistException {
+        UserEntity user = SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        assertSame(SUT.getUserByEmail(" HoangNMSE140123@FPT.edu.vn "), user);
+    }
+
+    @Test(expectedExceptions = AlreadyExistException.class)
+    public void addUser_emailAlreadyAdded_alreadyExistExceptionThrown () throws AlreadyExistException {
+        SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        SUT.addUser(EMAIL.toUpperCase(), FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+    }
+
+    @Test
+    public void addUser_differentUsers_uniqueIds () throws AlreadyExistException {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(SUT.addUser(i + EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS).getId());
+        }
+        assertEquals(ids.size(), 100);
+        assertEquals(SUT.size(), 100);
+    }
+
+    @Test
+    public void addUser_concurrentSameEmail_exactlyOneAdded () throws InterruptedException {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger alreadyExist = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+                    added.incrementAndGet();
+                } catch (AlreadyExistException ex) {
+                    alreadyExist.incrementAndGet();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(added.get(), 1);
+        assertEquals(alreadyExist.get(), threads - 1);
+    }
+}
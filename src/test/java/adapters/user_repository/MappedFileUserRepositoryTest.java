@@ -0,0 +1,201 @@
+package adapters.user_repository;
+
+import adapters.user_repository.MappedFileUserRepository.SyncPolicy;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.UserRepository.NewUser;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+import static org.testng.Assert.fail;
+
+public class MappedFileUserRepositoryTest {
+    private static final String EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final String FULL_NAME = "Nguy\u1ec5n Minh Ho\u00e0ng";
+    private static final UserRole STUDENT_ROLE = new UserRole(UserRole.TYPE.STUDENT);
+    private static final UserStatus ACTIVE_STATUS = new UserStatus(UserStatus.STATUS.ACTIVE);
+    private static final UserStatus BLOCKED_STATUS = new UserStatus(UserStatus.STATUS.BLOCKED);
+    private static final int SMALL_CAPACITY = 256;
+
+    private MappedFileUserRepository SUT;
+    private Path directory;
+    private Path file;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () throws IOException {
+        directory = Files.createTempDirectory("user-log");
+        file = directory.resolve("users.log");
+        SUT = new MappedFileUserRepository(file, SyncPolicy.ALWAYS, SMALL_CAPACITY);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown () throws IOException {
+        SUT.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private void reopen () throws IOException {
+        SUT.close();
+        SUT = new MappedFileUserRepository(file, SyncPolicy.ALWAYS, SMALL_CAPACITY);
+    }
+
+    private void assertSameUser (UserEntity actual, UserEntity expected) {
+        assertEquals(actual.getId(), expected.getId());
+        assertEquals(actual.getEmail(), expected.getEmail());
+        assertEquals(actual.getFullName(), expected.getFullName());
+        assertEquals(actual.getRole().getType(), expected.getRole().getType());
+        assertEquals(actual.getStatus().getStatus(), expected.getStatus().getStatus());
+    }
+
+    @Test
+    public void addUser_thenGetUserByEmail_sameUserReturned () throws ConnectionException, AlreadyExistException {
+        UserEntity added = SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        assertSameUser(SUT.getUserByEmail(EMAIL.toUpperCase()), added);
+        assertNull(SUT.getUserByEmail("other@fpt.edu.vn"));
+    }
+
+    @Test(expectedExceptions = AlreadyExistException.class)
+    public void addUser_emailAlreadyAdded_alreadyExistExceptionThrown () throws ConnectionException, AlreadyExistException {
+        SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+    }
+
+    @Test
+    public void reopen_usersAddedBefore_replayedFromLog () throws IOException, ConnectionException, AlreadyExistException {
+        List<UserEntity> added = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            added.add(SUT.addUser(i + EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS));
+        }
+        reopen();
+        assertEquals(SUT.size(), 50);
+        for (UserEntity user : added) {
+            assertSameUser(SUT.getUserByEmail(user.getEmail()), user);
+        }
+        UserEntity next = SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        assertEquals(next.getId(), "51");
+    }
+
+    @Test
+    public void addUsers_batch_allAddedAndExistingSkipped () throws ConnectionException, AlreadyExistException {
+        SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        List<NewUser> newUsers = new ArrayList<>();
+        newUsers.add(new NewUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS));
+        newUsers.add(new NewUser("1" + EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS));
+        Map<String, UserEntity> added = SUT.addUsers(newUsers);
+        assertEquals(added.keySet().size(), 1);
+        assertTrue(added.containsKey("1" + EMAIL));
+        assertEquals(SUT.size(), 2);
+    }
+
+    @Test
+    public void updateUser_thenReopen_latestVersionReturned () throws IOException, ConnectionException, AlreadyExistException {
+        UserEntity user = SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        user.setStatus(BLOCKED_STATUS);
+        SUT.updateUser(user);
+        assertEquals(SUT.getUserByEmail(EMAIL).getStatus().getStatus(), UserStatus.STATUS.BLOCKED);
+        reopen();
+        assertEquals(SUT.getUserByEmail(EMAIL).getStatus().getStatus(), UserStatus.STATUS.BLOCKED);
+        assertEquals(SUT.size(), 1);
+    }
+
+    @Test
+    public void compact_updatedUsers_oldVersionsDropped () throws IOException, ConnectionException, AlreadyExistException {
+        UserEntity user = SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        SUT.addUser("1" + EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        for (int i = 0; i < 10; i++) {
+            user.setStatus(i % 2 == 0 ? BLOCKED_STATUS : ACTIVE_STATUS);
+            SUT.updateUser(user);
+        }
+        int before = SUT.logSize();
+        SUT.compact();
+        assertTrue(SUT.logSize() < before);
+        assertEquals(SUT.size(), 2);
+        assertEquals(SUT.getUserByEmail(EMAIL).getStatus().getStatus(), UserStatus.STATUS.ACTIVE);
+
+        reopen();
+        assertEquals(SUT.size(), 2);
+        assertEquals(SUT.getUserByEmail(EMAIL).getStatus().getStatus(), UserStatus.STATUS.ACTIVE);
+    }
+
+    @Test
+    public void reopen_tornLastRecord_ignored () throws IOException, ConnectionException, AlreadyExistException {
+        SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        int end = SUT.logSize();
+        SUT.close();
+        // a record whose length made it to disk but whose payload did not
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(end);
+            raw.writeInt(40);
+            raw.writeInt(12345);
+        }
+        SUT = new MappedFileUserRepository(file, SyncPolicy.ALWAYS, SMALL_CAPACITY);
+        assertEquals(SUT.size(), 1);
+        assertEquals(SUT.logSize(), end);
+        UserEntity next = SUT.addUser("1" + EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        assertNotEquals(next.getId(), "1");
+        reopen();
+        assertEquals(SUT.size(), 2);
+    }
+
+    @Test
+    public void compact_cannotWriteNewLog_currentLogKeptInUse () throws IOException, ConnectionException, AlreadyExistException {
+        SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        // a non empty directory where the new log would be written
+        Path blocker = Files.createDirectory(directory.resolve("users.log.compact"));
+        Files.createFile(blocker.resolve("file"));
+        try {
+            SUT.compact();
+            fail();
+        } catch (IOException ex) {
+            // expected
+        }
+        Files.delete(blocker.resolve("file"));
+        Files.delete(blocker);
+
+        SUT.addUser("1" + EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        assertEquals(SUT.getUserByEmail(EMAIL).getEmail(), EMAIL);
+        reopen();
+        assertEquals(SUT.size(), 2);
+    }
+
+    @Test
+    public void compact_thenAddUser_addedToTheNewLog () throws IOException, ConnectionException, AlreadyExistException {
+        SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        SUT.compact();
+        SUT.addUser("1" + EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        reopen();
+        assertEquals(SUT.size(), 2);
+        assertEquals(SUT.getUserByEmail("1" + EMAIL).getEmail(), "1" + EMAIL);
+    }
+
+    @Test
+    public void addUser_afterClose_illegalStateException () throws IOException {
+        SUT.close();
+        expectThrows(IllegalStateException.class, () -> SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS));
+        expectThrows(IllegalStateException.class, () -> SUT.addUsers(List.of(new NewUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS))));
+        expectThrows(IllegalStateException.class, () -> SUT.compact());
+    }
+}
@@ -0,0 +1,162 @@
+package adapters.user_repository;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.UserRepository;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class MicroBatchingUserRepositoryTest {
+    private static final String EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final UserRole STUDENT_ROLE = new UserRole(UserRole.TYPE.STUDENT);
+    private static final UserStatus ACTIVE_STATUS = new UserStatus(UserStatus.STATUS.ACTIVE);
+
+    private MicroBatchingUserRepository SUT;
+    private UserRepositoryTdImp userRepository;
+
+    private void setup (int maxBatchSize, long maxDelayMillis) {
+        userRepository = new UserRepositoryTdImp();
+        SUT = new MicroBatchingUserRepository(userRepository, maxBatchSize, maxDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown () {
+        SUT.close();
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        public final List<Integer> addUsersBatchSizes = new CopyOnWriteArrayList<>();
+        public volatile boolean isConnectionExceptionOccurs = false;
+        public final Map<String, UserEntity> users = new HashMap<>();
+
+        @Override
+        public UserEntity getUserByEmail(String email) {
+            return users.get(email);
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) {
+            throw new AssertionError("inserts must be batched");
+        }
+
+        @Override
+        public synchronized Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+            addUsersBatchSizes.add(newUsers.size());
+            if (isConnectionExceptionOccurs) {
+                throw new ConnectionException("");
+            }
+            Map<String, UserEntity> added = new HashMap<>();
+            for (NewUser newUser : newUsers) {
+                if (!users.containsKey(newUser.email)) {
+                    UserEntity user = new UserEntity(String.valueOf(users.size()), newUser.email, newUser.fullName, newUser.role, newUser.userStatus);
+                    users.put(newUser.email, user);
+                    added.put(newUser.email, user);
+                }
+            }
+            return added;
+        }
+    }
+
+    // outcome of each call: the added user or the exception
+    private List<Object> addConcurrently(String... emails) throws InterruptedException {
+        List<Object> outcomes = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (String email : emails) {
+            Thread thread = new Thread(() -> {
+                try {
+                    outcomes.add(SUT.addUser(email, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS));
+                } catch (Exception ex) {
+                    outcomes.add(ex);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return outcomes;
+    }
+
+    @Test
+    public void addUser_batchFilled_writtenWithOneAddUsers () throws InterruptedException {
+        setup(3, TimeUnit.MINUTES.toMillis(1));
+        List<Object> outcomes = addConcurrently("1" + EMAIL, "2" + EMAIL, "3" + EMAIL);
+        assertEquals(userRepository.addUsersBatchSizes.size(), 1);
+        assertEquals((int) userRepository.addUsersBatchSizes.get(0), 3);
+        for (Object outcome : outcomes) {
+            assertTrue(outcome instanceof UserEntity);
+        }
+        assertEquals(SUT.getAverageBatchSize(), 3.0);
+    }
+
+    @Test
+    public void addUser_batchNotFilled_writtenAfterDelay () throws ConnectionException, AlreadyExistException {
+        setup(100, 10);
+        UserEntity user = SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+        assertEquals(user.getEmail(), EMAIL);
+        assertEquals(userRepository.addUsersBatchSizes.size(), 1);
+    }
+
+    @Test
+    public void addUser_sameEmailInOneBatch_oneAddedOthersAlreadyExist () throws InterruptedException {
+        setup(3, TimeUnit.MINUTES.toMillis(1));
+        List<Object> outcomes = addConcurrently(EMAIL, EMAIL, EMAIL.toUpperCase());
+        int added = 0;
+        int alreadyExist = 0;
+        for (Object outcome : outcomes) {
+            if (outcome instanceof UserEntity) {
+                added++;
+            } else if (outcome instanceof AlreadyExistException) {
+                alreadyExist++;
+            }
+        }
+        assertEquals(added, 1);
+        assertEquals(alreadyExist, 2);
+        assertEquals((int) userRepository.addUsersBatchSizes.get(0), 1);
+    }
+
+    @Test(expectedExceptions = AlreadyExistException.class)
+    public void addUser_existsInRepository_alreadyExistExceptionThrown () throws ConnectionException, AlreadyExistException {
+        setup(1, 10);
+        SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+        SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+    }
+
+    @Test
+    public void addUser_connectionException_everyCallerGetsIt () throws InterruptedException {
+        setup(2, TimeUnit.MINUTES.toMillis(1));
+        userRepository.isConnectionExceptionOccurs = true;
+        List<Object> outcomes = addConcurrently("1" + EMAIL, "2" + EMAIL);
+        for (Object outcome : outcomes) {
+            assertTrue(outcome instanceof ConnectionException);
+        }
+    }
+
+    @Test
+    public void addUser_afterClose_connectionExceptionThrown () throws AlreadyExistException {
+        setup(2, 10);
+        SUT.close();
+        try {
+            SUT.addUser(EMAIL, "FULL_NAME", "", STUDENT_ROLE, ACTIVE_STATUS);
+            fail("closed repository should not accept inserts");
+        } catch (ConnectionException ex) {
+            assertTrue(userRepository.addUsersBatchSizes.isEmpty());
+        }
+    }
+}
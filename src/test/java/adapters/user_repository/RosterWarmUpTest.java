@@ -0,0 +1,233 @@
+package adapters.user_repository;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.testonly.testonly.UserRepository;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+import static org.testng.Assert.fail;
+
+public class RosterWarmUpTest {
+    private static final String STUDENT_EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final String ADMIN_EMAIL = "hoangnm@gmail.com";
+    private static final UserEntity STUDENT = new UserEntity("ID_1", STUDENT_EMAIL, "Nguy\u1ec5n, Minh Ho\u00e0ng",
+            UserRole.of(UserRole.TYPE.STUDENT), UserStatus.of(UserStatus.STATUS.ACTIVE));
+    private static final UserEntity ADMIN = new UserEntity("ID_2", ADMIN_EMAIL, null,
+            UserRole.of(UserRole.TYPE.ADMIN), UserStatus.of(UserStatus.STATUS.BLOCKED));
+
+    private RosterWarmUp SUT;
+    private ForkJoinPool pool;
+    private UserRepositoryTdImp userRepository;
+    private CachingUserRepository cachingUserRepository;
+    private BloomFilterUserRepository bloomFilterUserRepository;
+    private Path directory;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () throws IOException {
+        pool = new ForkJoinPool(2);
+        SUT = new RosterWarmUp(pool, 4);
+        userRepository = new UserRepositoryTdImp();
+        cachingUserRepository = new CachingUserRepository(userRepository, 100_000, 60, 0, TimeUnit.SECONDS);
+        bloomFilterUserRepository = new BloomFilterUserRepository(userRepository, 1000, 0.01);
+        directory = Files.createTempDirectory("roster");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown () throws IOException {
+        pool.shutdown();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        public int getUserByEmailCount = 0;
+        public UserEntity user = null;
+
+        @Override
+        public UserEntity getUserByEmail(String email) {
+            getUserByEmailCount++;
+            return user;
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) {
+            return new UserEntity("ID", email, fullName, role, userStatus);
+        }
+    }
+
+    private static void assertSameUser (UserEntity actual, UserEntity expected) {
+        assertEquals(actual.getId(), expected.getId());
+        assertEquals(actual.getEmail(), expected.getEmail());
+        assertEquals(actual.getFullName(), expected.getFullName());
+        assertSame(actual.getRole(), expected.getRole());
+        assertSame(actual.getStatus(), expected.getStatus());
+    }
+
+    @Test
+    public void load_csvRoster_usersServedFromCache () throws Exception {
+        Path roster = directory.resolve("roster.csv");
+        RosterFile.writeCsv(roster, Arrays.asList(STUDENT, ADMIN));
+
+        RosterWarmUp.Report report = SUT.load(roster, cachingUserRepository, bloomFilterUserRepository);
+
+        assertEquals(report.loadedCount, 2);
+        assertEquals(report.malformedCount, 0);
+        assertSameUser(cachingUserRepository.getUserByEmail(STUDENT_EMAIL), STUDENT);
+        assertSameUser(cachingUserRepository.getUserByEmail(ADMIN_EMAIL.toUpperCase()), ADMIN);
+        assertEquals(userRepository.getUserByEmailCount, 0);
+        assertTrue(bloomFilterUserRepository.mightContain(ADMIN_EMAIL));
+    }
+
+    @Test
+    public void writeCsv_unusualIdAndEmail_readBackTheSame () throws Exception {
+        Path roster = directory.resolve("roster.csv");
+        UserEntity unusual = new UserEntity("ID#1", "hoang.nm+test@gmail.com", "#1, Minh Ho\u00e0ng",
+                UserRole.of(UserRole.TYPE.STUDENT), UserStatus.of(UserStatus.STATUS.ACTIVE));
+        RosterFile.writeCsv(roster, Arrays.asList(unusual));
+
+        RosterWarmUp.Report report = SUT.load(roster, cachingUserRepository, bloomFilterUserRepository);
+
+        assertEquals(report.loadedCount, 1);
+        assertSameUser(cachingUserRepository.getUserByEmail(unusual.getEmail()), unusual);
+    }
+
+    @Test
+    public void writeCsv_commaInEmail_illegalArgumentException () {
+        UserEntity user = new UserEntity("ID", "hoang,nm@gmail.com", "NAME", null, null);
+        expectThrows(IllegalArgumentException.class,
+                () -> RosterFile.writeCsv(directory.resolve("roster.csv"), Arrays.asList(user)));
+    }
+
+    @Test
+    public void writeCsv_commaInId_illegalArgumentException () {
+        UserEntity user = new UserEntity("ID,1", ADMIN_EMAIL, "NAME", null, null);
+        expectThrows(IllegalArgumentException.class,
+                () -> RosterFile.writeCsv(directory.resolve("roster.csv"), Arrays.asList(user)));
+    }
+
+    @Test
+    public void writeCsv_idStartingWithHash_illegalArgumentException () {
+        UserEntity user = new UserEntity("#1", ADMIN_EMAIL, "NAME", null, null);
+        expectThrows(IllegalArgumentException.class,
+                () -> RosterFile.writeCsv(directory.resolve("roster.csv"), Arrays.asList(user)));
+    }
+
+    @Test
+    public void load_binaryRoster_usersServedFromCache () throws Exception {
+        Path roster = directory.resolve("roster.bin");
+        RosterFile.writeBinary(roster, Arrays.asList(STUDENT, ADMIN));
+
+        RosterWarmUp.Report report = SUT.load(roster, cachingUserRepository);
+
+        assertEquals(report.loadedCount, 2);
+        assertSameUser(cachingUserRepository.getUserByEmail(STUDENT_EMAIL), STUDENT);
+        assertSameUser(cachingUserRepository.getUserByEmail(ADMIN_EMAIL), ADMIN);
+        assertEquals(userRepository.getUserByEmailCount, 0);
+    }
+
+    @Test
+    public void load_manyChunks_everyUserLoaded () throws Exception {
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            users.add(new UserEntity("ID_" + i, "student" + i + "@fpt.edu.vn", "NAME " + i,
+                    UserRole.of(UserRole.TYPE.STUDENT), UserStatus.of(UserStatus.STATUS.ACTIVE)));
+        }
+        Path roster = directory.resolve("roster.bin");
+        RosterFile.writeBinary(roster, users);
+
+        RosterWarmUp.Report report = SUT.load(roster, cachingUserRepository, bloomFilterUserRepository);
+
+        assertEquals(report.loadedCount, 5000);
+        assertEquals(cachingUserRepository.size(), 5000);
+        for (UserEntity user : users) {
+            assertTrue(bloomFilterUserRepository.mightContain(user.getEmail()));
+        }
+        assertEquals(cachingUserRepository.getUserByEmail("student4999@fpt.edu.vn").getId(), "ID_4999");
+        assertEquals(userRepository.getUserByEmailCount, 0);
+    }
+
+    @Test
+    public void load_malformedLines_countedAndSkipped () throws Exception {
+        Path roster = directory.resolve("roster.csv");
+        Files.write(roster, Arrays.asList(
+                "# exported users",
+                "ID_1," + STUDENT_EMAIL + ",STUDENT,ACTIVE,NAME",
+                "",
+                "ID_2,hoang@fpt.edu.vn,PRINCIPAL,ACTIVE,NAME",
+                "ID_3,only two columns",
+                "ID_4,,STUDENT,ACTIVE,NAME"), StandardCharsets.UTF_8);
+
+        RosterWarmUp.Report report = SUT.load(roster, cachingUserRepository);
+
+        assertEquals(report.loadedCount, 1);
+        assertEquals(report.malformedCount, 3);
+        assertEquals(cachingUserRepository.size(), 1);
+    }
+
+    @Test
+    public void load_userAlreadyCached_cachedUserKept () throws Exception {
+        UserEntity blockedStudent = new UserEntity("ID_1", STUDENT_EMAIL, "NAME",
+                UserRole.of(UserRole.TYPE.STUDENT), UserStatus.of(UserStatus.STATUS.BLOCKED));
+        userRepository.user = blockedStudent;
+        cachingUserRepository.getUserByEmail(STUDENT_EMAIL);
+        Path roster = directory.resolve("roster.csv");
+        RosterFile.writeCsv(roster, Arrays.asList(STUDENT));
+
+        SUT.load(roster, cachingUserRepository);
+
+        assertSame(cachingUserRepository.getUserByEmail(STUDENT_EMAIL), blockedStudent);
+    }
+
+    @Test
+    public void load_notARosterFile_ioException () throws Exception {
+        Path roster = directory.resolve("roster.bin");
+        Files.write(roster, "id,email".getBytes(StandardCharsets.UTF_8));
+
+        try {
+            SUT.load(roster, cachingUserRepository);
+            fail();
+        } catch (IOException ex) {
+            assertNull(cachingUserRepository.getUserByEmail(STUDENT_EMAIL));
+        }
+    }
+
+    @Test
+    public void load_corruptRecordLength_ioExceptionWithItsOffset () throws Exception {
+        Path roster = directory.resolve("roster.bin");
+        RosterFile.writeBinary(roster, Arrays.asList(STUDENT, ADMIN));
+        long end = Files.size(roster);
+        Files.write(roster, ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE).array(), StandardOpenOption.APPEND);
+
+        try {
+            SUT.load(roster, cachingUserRepository);
+            fail();
+        } catch (IOException ex) {
+            assertEquals(ex.getMessage(), "Bad record length " + Integer.MAX_VALUE + " at offset " + end);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package adapters.user_repository;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class ScalableBloomFilterTest {
+    private static String email (int i) {
+        return "student" + i + "@fpt.edu.vn";
+    }
+
+    private static double falsePositiveRate (ScalableBloomFilter filter, int from, int count) {
+        int falsePositives = 0;
+        for (int i = from; i < from + count; i++) {
+            if (filter.mightContain(email(i))) {
+                falsePositives++;
+            }
+        }
+        return (double) falsePositives / count;
+    }
+
+    @Test
+    public void mightContain_addedValues_alwaysTrue () {
+        ScalableBloomFilter SUT = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            SUT.add(email(i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(SUT.mightContain(email(i)));
+        }
+    }
+
+    @Test
+    public void mightContain_neverAdded_withinFalsePositiveRate () {
+        ScalableBloomFilter SUT = new ScalableBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            SUT.add(email(i));
+        }
+        assertEquals(SUT.stageCount(), 1);
+        assertTrue(falsePositiveRate(SUT, 1_000_000, 100_000) <= 0.01);
+    }
+
+    @Test
+    public void add_farPastExpected_growsAndKeepsRate () {
+        ScalableBloomFilter SUT = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            SUT.add(email(i));
+        }
+        assertTrue(SUT.stageCount() > 1);
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(SUT.mightContain(email(i)));
+        }
+        assertTrue(falsePositiveRate(SUT, 1_000_000, 100_000) <= 0.01);
+    }
+
+    @Test
+    public void readFrom_writtenSnapshot_sameAnswers () throws IOException {
+        ScalableBloomFilter SUT = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 500; i++) {
+            SUT.add(email(i));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SUT.writeTo(out);
+
+        ScalableBloomFilter restored = ScalableBloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(restored.stageCount(), SUT.stageCount());
+        assertEquals(restored.size(), SUT.size());
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(restored.mightContain(email(i)), SUT.mightContain(email(i)));
+        }
+        restored.add("new@fpt.edu.vn");
+        assertTrue(restored.mightContain("new@fpt.edu.vn"));
+    }
+
+    @Test
+    public void readFrom_notASnapshot_ioException () {
+        expectThrows(IOException.class, () -> ScalableBloomFilter.readFrom(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})));
+    }
+
+    @Test
+    public void add_concurrently_noValueLost () throws InterruptedException {
+        ScalableBloomFilter SUT = new ScalableBloomFilter(1000, 0.01);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            int offset = thread * 10_000;
+            executor.execute(() -> {
+                for (int i = offset; i < offset + 10_000; i++) {
+                    SUT.add(email(i));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 40_000; i++) {
+            assertTrue(SUT.mightContain(email(i)));
+        }
+    }
+}
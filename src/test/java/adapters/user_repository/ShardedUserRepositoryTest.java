@@ -0,0 +1,289 @@
+package adapters.user_repository;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.errors.OverloadedException;
+import domain.ports.testonly.testonly.UserRepository;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ShardedUserRepositoryTest {
+    private static final String EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final String FULL_NAME = "FAMILY_NAME GIVEN_NAME";
+    private static final UserRole STUDENT_ROLE = UserRole.of(UserRole.TYPE.STUDENT);
+    private static final UserStatus ACTIVE_STATUS = UserStatus.of(UserStatus.STATUS.ACTIVE);
+    private static final int SHARD_COUNT = 4;
+    private static final int REPLICAS = 160;
+    private static final int EMAIL_COUNT = 10_000;
+
+    private ShardedUserRepository SUT;
+    private Map<String, UserRepositoryTdImp> shards;
+    private ExecutorTdImp executor;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        shards = new LinkedHashMap<>();
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards.put("shard-" + i, new UserRepositoryTdImp());
+        }
+        executor = new ExecutorTdImp();
+        SUT = new ShardedUserRepository(new LinkedHashMap<>(shards), REPLICAS, executor);
+    }
+
+    // InMemoryUserRepository counting the calls that reach it
+    private static class UserRepositoryTdImp implements UserRepository {
+        public final InMemoryUserRepository users = new InMemoryUserRepository();
+        public final AtomicInteger getUserByEmailCount = new AtomicInteger();
+        public final AtomicInteger batchCount = new AtomicInteger();
+        public volatile boolean isConnectionError;
+
+        @Override
+        public UserEntity getUserByEmail(String email) throws ConnectionException {
+            getUserByEmailCount.incrementAndGet();
+            if (isConnectionError) {
+                throw new ConnectionException("");
+            }
+            return users.getUserByEmail(email);
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws AlreadyExistException {
+            return users.addUser(email, fullName, avatar, role, userStatus);
+        }
+
+        @Override
+        public Map<String, UserEntity> getUsersByEmails(Collection<String> emails) throws ConnectionException {
+            batchCount.incrementAndGet();
+            if (isConnectionError) {
+                throw new ConnectionException("");
+            }
+            return users.getUsersByEmails(emails);
+        }
+
+        @Override
+        public Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+            batchCount.incrementAndGet();
+            return users.addUsers(newUsers);
+        }
+    }
+
+    private static class ExecutorTdImp implements Executor {
+        public int executeCount;
+        public boolean isSaturated;
+
+        @Override
+        public void execute(Runnable command) {
+            if (isSaturated) {
+                throw new RejectedExecutionException();
+            }
+            executeCount++;
+            command.run();
+        }
+    }
+
+    private static List<String> emails (int count) {
+        List<String> emails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            emails.add("student" + i + "@fpt.edu.vn");
+        }
+        return emails;
+    }
+
+    private void addAll (List<String> emails) throws Exception {
+        for (String email : emails) {
+            SUT.addUser(email, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        }
+    }
+
+    @Test
+    public void addUser_thenGetUserByEmail_storedOnItsShardOnly () throws Exception {
+        UserEntity user = SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+
+        assertSame(SUT.getUserByEmail(EMAIL), user);
+        assertSame(SUT.getUserByEmail(" HoangNMse140123@FPT.edu.vn"), user);
+        for (Map.Entry<String, UserRepositoryTdImp> shard : shards.entrySet()) {
+            assertEquals(shard.getValue().users.size(), shard.getKey().equals(SUT.shardOf(EMAIL)) ? 1 : 0);
+        }
+    }
+
+    @Test
+    public void addUser_sameEmailTwice_alreadyExistException () throws Exception {
+        SUT.addUser(EMAIL, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        try {
+            SUT.addUser(EMAIL.toUpperCase(), FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+            fail();
+        } catch (AlreadyExistException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void addUser_manyEmails_spreadEvenly () throws Exception {
+        addAll(emails(EMAIL_COUNT));
+
+        for (UserRepositoryTdImp shard : shards.values()) {
+            int expected = EMAIL_COUNT / SHARD_COUNT;
+            assertTrue(Math.abs(shard.users.size() - expected) < expected * 0.2, "shard has " + shard.users.size());
+        }
+    }
+
+    @Test
+    public void addShard_aboutOneFifthOfEmailsMoved_allToTheNewShard () {
+        List<String> emails = emails(EMAIL_COUNT);
+        Map<String, String> shardsBefore = new LinkedHashMap<>();
+        for (String email : emails) {
+            shardsBefore.put(email, SUT.shardOf(email));
+        }
+
+        SUT.addShard("shard-new", new UserRepositoryTdImp());
+
+        int moved = 0;
+        for (String email : emails) {
+            String shard = SUT.shardOf(email);
+            if (!shard.equals(shardsBefore.get(email))) {
+                assertEquals(shard, "shard-new");
+                moved++;
+            }
+        }
+        assertTrue(moved > EMAIL_COUNT * 0.15 && moved < EMAIL_COUNT * 0.25, "moved " + moved);
+    }
+
+    @Test
+    public void addShard_movedUsersStillFoundAndNotAddedTwice () throws Exception {
+        List<String> emails = emails(1000);
+        addAll(emails);
+        UserRepositoryTdImp newShard = new UserRepositoryTdImp();
+
+        SUT.addShard("shard-new", newShard);
+
+        for (String email : emails) {
+            assertEquals(SUT.getUserByEmail(email).getEmail(), email);
+            try {
+                SUT.addUser(email, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+                fail();
+            } catch (AlreadyExistException ex) {
+                // expected
+            }
+        }
+        assertEquals(newShard.users.size(), 0);
+        assertEquals(SUT.getUsersByEmails(emails).size(), 1000);
+        assertEquals(SUT.addUsers(Arrays.asList(new UserRepository.NewUser(emails.get(0), FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS))).size(), 0);
+    }
+
+    @Test
+    public void addShard_newEmailOfTheNewShard_addedThere () throws Exception {
+        UserRepositoryTdImp newShard = new UserRepositoryTdImp();
+        SUT.addShard("shard-new", newShard);
+        String email = null;
+        for (String candidate : emails(EMAIL_COUNT)) {
+            if (SUT.shardOf(candidate).equals("shard-new")) {
+                email = candidate;
+                break;
+            }
+        }
+
+        SUT.addUser(email, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+
+        assertEquals(newShard.users.size(), 1);
+        SUT.forgetPreviousRings();
+        assertEquals(SUT.getUserByEmail(email).getEmail(), email);
+    }
+
+    @Test
+    public void getUserByEmail_emailNotMoved_onlyItsShardAsked () throws Exception {
+        List<String> emails = emails(100);
+        List<String> shardsBefore = new ArrayList<>();
+        for (String email : emails) {
+            shardsBefore.add(SUT.shardOf(email));
+        }
+        SUT.addShard("shard-new", new UserRepositoryTdImp());
+        int notMoved = 0;
+        while (!SUT.shardOf(emails.get(notMoved)).equals(shardsBefore.get(notMoved))) {
+            notMoved++;
+        }
+        String shardName = shardsBefore.get(notMoved);
+
+        assertNull(SUT.getUserByEmail(emails.get(notMoved)));
+
+        for (Map.Entry<String, UserRepositoryTdImp> shard : shards.entrySet()) {
+            assertEquals(shard.getValue().getUserByEmailCount.get(), shard.getKey().equals(shardName) ? 1 : 0);
+        }
+    }
+
+    @Test
+    public void getUsersByEmails_manyShards_oneParallelCallPerShard () throws Exception {
+        List<String> emails = emails(100);
+        addAll(emails);
+
+        Map<String, UserEntity> users = SUT.getUsersByEmails(emails);
+
+        assertEquals(users.size(), 100);
+        assertEquals(executor.executeCount, SHARD_COUNT);
+        for (UserRepositoryTdImp shard : shards.values()) {
+            assertEquals(shard.batchCount.get(), 1);
+        }
+    }
+
+    @Test
+    public void addUsers_manyShards_addedOnTheirShardsAndExistingSkipped () throws Exception {
+        SUT.addUser("student0@fpt.edu.vn", FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS);
+        List<UserRepository.NewUser> newUsers = new ArrayList<>();
+        for (String email : emails(100)) {
+            newUsers.add(new UserRepository.NewUser(email, FULL_NAME, "", STUDENT_ROLE, ACTIVE_STATUS));
+        }
+
+        Map<String, UserEntity> added = SUT.addUsers(newUsers);
+
+        assertEquals(added.size(), 99);
+        for (String email : emails(100)) {
+            assertEquals(shards.get(SUT.shardOf(email)).users.getUserByEmail(email).getEmail(), email);
+        }
+    }
+
+    @Test
+    public void getUsersByEmails_oneShardDown_connectionException () throws Exception {
+        shards.get("shard-2").isConnectionError = true;
+
+        try {
+            SUT.getUsersByEmails(emails(100));
+            fail();
+        } catch (ConnectionException ex) {
+            for (UserRepositoryTdImp shard : shards.values()) {
+                assertEquals(shard.batchCount.get(), 1);
+            }
+        }
+    }
+
+    @Test
+    public void getUsersByEmails_fanOutExecutorSaturated_overloadedException () throws Exception {
+        executor.isSaturated = true;
+
+        try {
+            SUT.getUsersByEmails(emails(100));
+            fail();
+        } catch (OverloadedException ex) {
+            for (UserRepositoryTdImp shard : shards.values()) {
+                assertEquals(shard.batchCount.get(), 0);
+            }
+        }
+    }
+}
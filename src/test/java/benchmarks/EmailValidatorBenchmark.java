@@ -0,0 +1,37 @@
+package benchmarks;
+
+import login_convention.EmailValidator;
+import login_convention.EmailValidatorImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EmailValidatorImp.check in isolation, for a student, a staff member and a rejected address.
+ * */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailValidatorBenchmark {
+    @Param({"hoangnmse140123@fpt.edu.vn", "hoangnm@fe.edu.vn", "hoang.nguyen@gmail.com"})
+    public String email;
+
+    private final EmailValidator SUT = new EmailValidatorImp();
+
+    @Benchmark
+    public EmailValidator.Result check() {
+        return SUT.check(email);
+    }
+}
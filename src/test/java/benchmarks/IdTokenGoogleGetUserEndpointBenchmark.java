@@ -0,0 +1,77 @@
+package benchmarks;
+
+import adapters.google_api.IdTokenGoogleGetUserEndpoint;
+import adapters.google_api.JwksKeySet;
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline login: verify a 2048 bit RS256 Google ID token against a warm key set.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdTokenGoogleGetUserEndpointBenchmark {
+    private static final String CLIENT_ID = "1234567890-abc.apps.googleusercontent.com";
+
+    private IdTokenGoogleGetUserEndpoint SUT;
+    private String idToken;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        String jwks = "{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"key-1\""
+                + ",\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\""
+                + ",\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+        JwksKeySet keySet = new JwksKeySet(() -> jwks, 1, 1, TimeUnit.HOURS);
+        SUT = new IdTokenGoogleGetUserEndpoint(keySet, CLIENT_ID);
+
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        String header = "{\"alg\":\"RS256\",\"kid\":\"key-1\",\"typ\":\"JWT\"}";
+        String claims = "{\"iss\":\"https://accounts.google.com\",\"aud\":\"" + CLIENT_ID + "\""
+                + ",\"sub\":\"109876543210987654321\",\"email\":\"" + StandIns.STUDENT_EMAIL + "\",\"email_verified\":true"
+                + ",\"name\":\"Hoang Nguyen\",\"picture\":\"https://lh3.googleusercontent.com/a/photo.jpg\",\"exp\":" + exp + "}";
+        String signedPart = encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(keyPair.getPrivate());
+        signer.update(signedPart.getBytes(StandardCharsets.US_ASCII));
+        idToken = signedPart + "." + encoder.encodeToString(signer.sign());
+
+        if (!(SUT.getUser(idToken) instanceof GoogleGetUserEndpoint.Result.Success)) {
+            throw new IllegalStateException("benchmark token does not verify");
+        }
+    }
+
+    @Benchmark
+    public GoogleGetUserEndpoint.Result getUser() throws ConnectionException {
+        return SUT.getUser(idToken);
+    }
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+
+import adapters.user_repository.InMemoryUserRepository;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.UserRepository;
+import login_convention.EmailValidator;
+import login_convention.EmailValidatorImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import user_import.ImportUsersUseCase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time to import IMPORT_SIZE students into a repository where every call is a ROUND_TRIP_MICROS round trip,
+ * one getUserByEmail and addUser per line against the ImportUsersUseCase pipeline.
+ * */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImportUsersUseCaseBenchmark {
+    private static final int IMPORT_SIZE = 10_000;
+    private static final long ROUND_TRIP_MICROS = 100;
+
+    public enum Strategy {
+        ONE_BY_ONE, PIPELINE
+    }
+
+    @Param
+    public Strategy strategy;
+
+    private String file;
+
+    // One park per call, batch calls included
+    private static class RemoteUserRepository implements UserRepository {
+        private final InMemoryUserRepository userRepository = new InMemoryUserRepository();
+
+        private static void roundTrip() {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(ROUND_TRIP_MICROS));
+        }
+
+        @Override
+        public UserEntity getUserByEmail(String email) {
+            roundTrip();
+            return userRepository.getUserByEmail(email);
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws AlreadyExistException {
+            roundTrip();
+            return userRepository.addUser(email, fullName, avatar, role, userStatus);
+        }
+
+        @Override
+        public Map<String, UserEntity> getUsersByEmails(Collection<String> emails) throws ConnectionException {
+            roundTrip();
+            return userRepository.getUsersByEmails(emails);
+        }
+
+        @Override
+        public Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+            roundTrip();
+            return userRepository.addUsers(newUsers);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < IMPORT_SIZE; i++) {
+            lines.append("hoangnmse").append(140000 + i).append("@fpt.edu.vn,FAMILY_NAME GIVEN_NAME\n");
+        }
+        file = lines.toString();
+    }
+
+    @Benchmark
+    public long importUsers() throws IOException, ConnectionException {
+        UserRepository userRepository = new RemoteUserRepository();
+        EmailValidator emailValidator = new EmailValidatorImp();
+        BufferedReader in = new BufferedReader(new StringReader(file));
+        if (strategy == Strategy.PIPELINE) {
+            return new ImportUsersUseCase(userRepository, emailValidator).executes(in, null).addedCount;
+        }
+
+        long added = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            int comma = line.indexOf(',');
+            String email = line.substring(0, comma);
+            EmailValidator.Result validatorResult = emailValidator.check(email);
+            if (validatorResult.isValid && userRepository.getUserByEmail(email) == null) {
+                try {
+                    userRepository.addUser(email, line.substring(comma + 1), null, validatorResult.role, UserStatus.of(UserStatus.STATUS.ACTIVE));
+                    added++;
+                } catch (AlreadyExistException ex) {
+                    // counted as existing
+                }
+            }
+        }
+        return added;
+    }
+}
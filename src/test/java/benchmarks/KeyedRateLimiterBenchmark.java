@@ -0,0 +1,47 @@
+package benchmarks;
+
+import login.KeyedRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KeyedRateLimiter.tryAcquire from 8 threads at once, either all on one hot key (worst case CAS contention)
+ * or spread over many keys, with the map kept at its bound so eviction is part of the cost.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class KeyedRateLimiterBenchmark {
+    @Param({"1", "1000", "1000000"})
+    public int keys;
+
+    private KeyedRateLimiter<Long> SUT;
+
+    @Setup
+    public void setup() {
+        // a generous limit, so the hot key mostly succeeds and every call does its CAS
+        SUT = new KeyedRateLimiter<>(1_000_000, 1, TimeUnit.MILLISECONDS, 1000, 100_000);
+    }
+
+    @Benchmark
+    public boolean tryAcquire() {
+        return SUT.tryAcquire((long) ThreadLocalRandom.current().nextInt(keys));
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import benchmarks.StandIns.FixedGoogleGetUserEndpoint;
+import benchmarks.StandIns.FixedUserRepository;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import login.LoginService;
+import login.LoginWithGoogleUseCase;
+import login_convention.EmailValidatorImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logins per second through LoginService when Google takes latencyMicros to answer,
+ * with a virtual thread per login against a fixed pool of platform threads.
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginServiceBenchmark {
+    private static final int LOGINS_PER_OPERATION = 1000;
+    private static final int PLATFORM_POOL_SIZE = 64;
+
+    public enum Executor {
+        VIRTUAL_THREADS, PLATFORM_POOL
+    }
+
+    @Param
+    public Executor executor;
+
+    @Param({"1000"})
+    public long latencyMicros;
+
+    private LoginService SUT;
+    private final CompletableFuture<?>[] futures = new CompletableFuture<?>[LOGINS_PER_OPERATION];
+
+    @Setup
+    public void setup() {
+        GoogleGetUserEndpoint endpoint = new FixedGoogleGetUserEndpoint(
+                new GoogleGetUserEndpoint.Result.Success(StandIns.googlePojo(StandIns.GMAIL_EMAIL)), latencyMicros);
+        FixedUserRepository userRepository = new FixedUserRepository(StandIns.user(StandIns.GMAIL_EMAIL), null);
+        LoginWithGoogleUseCase loginWithGoogleUseCase = new LoginWithGoogleUseCase(endpoint, userRepository, new EmailValidatorImp());
+
+        if (executor == Executor.VIRTUAL_THREADS) {
+            SUT = new LoginService(loginWithGoogleUseCase, LOGINS_PER_OPERATION, 0);
+        } else {
+            SUT = new LoginService(loginWithGoogleUseCase, LOGINS_PER_OPERATION, 0, Executors.newFixedThreadPool(PLATFORM_POOL_SIZE));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        SUT.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOGINS_PER_OPERATION)
+    public void login() {
+        for (int i = 0; i < LOGINS_PER_OPERATION; i++) {
+            futures[i] = SUT.login("ACCESS_TOKEN");
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
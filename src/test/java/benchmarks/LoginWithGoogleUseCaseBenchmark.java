@@ -0,0 +1,86 @@
+package benchmarks;
+
+import benchmarks.StandIns.FixedGoogleGetUserEndpoint;
+import benchmarks.StandIns.FixedUserRepository;
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import login.LoginMetrics;
+import login.LoginWithGoogleUseCase;
+import login.RecordingLoginMetrics;
+import login_convention.EmailValidatorImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of LoginWithGoogleUseCase.executes itself for every branch, with ports that answer instantly.
+ * */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginWithGoogleUseCaseBenchmark {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+
+    public enum Branch {
+        EXISTING_USER, NEW_VALID_USER, NOT_ALLOWED, AUTH_ERROR, CONNECTION_EXCEPTION
+    }
+
+    @Param
+    public Branch branch;
+
+    // whether executes reports to RecordingLoginMetrics or to the no-op default
+    @Param({"false", "true"})
+    public boolean recordMetrics;
+
+    private LoginWithGoogleUseCase SUT;
+
+    @Setup
+    public void setup() {
+        GoogleGetUserEndpoint endpoint;
+        FixedUserRepository userRepository;
+        switch (branch) {
+            case EXISTING_USER:
+                endpoint = new FixedGoogleGetUserEndpoint(new GoogleGetUserEndpoint.Result.Success(StandIns.googlePojo(StandIns.GMAIL_EMAIL)));
+                userRepository = new FixedUserRepository(StandIns.user(StandIns.GMAIL_EMAIL), null);
+                break;
+            case NEW_VALID_USER:
+                endpoint = new FixedGoogleGetUserEndpoint(new GoogleGetUserEndpoint.Result.Success(StandIns.googlePojo(StandIns.STUDENT_EMAIL)));
+                userRepository = new FixedUserRepository(null, StandIns.user(StandIns.STUDENT_EMAIL));
+                break;
+            case NOT_ALLOWED:
+                endpoint = new FixedGoogleGetUserEndpoint(new GoogleGetUserEndpoint.Result.Success(StandIns.googlePojo(StandIns.GMAIL_EMAIL)));
+                userRepository = new FixedUserRepository(null, null);
+                break;
+            case AUTH_ERROR:
+                endpoint = new FixedGoogleGetUserEndpoint(new GoogleGetUserEndpoint.Result.AuthError());
+                userRepository = new FixedUserRepository(null, null);
+                break;
+            case CONNECTION_EXCEPTION:
+                endpoint = new FixedGoogleGetUserEndpoint(new ConnectionException("benchmark"));
+                userRepository = new FixedUserRepository(null, null);
+                break;
+            default:
+                throw new IllegalStateException("Unknown branch " + branch);
+        }
+        LoginMetrics metrics = recordMetrics ? new RecordingLoginMetrics() : LoginMetrics.NOOP;
+        SUT = new LoginWithGoogleUseCase(endpoint, userRepository, new EmailValidatorImp(), metrics);
+    }
+
+    @Benchmark
+    public LoginWithGoogleUseCase.Result executes() {
+        return SUT.executes(ACCESS_TOKEN);
+    }
+}
@@ -0,0 +1,100 @@
+package benchmarks;
+
+import benchmarks.StandIns.FixedGoogleGetUserEndpoint;
+import benchmarks.StandIns.FixedUserRepository;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.testonly.testonly.EmailMembership;
+import login.LoginMetrics;
+import login.LoginWithGoogleUseCase;
+import login.PolicyLoginWithGoogleUseCase;
+import login.PolicyLoginWithGoogleUseCase.CheckOrder;
+import login_convention.EmailValidatorImp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one login for every branch and policy, with Google and the repository each taking
+ * PORT_LATENCY_MICROS, so the numbers show how many round trips a branch waits for one after another.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolicyLoginWithGoogleUseCaseBenchmark {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final long PORT_LATENCY_MICROS = 1000;
+
+    public enum Branch {
+        EXISTING_USER, NEW_VALID_USER, NOT_ALLOWED
+    }
+
+    public enum Policy {
+        // LoginWithGoogleUseCase as it is
+        BASELINE,
+        // check before the lookup, skipping it for not allowed emails membership does not know
+        VALIDATE_FIRST,
+        // VALIDATE_FIRST, plus the lookup of the email hint while Google is asked
+        PREFETCH
+    }
+
+    @Param
+    public Branch branch;
+
+    @Param
+    public Policy policy;
+
+    private LoginWithGoogleUseCase baseline;
+    private PolicyLoginWithGoogleUseCase SUT;
+    private ExecutorService prefetchExecutor;
+    private String email;
+
+    @Setup
+    public void setup() {
+        email = branch == Branch.NEW_VALID_USER ? StandIns.STUDENT_EMAIL : StandIns.GMAIL_EMAIL;
+        GoogleGetUserEndpoint endpoint = new FixedGoogleGetUserEndpoint(
+                new GoogleGetUserEndpoint.Result.Success(StandIns.googlePojo(email)), PORT_LATENCY_MICROS);
+        FixedUserRepository userRepository = branch == Branch.EXISTING_USER
+                ? new FixedUserRepository(StandIns.user(email), null, PORT_LATENCY_MICROS)
+                : new FixedUserRepository(null, StandIns.user(email), PORT_LATENCY_MICROS);
+        boolean isKnown = branch == Branch.EXISTING_USER;
+        EmailMembership membership = anyEmail -> isKnown;
+
+        prefetchExecutor = Executors.newSingleThreadExecutor();
+        baseline = new LoginWithGoogleUseCase(endpoint, userRepository, new EmailValidatorImp());
+        SUT = new PolicyLoginWithGoogleUseCase(endpoint, userRepository, new EmailValidatorImp(), LoginMetrics.NOOP,
+                CheckOrder.BEFORE_LOOKUP, membership, policy == Policy.PREFETCH ? prefetchExecutor : null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        prefetchExecutor.shutdown();
+    }
+
+    @Benchmark
+    public LoginWithGoogleUseCase.Result executes() {
+        switch (policy) {
+            case BASELINE:
+                return baseline.executes(ACCESS_TOKEN);
+            case VALIDATE_FIRST:
+                return SUT.executes(ACCESS_TOKEN);
+            default:
+                return SUT.executesWithHint(ACCESS_TOKEN, email);
+        }
+    }
+}
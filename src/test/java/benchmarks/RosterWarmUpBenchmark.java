@@ -0,0 +1,73 @@
+package benchmarks;
+
+import adapters.user_repository.CachingUserRepository;
+import adapters.user_repository.RosterFile;
+import adapters.user_repository.RosterWarmUp;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to warm up a cache from a roster of ROSTER_SIZE users, read from the page cache.
+ * */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 30)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RosterWarmUpBenchmark {
+    private static final int ROSTER_SIZE = 100_000;
+
+    @Param
+    public RosterFile.Format format;
+
+    private RosterWarmUp SUT;
+    private Path roster;
+
+    @Setup
+    public void setup() throws IOException {
+        List<UserEntity> users = new ArrayList<>(ROSTER_SIZE);
+        for (int i = 0; i < ROSTER_SIZE; i++) {
+            users.add(new UserEntity("ID_" + i, "hoangnmse" + (140000 + i) + "@fpt.edu.vn", "FAMILY_NAME GIVEN_NAME " + i,
+                    UserRole.of(UserRole.TYPE.STUDENT), UserStatus.of(UserStatus.STATUS.ACTIVE)));
+        }
+        roster = Files.createTempFile("roster", format == RosterFile.Format.CSV ? ".csv" : ".bin");
+        if (format == RosterFile.Format.CSV) {
+            RosterFile.writeCsv(roster, users);
+        } else {
+            RosterFile.writeBinary(roster, users);
+        }
+        SUT = new RosterWarmUp();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(roster);
+    }
+
+    @Benchmark
+    public RosterWarmUp.Report load() throws IOException {
+        CachingUserRepository cache = new CachingUserRepository(new StandIns.FixedUserRepository(null, null), ROSTER_SIZE, 1, 0, TimeUnit.HOURS);
+        return SUT.load(roster, cache);
+    }
+}
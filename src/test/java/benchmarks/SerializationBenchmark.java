@@ -0,0 +1,87 @@
+package benchmarks;
+
+import adapters.serialization.BinaryUserCodec;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import domain.entities.UserEntity;
+import domain.ports.google_api.GooglePojo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BinaryUserCodec against Jackson JSON. Encoded sizes are printed once at setup.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    private final BinaryUserCodec codec = new BinaryUserCodec(Arrays.asList("fpt.edu.vn", "fe.edu.vn"));
+    // GooglePojo.getFullName is written but has no setter
+    private final ObjectMapper json = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final UserEntity user = StandIns.user(StandIns.STUDENT_EMAIL);
+    private final GooglePojo pojo = StandIns.googlePojo(StandIns.STUDENT_EMAIL);
+    private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+    private byte[] pojoJson;
+    private ByteBuffer pojoBinary;
+
+    @Setup
+    public void setup() throws IOException {
+        pojoJson = json.writeValueAsBytes(pojo);
+        pojoBinary = ByteBuffer.allocate(codec.sizeOf(pojo));
+        codec.writeGooglePojo(pojoBinary, pojo);
+        pojoBinary.flip();
+        System.out.println("UserEntity: binary " + codec.sizeOf(user) + " B, json " + json.writeValueAsBytes(user).length + " B");
+        System.out.println("GooglePojo: binary " + codec.sizeOf(pojo) + " B, json " + pojoJson.length + " B");
+    }
+
+    @Benchmark
+    public ByteBuffer encodeUserBinary() {
+        buffer.clear();
+        codec.writeUser(buffer, user);
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] encodeUserJson() throws IOException {
+        return json.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeGooglePojoBinary() {
+        buffer.clear();
+        codec.writeGooglePojo(buffer, pojo);
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] encodeGooglePojoJson() throws IOException {
+        return json.writeValueAsBytes(pojo);
+    }
+
+    @Benchmark
+    public GooglePojo decodeGooglePojoBinary() {
+        return codec.readGooglePojo(pojoBinary.duplicate());
+    }
+
+    @Benchmark
+    public GooglePojo decodeGooglePojoJson() throws IOException {
+        return json.readValue(pojoJson, GooglePojo.class);
+    }
+}
@@ -0,0 +1,97 @@
+package benchmarks;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import domain.ports.testonly.testonly.UserRepository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In memory stand-ins for the ports, so benchmarks measure our code and not a network.
+ * They return prebuilt values and allocate nothing themselves.
+ * */
+final class StandIns {
+    static final String STUDENT_EMAIL = "hoangnmse140123@fpt.edu.vn";
+    static final String GMAIL_EMAIL = "hoang.nguyen@gmail.com";
+
+    private StandIns() {
+    }
+
+    static GooglePojo googlePojo(String email) {
+        return new GooglePojo("ID", email, true, "NAME", "GIVEN_NAME", "FAMILY_NAME", "", "");
+    }
+
+    static UserEntity user(String email) {
+        return new UserEntity("ID", email, "FAMILY_NAME GIVEN_NAME", new UserRole(UserRole.TYPE.STUDENT), new UserStatus(UserStatus.STATUS.ACTIVE));
+    }
+
+    static class FixedGoogleGetUserEndpoint implements GoogleGetUserEndpoint {
+        private final Result result;
+        private final ConnectionException connectionException;
+        private final long latencyNanos;
+
+        FixedGoogleGetUserEndpoint(Result result) {
+            this(result, 0);
+        }
+
+        FixedGoogleGetUserEndpoint(Result result, long latencyMicros) {
+            this.result = result;
+            this.connectionException = null;
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        }
+
+        FixedGoogleGetUserEndpoint(ConnectionException connectionException) {
+            this.result = null;
+            this.connectionException = connectionException;
+            this.latencyNanos = 0;
+        }
+
+        @Override
+        public Result getUser(String accessToken) throws ConnectionException {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            if (connectionException != null) {
+                throw connectionException;
+            }
+            return result;
+        }
+    }
+
+    static class FixedUserRepository implements UserRepository {
+        private final UserEntity existingUser;
+        private final UserEntity addedUser;
+        private final long latencyNanos;
+
+        FixedUserRepository(UserEntity existingUser, UserEntity addedUser) {
+            this(existingUser, addedUser, 0);
+        }
+
+        FixedUserRepository(UserEntity existingUser, UserEntity addedUser, long latencyMicros) {
+            this.existingUser = existingUser;
+            this.addedUser = addedUser;
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        }
+
+        @Override
+        public UserEntity getUserByEmail(String email) {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            return existingUser;
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            return addedUser;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserEntity as a key in a HashMap and a ConcurrentHashMap, looked up with an equal but distinct instance,
+ * so the cost is hashCode plus equals rather than the identity shortcut.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserEntityMapBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Map<UserEntity, UserEntity> hashMap;
+    private Map<UserEntity, UserEntity> concurrentHashMap;
+    private UserEntity[] probes;
+    private int next;
+
+    private static UserEntity user(int i) {
+        return new UserEntity("user-" + i, "hoangnmse" + i + "@fpt.edu.vn", "Hoang Nguyen",
+                UserRole.of(UserRole.TYPE.STUDENT), UserStatus.of(UserStatus.STATUS.ACTIVE));
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        hashMap = new HashMap<>();
+        concurrentHashMap = new ConcurrentHashMap<>();
+        probes = new UserEntity[size];
+        for (int i = 0; i < size; i++) {
+            UserEntity user = user(i);
+            hashMap.put(user, user);
+            concurrentHashMap.put(user, user);
+            probes[i] = user(i);
+        }
+    }
+
+    private UserEntity nextProbe() {
+        int i = next;
+        next = i + 1 == probes.length ? 0 : i + 1;
+        return probes[i];
+    }
+
+    @Benchmark
+    public UserEntity hashMapGet() {
+        return hashMap.get(nextProbe());
+    }
+
+    @Benchmark
+    public UserEntity concurrentHashMapGet() {
+        return concurrentHashMap.get(nextProbe());
+    }
+
+    @Benchmark
+    public int hashCodeOnly() {
+        return nextProbe().hashCode();
+    }
+}
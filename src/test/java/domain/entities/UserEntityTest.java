@@ -0,0 +1,97 @@
+package domain.entities;
+
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class UserEntityTest {
+    private static final String ID = "140123";
+    private static final String EMAIL = "hoangnmse140123@fpt.edu.vn";
+
+    private static UserEntity user (String id) {
+        return new UserEntity(id, EMAIL, "Hoang Nguyen",
+                UserRole.of(UserRole.TYPE.STUDENT), UserStatus.of(UserStatus.STATUS.ACTIVE));
+    }
+
+    private static class OtherEntity extends Entity {
+        OtherEntity(String id) {
+            super(id);
+        }
+    }
+
+    @Test
+    public void constructor_id_idAssigned () {
+        assertEquals(user(ID).getId(), ID);
+        assertEquals(user(ID).id, ID);
+    }
+
+    @Test
+    public void equals_sameId_equalWithSameHashCode () {
+        UserEntity first = user(ID);
+        UserEntity second = user(ID);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void equals_differentId_notEqual () {
+        assertNotEquals(user(ID), user("140124"));
+    }
+
+    @Test
+    public void equals_nullOrOtherType_notEqual () {
+        UserEntity user = user(ID);
+        assertFalse(user.equals(null));
+        assertFalse(user.equals(ID));
+        assertFalse(user.equals(new OtherEntity(ID)));
+    }
+
+    @Test
+    public void equals_nullId_onlyEqualToItself () {
+        UserEntity first = user(null);
+        UserEntity second = user(null);
+        assertTrue(first.equals(first));
+        assertFalse(first.equals(second));
+        assertFalse(first.equals(user(ID)));
+        assertFalse(user(ID).equals(first));
+        assertEquals(first.hashCode(), first.hashCode());
+    }
+
+    @Test
+    public void hashCode_afterMutation_unchanged () {
+        UserEntity user = user(ID);
+        int hash = user.hashCode();
+        user.setStatus(UserStatus.of(UserStatus.STATUS.BLOCKED));
+        user.setRole(UserRole.of(UserRole.TYPE.ADMIN));
+        assertEquals(user.hashCode(), hash);
+    }
+
+    @Test
+    public void hashMap_lookupWithEqualEntity_found () {
+        Map<UserEntity, String> map = new HashMap<>();
+        map.put(user(ID), "first");
+        map.put(user(ID), "second");
+        assertEquals(map.size(), 1);
+        assertEquals(map.get(user(ID)), "second");
+        assertNull(map.get(user("140124")));
+    }
+
+    @Test
+    public void concurrentHashMap_lookupWithEqualEntity_found () {
+        Map<UserEntity, UserEntity> map = new ConcurrentHashMap<>();
+        UserEntity stored = user(ID);
+        map.put(stored, stored);
+        assertSame(map.get(user(ID)), stored);
+        assertSame(map.putIfAbsent(user(ID), user(ID)), stored);
+        assertEquals(map.size(), 1);
+    }
+}
@@ -0,0 +1,161 @@
+package login;
+
+import adapters.google_api.ExecutorAsyncGoogleGetUserEndpoint;
+import adapters.user_repository.ExecutorAsyncUserRepository;
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import domain.ports.testonly.testonly.UserRepository;
+import login.LoginWithGoogleUseCase.Result;
+import login.LoginWithGoogleUseCase.Result.*;
+import login_convention.EmailValidator;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class AsyncLoginWithGoogleUseCaseTest {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final String EMAIL = "EMAIL";
+    private static final String ID = "ID";
+    private static final UserStatus ACTIVE_STATUS = new UserStatus(UserStatus.STATUS.ACTIVE);
+    private static final UserRole NOT_ADMIN_ROLE = new UserRole(UserRole.TYPE.STUDENT);
+    private static final UserEntity NON_INITIALIZE_USER = null;
+    private static final GooglePojo GOOGLE_POJO = new GooglePojo(ID, EMAIL, true, "NAME", "GIVEN_NAME", "FAMILY_NAME", "", "");
+    private static final UserEntity USER = new UserEntity(ID, EMAIL, GOOGLE_POJO.getFullName(), NOT_ADMIN_ROLE, ACTIVE_STATUS);
+
+    private AsyncLoginWithGoogleUseCase SUT;
+    private ExecutorService executor;
+    private GoogleGetUserEndpointTdImp googleGetUserEndpointTd;
+    private UserRepositoryTdImp userRepository;
+    private EmailValidatorTdImp emailValidator;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        executor = Executors.newFixedThreadPool(2);
+        googleGetUserEndpointTd = new GoogleGetUserEndpointTdImp();
+        userRepository = new UserRepositoryTdImp();
+        emailValidator = new EmailValidatorTdImp();
+        SUT = new AsyncLoginWithGoogleUseCase(
+                new ExecutorAsyncGoogleGetUserEndpoint(googleGetUserEndpointTd, executor),
+                new ExecutorAsyncUserRepository(userRepository, executor),
+                emailValidator);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown () {
+        executor.shutdownNow();
+    }
+
+    private static class GoogleGetUserEndpointTdImp implements GoogleGetUserEndpoint {
+        public boolean isGeneralError;
+        public boolean isAuthError;
+        public boolean isConnectionError;
+
+        @Override
+        public Result getUser(String accessToken) throws ConnectionException {
+            if (isGeneralError) {
+                return new Result.GeneralError();
+            }
+            if (isAuthError) {
+                return new Result.AuthError();
+            }
+            if (isConnectionError) {
+                throw new ConnectionException("");
+            }
+            return new Result.Success(GOOGLE_POJO);
+        }
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        public boolean isConnectionExceptionOccurs = false;
+        public boolean isUserNotfound = false;
+        public volatile UserEntity user = NON_INITIALIZE_USER;
+
+        @Override
+        public UserEntity getUserByEmail(String email) throws ConnectionException {
+            if (isConnectionExceptionOccurs) {
+                throw new ConnectionException("");
+            }
+            return isUserNotfound ? NON_INITIALIZE_USER : USER;
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) {
+            this.user = new UserEntity(ID, email, fullName, role, userStatus);
+            return this.user;
+        }
+    }
+
+    private static class EmailValidatorTdImp implements EmailValidator {
+        public boolean isFptEmail = false;
+
+        @Override
+        public Result check(String email) {
+            return isFptEmail ? new Result(NOT_ADMIN_ROLE, true) : new Result(null, false);
+        }
+    }
+
+    @Test
+    public void loginWithGoogleAsync_userInDb_sameUserReturned () {
+        Result result = SUT.executesAsync(ACCESS_TOKEN).join();
+        assertTrue(result instanceof Success);
+        assertEquals(((Success) result).user, USER);
+    }
+
+    @Test
+    public void loginWithGoogleAsync_fptButNotInDb_userAdded () {
+        userRepository.isUserNotfound = true;
+        emailValidator.isFptEmail = true;
+        Result result = SUT.executesAsync(ACCESS_TOKEN).join();
+        assertTrue(result instanceof Success);
+        assertEquals(userRepository.user.getEmail(), EMAIL);
+        assertEquals(((Success) result).user, userRepository.user);
+    }
+
+    @Test
+    public void loginWithGoogleAsync_notFptAndNotInDb_notAllowedReturned () {
+        userRepository.isUserNotfound = true;
+        Result result = SUT.executesAsync(ACCESS_TOKEN).join();
+        assertTrue(result instanceof NotAllowed);
+        assertEquals(userRepository.user, NON_INITIALIZE_USER);
+    }
+
+    @Test
+    public void loginWithGoogleAsync_endPointAuthError_authErrorReturned () {
+        googleGetUserEndpointTd.isAuthError = true;
+        assertTrue(SUT.executesAsync(ACCESS_TOKEN).join() instanceof AuthError);
+    }
+
+    @Test
+    public void loginWithGoogleAsync_endPointGeneralError_generalErrorReturned () {
+        googleGetUserEndpointTd.isGeneralError = true;
+        assertTrue(SUT.executesAsync(ACCESS_TOKEN).join() instanceof GeneralError);
+    }
+
+    @Test
+    public void loginWithGoogleAsync_endPointConnectionException_generalErrorReturned () {
+        googleGetUserEndpointTd.isConnectionError = true;
+        assertTrue(SUT.executesAsync(ACCESS_TOKEN).join() instanceof GeneralError);
+    }
+
+    @Test
+    public void loginWithGoogleAsync_userRepositoryConnectionException_generalErrorReturned () {
+        userRepository.isConnectionExceptionOccurs = true;
+        assertTrue(SUT.executesAsync(ACCESS_TOKEN).join() instanceof GeneralError);
+    }
+
+    @Test
+    public void loginWithGoogleAsync_executorRejects_overloadedReturned () {
+        executor.shutdown();
+        assertTrue(SUT.executesAsync(ACCESS_TOKEN).join() instanceof Overloaded);
+    }
+}
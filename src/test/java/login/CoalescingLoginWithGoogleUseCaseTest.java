@@ -0,0 +1,219 @@
+package login;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import domain.ports.testonly.testonly.UserRepository;
+import login.LoginWithGoogleUseCase.Result;
+import login.LoginWithGoogleUseCase.Result.*;
+import login_convention.EmailValidator;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class CoalescingLoginWithGoogleUseCaseTest {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final String OTHER_ACCESS_TOKEN = "OTHER_ACCESS_TOKEN";
+    private static final String EMAIL = "EMAIL";
+    private static final String ID = "ID";
+    private static final UserRole NOT_ADMIN_ROLE = new UserRole(UserRole.TYPE.STUDENT);
+    private static final GooglePojo GOOGLE_POJO = new GooglePojo(ID, EMAIL, true, "NAME", "GIVEN_NAME", "FAMILY_NAME", "", "");
+    private static final int CONCURRENT_LOGINS = 8;
+
+    private CoalescingLoginWithGoogleUseCase SUT;
+    private GoogleGetUserEndpointTdImp googleGetUserEndpointTd;
+    private UserRepositoryTdImp userRepository;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        googleGetUserEndpointTd = new GoogleGetUserEndpointTdImp();
+        userRepository = new UserRepositoryTdImp();
+        SUT = new CoalescingLoginWithGoogleUseCase(googleGetUserEndpointTd, userRepository, new EmailValidatorTdImp());
+    }
+
+    private static class GoogleGetUserEndpointTdImp implements GoogleGetUserEndpoint {
+        public final AtomicInteger callCount = new AtomicInteger();
+        public final CountDownLatch release = new CountDownLatch(1);
+        public boolean isConnectionError;
+
+        @Override
+        public Result getUser(String accessToken) throws ConnectionException {
+            callCount.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (isConnectionError) {
+                throw new ConnectionException("");
+            }
+            return new Result.Success(GOOGLE_POJO);
+        }
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        public final AtomicInteger getUserByEmailCount = new AtomicInteger();
+        public final AtomicInteger addUserCount = new AtomicInteger();
+        public volatile UserEntity user;
+        public volatile CountDownLatch lookupRelease = new CountDownLatch(0);
+
+        @Override
+        public UserEntity getUserByEmail(String email) {
+            getUserByEmailCount.incrementAndGet();
+            try {
+                lookupRelease.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return user;
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) {
+            addUserCount.incrementAndGet();
+            user = new UserEntity(ID, email, fullName, role, userStatus);
+            return user;
+        }
+    }
+
+    private static class EmailValidatorTdImp implements EmailValidator {
+        @Override
+        public Result check(String email) {
+            return new Result(NOT_ADMIN_ROLE, true);
+        }
+    }
+
+    private List<Result> loginConcurrently(String... tokens) throws InterruptedException {
+        List<Result> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (String token : tokens) {
+            Thread thread = new Thread(() -> {
+                Result result = SUT.executes(token);
+                synchronized (results) {
+                    results.add(result);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        // every thread is either inside the endpoint or waiting for the one that is
+        for (Thread thread : threads) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+        }
+        googleGetUserEndpointTd.release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return results;
+    }
+
+    private Thread startLogin(String token, List<Result> results) throws InterruptedException {
+        Thread thread = new Thread(() -> {
+            Result result = SUT.executes(token);
+            synchronized (results) {
+                results.add(result);
+            }
+        });
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+
+    private static String[] repeat(String token, int times) {
+        String[] tokens = new String[times];
+        for (int i = 0; i < times; i++) {
+            tokens[i] = token;
+        }
+        return tokens;
+    }
+
+    @Test
+    public void loginWithGoogle_concurrentSameToken_endpointCalledOnce () throws InterruptedException {
+        loginConcurrently(repeat(ACCESS_TOKEN, CONCURRENT_LOGINS));
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 1);
+    }
+
+    @Test
+    public void loginWithGoogle_concurrentSameToken_userAddedOnceAndResultPerCaller () throws InterruptedException {
+        List<Result> results = loginConcurrently(repeat(ACCESS_TOKEN, CONCURRENT_LOGINS));
+        assertEquals(userRepository.addUserCount.get(), 1);
+        assertEquals(results.size(), CONCURRENT_LOGINS);
+        for (int i = 0; i < results.size(); i++) {
+            assertTrue(results.get(i) instanceof Success);
+            assertSame(((Success) results.get(i)).user, ((Success) results.get(0)).user);
+            for (int j = 0; j < i; j++) {
+                assertNotSame(results.get(i), results.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void loginWithGoogle_concurrentSameToken_everyLoginCounted () throws InterruptedException {
+        RecordingLoginMetrics metrics = new RecordingLoginMetrics();
+        SUT = new CoalescingLoginWithGoogleUseCase(googleGetUserEndpointTd, userRepository, new EmailValidatorTdImp(), metrics);
+
+        loginConcurrently(repeat(ACCESS_TOKEN, CONCURRENT_LOGINS));
+
+        RecordingLoginMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.SUCCESS_CREATED), 1);
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.SUCCESS_EXISTING), CONCURRENT_LOGINS - 1);
+        assertEquals(snapshot.latencies.get(LoginMetrics.Operation.LOGIN).count, CONCURRENT_LOGINS);
+        assertEquals(snapshot.latencies.get(LoginMetrics.Operation.GOOGLE_GET_USER).count, 1);
+    }
+
+    @Test(timeOut = 5_000)
+    public void loginWithGoogle_concurrentDifferentTokensSameEmail_secondWaitsForFirstLookup () throws InterruptedException {
+        googleGetUserEndpointTd.release.countDown();
+        userRepository.lookupRelease = new CountDownLatch(1);
+        List<Result> results = new ArrayList<>();
+
+        // the first login is inside the repository lookup, the second waits for it instead of looking up itself
+        Thread first = startLogin(ACCESS_TOKEN, results);
+        Thread second = startLogin(OTHER_ACCESS_TOKEN, results);
+        userRepository.lookupRelease.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 2);
+        assertEquals(userRepository.getUserByEmailCount.get(), 1);
+        assertEquals(userRepository.addUserCount.get(), 1);
+        assertEquals(results.size(), 2);
+        for (Result result : results) {
+            assertTrue(result instanceof Success);
+        }
+    }
+
+    @Test
+    public void loginWithGoogle_concurrentSameTokenConnectionException_allGeneralError () throws InterruptedException {
+        googleGetUserEndpointTd.isConnectionError = true;
+        List<Result> results = loginConcurrently(repeat(ACCESS_TOKEN, CONCURRENT_LOGINS));
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 1);
+        for (Result result : results) {
+            assertTrue(result instanceof GeneralError);
+        }
+    }
+
+    @Test
+    public void loginWithGoogle_sequentialSameToken_notCoalesced () {
+        googleGetUserEndpointTd.release.countDown();
+        SUT.executes(ACCESS_TOKEN);
+        SUT.executes(ACCESS_TOKEN);
+        assertEquals(googleGetUserEndpointTd.callCount.get(), 2);
+    }
+}
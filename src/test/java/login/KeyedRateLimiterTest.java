@@ -0,0 +1,134 @@
+package login;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class KeyedRateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private KeyedRateLimiter<String> SUT;
+    private long now;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        now = 1_000 * SECOND;
+        // 1 call per second, bursts of 3
+        SUT = new KeyedRateLimiter<>(1, 1, TimeUnit.SECONDS, 3, 4, () -> now);
+    }
+
+    @Test
+    public void tryAcquire_burst_allowedThenRejected () {
+        assertTrue(SUT.tryAcquire("A"));
+        assertTrue(SUT.tryAcquire("A"));
+        assertTrue(SUT.tryAcquire("A"));
+        assertFalse(SUT.tryAcquire("A"));
+    }
+
+    @Test
+    public void tryAcquire_afterEmissionInterval_oneMoreAllowed () {
+        for (int i = 0; i < 3; i++) {
+            SUT.tryAcquire("A");
+        }
+        now += SECOND;
+        assertTrue(SUT.tryAcquire("A"));
+        assertFalse(SUT.tryAcquire("A"));
+    }
+
+    @Test
+    public void tryAcquire_longIdle_burstRestoredNotAccumulated () {
+        for (int i = 0; i < 3; i++) {
+            SUT.tryAcquire("A");
+        }
+        now += 100 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(SUT.tryAcquire("A"));
+        }
+        assertFalse(SUT.tryAcquire("A"));
+    }
+
+    @Test
+    public void tryAcquire_rejectedCalls_doNotDelayRefill () {
+        for (int i = 0; i < 10; i++) {
+            SUT.tryAcquire("A");
+        }
+        now += SECOND;
+        assertTrue(SUT.tryAcquire("A"));
+    }
+
+    @Test
+    public void tryAcquire_otherKey_ownBucket () {
+        for (int i = 0; i < 3; i++) {
+            SUT.tryAcquire("A");
+        }
+        assertTrue(SUT.tryAcquire("B"));
+    }
+
+    @Test
+    public void tryAcquire_mapFull_refilledBucketsEvictedFirst () {
+        for (int i = 0; i < 3; i++) {
+            SUT.tryAcquire("BUSY");
+        }
+        SUT.tryAcquire("B");
+        SUT.tryAcquire("C");
+        SUT.tryAcquire("D");
+        now += 2 * SECOND;
+
+        SUT.tryAcquire("E");
+
+        assertEquals(SUT.getEvictionCount(), 1);
+        assertEquals(SUT.size(), 4);
+        // BUSY kept its bucket, which refilled two calls only
+        assertTrue(SUT.tryAcquire("BUSY"));
+        assertTrue(SUT.tryAcquire("BUSY"));
+        assertFalse(SUT.tryAcquire("BUSY"));
+    }
+
+    @Test
+    public void tryAcquire_mapFullOfBusyBuckets_oldestDropped () {
+        for (String key : new String[]{"A", "B", "C", "D", "E", "F", "G"}) {
+            for (int i = 0; i < 3; i++) {
+                SUT.tryAcquire(key);
+            }
+        }
+        assertEquals(SUT.size(), 4);
+        assertEquals(SUT.getEvictionCount(), 3);
+        // A was dropped, so it starts again with a full bucket, while G is still empty
+        assertTrue(SUT.tryAcquire("A"));
+        assertFalse(SUT.tryAcquire("G"));
+    }
+
+    @Test
+    public void tryAcquire_concurrentCallers_neverMoreThanBurst () throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (SUT.tryAcquire("A")) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(allowed.get(), 3);
+    }
+}
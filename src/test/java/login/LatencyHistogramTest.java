@@ -0,0 +1,78 @@
+package login;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    private LatencyHistogram SUT;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        SUT = new LatencyHistogram();
+    }
+
+    @Test
+    public void bucketOf_everyValue_withinBucketBounds () {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123_456_789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(bucket) >= value, "value " + value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValueOf(bucket - 1) < value, "value " + value);
+        }
+    }
+
+    @Test
+    public void valueAtPercentile_uniformValues_withinSixPercent () {
+        for (long i = 1; i <= 10_000; i++) {
+            SUT.record(i * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = SUT.snapshot();
+        assertEquals(snapshot.count, 10_000);
+        assertEquals(snapshot.max, 10_000_000);
+        assertClose(snapshot.valueAtPercentile(50), 5_000_000);
+        assertClose(snapshot.valueAtPercentile(99), 9_900_000);
+        assertEquals(snapshot.valueAtPercentile(100), 10_000_000);
+        assertClose((long) snapshot.mean(), 5_000_500);
+    }
+
+    private static void assertClose (long actual, long expected) {
+        assertTrue(Math.abs(actual - expected) <= expected * 0.0625, actual + " not close to " + expected);
+    }
+
+    @Test
+    public void snapshot_nothingRecorded_zeros () {
+        LatencyHistogram.Snapshot snapshot = SUT.snapshot();
+        assertEquals(snapshot.count, 0);
+        assertEquals(snapshot.valueAtPercentile(99), 0);
+        assertEquals(snapshot.mean(), 0.0);
+    }
+
+    @Test
+    public void record_negative_countedAsZero () {
+        SUT.record(-5);
+        assertEquals(SUT.snapshot().valueAtPercentile(50), 0);
+    }
+
+    @Test
+    public void record_concurrently_noCountLost () throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    SUT.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(SUT.snapshot().count, 40_000);
+        assertEquals(SUT.snapshot().max, 9_999);
+    }
+}
@@ -0,0 +1,147 @@
+package login;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import domain.ports.testonly.testonly.UserRepository;
+import login.LoginWithGoogleUseCase.Result;
+import login.LoginWithGoogleUseCase.Result.Success;
+import login_convention.EmailValidator;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class LoginServiceTest {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final String EMAIL = "EMAIL";
+    private static final String ID = "ID";
+    private static final GooglePojo GOOGLE_POJO = new GooglePojo(ID, EMAIL, true, "NAME", "GIVEN_NAME", "FAMILY_NAME", "", "");
+    private static final UserEntity USER = new UserEntity(ID, EMAIL, GOOGLE_POJO.getFullName(),
+            new UserRole(UserRole.TYPE.STUDENT), new UserStatus(UserStatus.STATUS.ACTIVE));
+    private static final int MAX_CONCURRENCY = 2;
+    private static final int MAX_QUEUED = 1;
+
+    private LoginService SUT;
+    private GoogleGetUserEndpointTdImp googleGetUserEndpointTd;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        googleGetUserEndpointTd = new GoogleGetUserEndpointTdImp();
+        LoginWithGoogleUseCase loginWithGoogleUseCase =
+                new LoginWithGoogleUseCase(googleGetUserEndpointTd, new UserRepositoryTdImp(), new EmailValidatorTdImp());
+        SUT = new LoginService(loginWithGoogleUseCase, MAX_CONCURRENCY, MAX_QUEUED);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown () {
+        googleGetUserEndpointTd.release.countDown();
+        SUT.close();
+    }
+
+    private static class GoogleGetUserEndpointTdImp implements GoogleGetUserEndpoint {
+        public final CountDownLatch release = new CountDownLatch(1);
+        public final AtomicInteger running = new AtomicInteger();
+        public final AtomicInteger maxRunning = new AtomicInteger();
+
+        @Override
+        public Result getUser(String accessToken) {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return new Result.Success(GOOGLE_POJO);
+        }
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        @Override
+        public UserEntity getUserByEmail(String email) {
+            return USER;
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) {
+            return USER;
+        }
+    }
+
+    private static class EmailValidatorTdImp implements EmailValidator {
+        @Override
+        public Result check(String email) {
+            return new Result(null, false);
+        }
+    }
+
+    private List<CompletableFuture<Result>> login(int times) {
+        List<CompletableFuture<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            futures.add(SUT.login(ACCESS_TOKEN));
+        }
+        return futures;
+    }
+
+    private void waitUntilRunning(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (googleGetUserEndpointTd.running.get() < expected) {
+            if (System.nanoTime() > deadline) {
+                fail("logins did not start");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void login_success_successReturned () {
+        googleGetUserEndpointTd.release.countDown();
+        Result result = SUT.login(ACCESS_TOKEN).join();
+        assertTrue(result instanceof Success);
+        assertEquals(((Success) result).user, USER);
+    }
+
+    @Test
+    public void login_moreThanMaxConcurrency_concurrencyCapped () throws InterruptedException {
+        List<CompletableFuture<Result>> futures = login(MAX_CONCURRENCY + MAX_QUEUED);
+        waitUntilRunning(MAX_CONCURRENCY);
+        Thread.sleep(20);
+        assertEquals(googleGetUserEndpointTd.maxRunning.get(), MAX_CONCURRENCY);
+
+        googleGetUserEndpointTd.release.countDown();
+        for (CompletableFuture<Result> future : futures) {
+            assertTrue(future.join() instanceof Success);
+        }
+        assertEquals(SUT.inProgressCount(), 0);
+    }
+
+    @Test
+    public void login_saturated_rejected () throws InterruptedException {
+        login(MAX_CONCURRENCY + MAX_QUEUED);
+        waitUntilRunning(MAX_CONCURRENCY);
+        CompletableFuture<Result> rejected = SUT.login(ACCESS_TOKEN);
+        try {
+            rejected.join();
+            fail("login should have been rejected");
+        } catch (CompletionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
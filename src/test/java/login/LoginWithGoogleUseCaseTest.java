@@ -0,0 +1,267 @@
+package login;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.errors.OverloadedException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import domain.ports.testonly.testonly.UserRepository;
+import login.LoginWithGoogleUseCase.Result;
+import login.LoginWithGoogleUseCase.Result.*;
+import login_convention.EmailValidator;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Behaviour added on top of the rules covered by LoginWithGoogleUseCaseTestSolution
+ * */
+public class LoginWithGoogleUseCaseTest {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final String EMAIL = "EMAIL";
+    private static final String ID = "ID";
+    private static final String FPT_EMAIL = "FPT_EMAIL";
+    private static final String OTHER_FPT_EMAIL = "OTHER_FPT_EMAIL";
+    private static final String GMAIL_EMAIL = "GMAIL_EMAIL";
+    private static final String AUTH_ERROR_TOKEN = "AUTH_ERROR_TOKEN";
+    private static final String CONNECTION_ERROR_TOKEN = "CONNECTION_ERROR_TOKEN";
+    private static final String OVERLOADED_TOKEN = "OVERLOADED_TOKEN";
+    private static final UserStatus ACTIVE_STATUS = new UserStatus(UserStatus.STATUS.ACTIVE);
+    private static final UserRole NOT_ADMIN_ROLE = new UserRole(UserRole.TYPE.STUDENT);
+    private static final UserEntity USER = new UserEntity(ID, EMAIL, "FAMILY_NAME GIVEN_NAME", NOT_ADMIN_ROLE, ACTIVE_STATUS);
+
+    private LoginWithGoogleUseCase SUT;
+    private UserRepositoryTdImp userRepository;
+    private RecordingLoginMetrics metrics;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        userRepository = new UserRepositoryTdImp();
+        metrics = new RecordingLoginMetrics();
+        SUT = new LoginWithGoogleUseCase(new GoogleGetUserEndpointTdImp(), userRepository, new EmailValidatorTdImp(), metrics);
+    }
+
+    // the access token is the email of the google account, except for the error tokens
+    private static class GoogleGetUserEndpointTdImp implements GoogleGetUserEndpoint {
+        @Override
+        public Result getUser(String accessToken) throws ConnectionException {
+            if (AUTH_ERROR_TOKEN.equals(accessToken)) {
+                return new Result.AuthError();
+            }
+            if (CONNECTION_ERROR_TOKEN.equals(accessToken)) {
+                throw new ConnectionException("");
+            }
+            if (OVERLOADED_TOKEN.equals(accessToken)) {
+                throw new OverloadedException("");
+            }
+            String email = ACCESS_TOKEN.equals(accessToken) ? EMAIL : accessToken;
+            return new Result.Success(new GooglePojo(ID, email, true, "NAME", "GIVEN_NAME", "FAMILY_NAME", "", ""));
+        }
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        public boolean isAddedByOtherLogin = false;
+        public boolean isConnectionExceptionOccurs = false;
+        public boolean isOverloaded = false;
+        public int getUserByEmailCount = 0;
+        public int getUsersByEmailsCount = 0;
+        public int addUsersCount = 0;
+        public final Map<String, UserEntity> users = new HashMap<>();
+
+        @Override
+        public UserEntity getUserByEmail(String email) throws OverloadedException {
+            getUserByEmailCount++;
+            if (isOverloaded) {
+                throw new OverloadedException("");
+            }
+            return users.get(email);
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws AlreadyExistException {
+            if (isAddedByOtherLogin) {
+                users.put(email, USER);
+                throw new AlreadyExistException();
+            }
+            UserEntity user = new UserEntity(ID, email, fullName, role, userStatus);
+            users.put(email, user);
+            return user;
+        }
+
+        @Override
+        public Map<String, UserEntity> getUsersByEmails(Collection<String> emails) throws ConnectionException {
+            getUsersByEmailsCount++;
+            if (isOverloaded) {
+                throw new OverloadedException("");
+            }
+            if (isConnectionExceptionOccurs) {
+                throw new ConnectionException("");
+            }
+            Map<String, UserEntity> found = new HashMap<>();
+            for (String email : emails) {
+                if (users.containsKey(email)) {
+                    found.put(email, users.get(email));
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+            addUsersCount++;
+            return UserRepository.super.addUsers(newUsers);
+        }
+    }
+
+    private static class EmailValidatorTdImp implements EmailValidator {
+        @Override
+        public Result check(String email) {
+            return email.contains("FPT") || EMAIL.equals(email) ? new Result(NOT_ADMIN_ROLE, true) : new Result(null, false);
+        }
+    }
+
+    @Test
+    public void loginWithGoogle_userAddedByConcurrentLogin_existingUserReturned () {
+        userRepository.isAddedByOtherLogin = true;
+        Result result = SUT.executes(ACCESS_TOKEN);
+        assertTrue(result instanceof Success);
+        assertEquals(((Success) result).user, USER);
+        assertEquals(userRepository.getUserByEmailCount, 2);
+    }
+
+    @Test
+    public void loginWithGoogleBatch_everyBranch_resultsInTokenOrder () {
+        userRepository.users.put(GMAIL_EMAIL, USER);
+        List<Result> results = SUT.executesBatch(Arrays.asList(
+                GMAIL_EMAIL, FPT_EMAIL, "OTHER_GMAIL_EMAIL", AUTH_ERROR_TOKEN, CONNECTION_ERROR_TOKEN));
+
+        assertEquals(results.size(), 5);
+        assertSame(((Success) results.get(0)).user, USER);
+        assertEquals(((Success) results.get(1)).user.getEmail(), FPT_EMAIL);
+        assertTrue(results.get(2) instanceof NotAllowed);
+        assertTrue(results.get(3) instanceof AuthError);
+        assertTrue(results.get(4) instanceof GeneralError);
+    }
+
+    @Test
+    public void loginWithGoogleBatch_manyUsers_oneReadAndOneWrite () {
+        userRepository.users.put(GMAIL_EMAIL, USER);
+        SUT.executesBatch(Arrays.asList(GMAIL_EMAIL, FPT_EMAIL, OTHER_FPT_EMAIL, "THIRD_FPT_EMAIL"));
+        assertEquals(userRepository.getUsersByEmailsCount, 1);
+        assertEquals(userRepository.addUsersCount, 1);
+        assertEquals(userRepository.users.size(), 4);
+    }
+
+    @Test
+    public void loginWithGoogleBatch_sameNewEmailTwice_addedOnceAndSameUserReturned () {
+        List<Result> results = SUT.executesBatch(Arrays.asList(FPT_EMAIL, FPT_EMAIL));
+        assertSame(((Success) results.get(0)).user, ((Success) results.get(1)).user);
+    }
+
+    @Test
+    public void loginWithGoogleBatch_userAddedByConcurrentLogin_existingUserReturned () {
+        userRepository.isAddedByOtherLogin = true;
+        List<Result> results = SUT.executesBatch(Arrays.asList(FPT_EMAIL));
+        assertSame(((Success) results.get(0)).user, USER);
+        assertEquals(userRepository.getUsersByEmailsCount, 2);
+    }
+
+    @Test
+    public void loginWithGoogleBatch_repositoryConnectionException_generalErrorForPendingOnly () {
+        userRepository.isConnectionExceptionOccurs = true;
+        List<Result> results = SUT.executesBatch(Arrays.asList(FPT_EMAIL, AUTH_ERROR_TOKEN));
+        assertTrue(results.get(0) instanceof GeneralError);
+        assertTrue(results.get(1) instanceof AuthError);
+    }
+
+    @Test
+    public void loginWithGoogle_googleOverloaded_overloadedReturned () {
+        assertTrue(SUT.executes(OVERLOADED_TOKEN) instanceof Overloaded);
+    }
+
+    @Test
+    public void loginWithGoogle_repositoryOverloaded_overloadedReturned () {
+        userRepository.isOverloaded = true;
+        assertTrue(SUT.executes(ACCESS_TOKEN) instanceof Overloaded);
+    }
+
+    @Test
+    public void loginWithGoogleBatch_overloaded_overloadedForAffectedOnly () {
+        userRepository.isOverloaded = true;
+        List<Result> results = SUT.executesBatch(Arrays.asList(FPT_EMAIL, OVERLOADED_TOKEN, CONNECTION_ERROR_TOKEN));
+        assertTrue(results.get(0) instanceof Overloaded);
+        assertTrue(results.get(1) instanceof Overloaded);
+        assertTrue(results.get(2) instanceof GeneralError);
+    }
+
+    @Test
+    public void loginWithGoogle_everyBranch_outcomeCounted () {
+        userRepository.users.put(GMAIL_EMAIL, USER);
+        SUT.executes(GMAIL_EMAIL);
+        SUT.executes(FPT_EMAIL);
+        SUT.executes("OTHER_GMAIL_EMAIL");
+        SUT.executes(AUTH_ERROR_TOKEN);
+        SUT.executes(CONNECTION_ERROR_TOKEN);
+        SUT.executes(OVERLOADED_TOKEN);
+
+        RecordingLoginMetrics.Snapshot snapshot = metrics.snapshot();
+        for (LoginMetrics.Outcome outcome : LoginMetrics.Outcome.values()) {
+            // only RateLimitedLoginWithGoogleUseCase refuses logins
+            long expected = outcome == LoginMetrics.Outcome.TOO_MANY_REQUESTS ? 0 : 1;
+            assertEquals((long) snapshot.outcomes.get(outcome), expected, outcome.name());
+        }
+        assertEquals(snapshot.latencies.get(LoginMetrics.Operation.LOGIN).count, 6);
+        assertEquals((long) snapshot.failures.get(LoginMetrics.Operation.LOGIN), 1);
+        assertEquals(snapshot.latencies.get(LoginMetrics.Operation.GOOGLE_GET_USER).count, 6);
+        assertEquals((long) snapshot.failures.get(LoginMetrics.Operation.GOOGLE_GET_USER), 2);
+        assertEquals(snapshot.latencies.get(LoginMetrics.Operation.GET_USER_BY_EMAIL).count, 3);
+        assertEquals(snapshot.latencies.get(LoginMetrics.Operation.EMAIL_CHECK).count, 2);
+        assertEquals(snapshot.latencies.get(LoginMetrics.Operation.ADD_USER).count, 1);
+    }
+
+    @Test
+    public void loginWithGoogle_userAddedByConcurrentLogin_countedAsExisting () {
+        userRepository.isAddedByOtherLogin = true;
+        SUT.executes(ACCESS_TOKEN);
+        RecordingLoginMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.SUCCESS_EXISTING), 1);
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.SUCCESS_CREATED), 0);
+        assertEquals((long) snapshot.failures.get(LoginMetrics.Operation.ADD_USER), 0);
+    }
+
+    @Test
+    public void loginWithGoogleBatch_everyBranch_outcomeCountedPerToken () {
+        userRepository.users.put(GMAIL_EMAIL, USER);
+        SUT.executesBatch(Arrays.asList(GMAIL_EMAIL, FPT_EMAIL, "OTHER_GMAIL_EMAIL", AUTH_ERROR_TOKEN, CONNECTION_ERROR_TOKEN));
+
+        RecordingLoginMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.SUCCESS_EXISTING), 1);
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.SUCCESS_CREATED), 1);
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.NOT_ALLOWED), 1);
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.AUTH_ERROR), 1);
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.GENERAL_ERROR), 1);
+        assertEquals(snapshot.latencies.get(LoginMetrics.Operation.GET_USERS_BY_EMAILS).count, 1);
+        assertEquals(snapshot.latencies.get(LoginMetrics.Operation.ADD_USERS).count, 1);
+    }
+
+    @Test
+    public void metricsExport_afterLogin_prometheusLines () {
+        SUT.executes(FPT_EMAIL);
+        String export = metrics.snapshot().export();
+        assertTrue(export.contains("login_outcome_total{outcome=\"success_created\"} 1\n"), export);
+        assertTrue(export.contains("login_operation_latency_seconds_count{operation=\"login\"} 1\n"), export);
+        assertTrue(export.contains("login_operation_latency_seconds{operation=\"google_get_user\",quantile=\"0.99\"} "), export);
+    }
+}
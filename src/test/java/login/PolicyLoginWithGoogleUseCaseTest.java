@@ -0,0 +1,291 @@
+package login;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import domain.ports.testonly.testonly.EmailMembership;
+import domain.ports.testonly.testonly.UserRepository;
+import login.LoginWithGoogleUseCase.Result;
+import login.PolicyLoginWithGoogleUseCase.CheckOrder;
+import login_convention.EmailValidatorImp;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class PolicyLoginWithGoogleUseCaseTest {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final String GMAIL_EMAIL = "hoangnm@gmail.com";
+    private static final String STUDENT_EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final long PREFETCH_TIMEOUT_MILLIS = 10;
+    private static final UserEntity ADMIN = new UserEntity("ID", GMAIL_EMAIL, "NAME",
+            UserRole.of(UserRole.TYPE.ADMIN), UserStatus.of(UserStatus.STATUS.ACTIVE));
+
+    private GoogleGetUserEndpointTdImp googleGetUserEndpointTd;
+    private UserRepositoryTdImp userRepositoryTd;
+    private EmailMembershipTdImp membershipTd;
+    private ExecutorTdImp executorTd;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        googleGetUserEndpointTd = new GoogleGetUserEndpointTdImp();
+        userRepositoryTd = new UserRepositoryTdImp();
+        membershipTd = new EmailMembershipTdImp();
+        executorTd = new ExecutorTdImp();
+    }
+
+    private PolicyLoginWithGoogleUseCase SUT (CheckOrder checkOrder, EmailMembership membership, Executor prefetchExecutor) {
+        return new PolicyLoginWithGoogleUseCase(googleGetUserEndpointTd, userRepositoryTd, new EmailValidatorImp(),
+                LoginMetrics.NOOP, checkOrder, membership, prefetchExecutor, PREFETCH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static class GoogleGetUserEndpointTdImp implements GoogleGetUserEndpoint {
+        public String email = GMAIL_EMAIL;
+        public int callCount;
+
+        @Override
+        public Result getUser(String accessToken) {
+            callCount++;
+            return new Result.Success(new GooglePojo("ID", email, true, "NAME", "GIVEN_NAME", "FAMILY_NAME", "", ""));
+        }
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        public final Set<String> lookedUpEmails = new HashSet<>();
+        public UserEntity user;
+        public int getUserByEmailCount;
+        public int addUserCount;
+        public int connectionErrorsLeft;
+
+        @Override
+        public UserEntity getUserByEmail(String email) throws ConnectionException {
+            getUserByEmailCount++;
+            lookedUpEmails.add(email);
+            if (connectionErrorsLeft > 0) {
+                connectionErrorsLeft--;
+                throw new ConnectionException("");
+            }
+            return user != null && user.getEmail().equals(email) ? user : null;
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) {
+            addUserCount++;
+            return new UserEntity("NEW_ID", email, fullName, role, userStatus);
+        }
+    }
+
+    private static class EmailMembershipTdImp implements EmailMembership {
+        public final Set<String> emails = new HashSet<>();
+
+        @Override
+        public boolean mightContain(String email) {
+            return emails.contains(email);
+        }
+    }
+
+    private static class ExecutorTdImp implements Executor {
+        public final List<Runnable> queued = new ArrayList<>();
+        public int executeCount;
+        public boolean isSaturated;
+        // queued behind other work, only run when the test says so
+        public boolean isBacklogged;
+
+        @Override
+        public void execute(Runnable command) {
+            if (isSaturated) {
+                throw new RejectedExecutionException();
+            }
+            executeCount++;
+            if (isBacklogged) {
+                queued.add(command);
+            } else {
+                command.run();
+            }
+        }
+    }
+
+    @Test
+    public void executes_beforeLookupAndEmailNotAllowedAndAbsent_notAllowedWithoutRepositoryRead () {
+        Result result = SUT(CheckOrder.BEFORE_LOOKUP, membershipTd, null).executes(ACCESS_TOKEN);
+
+        assertTrue(result instanceof Result.NotAllowed);
+        assertEquals(userRepositoryTd.getUserByEmailCount, 0);
+    }
+
+    @Test
+    public void executes_beforeLookupAndEmailNotAllowedButKnown_existingAdminFound () {
+        userRepositoryTd.user = ADMIN;
+        membershipTd.emails.add(GMAIL_EMAIL);
+
+        Result result = SUT(CheckOrder.BEFORE_LOOKUP, membershipTd, null).executes(ACCESS_TOKEN);
+
+        assertTrue(result instanceof Result.Success);
+        assertSame(((Result.Success) result).user, ADMIN);
+    }
+
+    @Test
+    public void executes_beforeLookupWithoutMembership_stillLooksUpNotAllowedEmail () {
+        userRepositoryTd.user = ADMIN;
+
+        Result result = SUT(CheckOrder.BEFORE_LOOKUP, null, null).executes(ACCESS_TOKEN);
+
+        assertTrue(result instanceof Result.Success);
+        assertEquals(userRepositoryTd.getUserByEmailCount, 1);
+    }
+
+    @Test
+    public void executes_beforeLookupAndNewValidEmail_addedWithOneRead () {
+        googleGetUserEndpointTd.email = STUDENT_EMAIL;
+
+        Result result = SUT(CheckOrder.BEFORE_LOOKUP, membershipTd, null).executes(ACCESS_TOKEN);
+
+        assertTrue(result instanceof Result.Success);
+        assertEquals(((Result.Success) result).user.getRole().getType(), UserRole.TYPE.STUDENT);
+        assertEquals(userRepositoryTd.getUserByEmailCount, 1);
+        assertEquals(userRepositoryTd.addUserCount, 1);
+    }
+
+    @Test
+    public void executes_afterLookupAndEmailNotAllowed_repositoryReadFirst () {
+        Result result = SUT(CheckOrder.AFTER_LOOKUP, membershipTd, null).executes(ACCESS_TOKEN);
+
+        assertTrue(result instanceof Result.NotAllowed);
+        assertEquals(userRepositoryTd.getUserByEmailCount, 1);
+    }
+
+    @Test
+    public void executesWithHint_hintMatchesGoogleEmail_prefetchedUserUsedWithoutSecondRead () {
+        userRepositoryTd.user = ADMIN;
+        membershipTd.emails.add(GMAIL_EMAIL);
+
+        Result result = SUT(CheckOrder.AFTER_LOOKUP, membershipTd, executorTd).executesWithHint(ACCESS_TOKEN, " " + GMAIL_EMAIL + " ");
+
+        assertTrue(result instanceof Result.Success);
+        assertSame(((Result.Success) result).user, ADMIN);
+        assertEquals(executorTd.executeCount, 1);
+        assertEquals(userRepositoryTd.getUserByEmailCount, 1);
+    }
+
+    @Test
+    public void executesWithHint_hintDiffersFromGoogleEmail_googleEmailLookedUp () {
+        googleGetUserEndpointTd.email = STUDENT_EMAIL;
+
+        Result result = SUT(CheckOrder.AFTER_LOOKUP, null, executorTd).executesWithHint(ACCESS_TOKEN, GMAIL_EMAIL);
+
+        assertTrue(result instanceof Result.Success);
+        assertEquals(((Result.Success) result).user.getEmail(), STUDENT_EMAIL);
+        assertTrue(userRepositoryTd.lookedUpEmails.contains(STUDENT_EMAIL));
+        assertEquals(userRepositoryTd.getUserByEmailCount, 2);
+    }
+
+    @Test
+    public void executesWithHint_hintDiffersOnlyInCase_prefetchedUserUsed () {
+        userRepositoryTd.user = ADMIN;
+        membershipTd.emails.add(GMAIL_EMAIL);
+
+        Result result = SUT(CheckOrder.AFTER_LOOKUP, membershipTd, executorTd).executesWithHint(ACCESS_TOKEN, "HoangNM@gmail.com");
+
+        assertTrue(result instanceof Result.Success);
+        assertSame(((Result.Success) result).user, ADMIN);
+        assertEquals(executorTd.executeCount, 1);
+        assertEquals(userRepositoryTd.getUserByEmailCount, 1);
+    }
+
+    @Test
+    public void executesWithHint_hintDiffersFromGoogleEmail_queuedPrefetchCancelled () {
+        googleGetUserEndpointTd.email = STUDENT_EMAIL;
+        executorTd.isBacklogged = true;
+
+        SUT(CheckOrder.AFTER_LOOKUP, null, executorTd).executesWithHint(ACCESS_TOKEN, GMAIL_EMAIL);
+        executorTd.queued.forEach(Runnable::run);
+
+        assertFalse(userRepositoryTd.lookedUpEmails.contains(GMAIL_EMAIL));
+        assertEquals(userRepositoryTd.getUserByEmailCount, 1);
+    }
+
+    @Test
+    public void executesWithHint_newStudent_emailCheckedOnce () {
+        googleGetUserEndpointTd.email = STUDENT_EMAIL;
+        RecordingLoginMetrics metrics = new RecordingLoginMetrics();
+        PolicyLoginWithGoogleUseCase SUT = new PolicyLoginWithGoogleUseCase(googleGetUserEndpointTd, userRepositoryTd, new EmailValidatorImp(),
+                metrics, CheckOrder.AFTER_LOOKUP, null, executorTd, PREFETCH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        Result result = SUT.executesWithHint(ACCESS_TOKEN, STUDENT_EMAIL);
+
+        assertTrue(result instanceof Result.Success);
+        assertEquals(metrics.snapshot().latencies.get(LoginMetrics.Operation.EMAIL_CHECK).count, 1);
+    }
+
+    @Test
+    public void executesWithHint_hintNotAllowedAndAbsent_noPrefetch () {
+        Result result = SUT(CheckOrder.BEFORE_LOOKUP, membershipTd, executorTd).executesWithHint(ACCESS_TOKEN, GMAIL_EMAIL);
+
+        assertTrue(result instanceof Result.NotAllowed);
+        assertEquals(executorTd.executeCount, 0);
+        assertEquals(userRepositoryTd.getUserByEmailCount, 0);
+    }
+
+    @Test
+    public void executesWithHint_prefetchConnectionException_looksUpAgain () {
+        googleGetUserEndpointTd.email = STUDENT_EMAIL;
+        userRepositoryTd.connectionErrorsLeft = 1;
+
+        Result result = SUT(CheckOrder.AFTER_LOOKUP, null, executorTd).executesWithHint(ACCESS_TOKEN, STUDENT_EMAIL);
+
+        assertTrue(result instanceof Result.Success);
+        assertEquals(userRepositoryTd.getUserByEmailCount, 2);
+        assertEquals(userRepositoryTd.addUserCount, 1);
+    }
+
+    @Test
+    public void executesWithHint_prefetchAndLookupConnectionException_generalError () {
+        googleGetUserEndpointTd.email = STUDENT_EMAIL;
+        userRepositoryTd.connectionErrorsLeft = 2;
+
+        Result result = SUT(CheckOrder.AFTER_LOOKUP, null, executorTd).executesWithHint(ACCESS_TOKEN, STUDENT_EMAIL);
+
+        assertTrue(result instanceof Result.GeneralError);
+        assertEquals(userRepositoryTd.addUserCount, 0);
+    }
+
+    @Test
+    public void executesWithHint_prefetchExecutorSaturated_looksUpWithoutPrefetch () {
+        googleGetUserEndpointTd.email = STUDENT_EMAIL;
+        executorTd.isSaturated = true;
+
+        Result result = SUT(CheckOrder.AFTER_LOOKUP, null, executorTd).executesWithHint(ACCESS_TOKEN, STUDENT_EMAIL);
+
+        assertTrue(result instanceof Result.Success);
+        assertEquals(userRepositoryTd.getUserByEmailCount, 1);
+        assertEquals(googleGetUserEndpointTd.callCount, 1);
+    }
+
+    @Test(timeOut = 5_000)
+    public void executesWithHint_prefetchStillQueued_looksUpAfterTimeout () {
+        userRepositoryTd.user = ADMIN;
+        membershipTd.emails.add(GMAIL_EMAIL);
+        executorTd.isBacklogged = true;
+
+        Result result = SUT(CheckOrder.AFTER_LOOKUP, membershipTd, executorTd).executesWithHint(ACCESS_TOKEN, GMAIL_EMAIL);
+
+        assertTrue(result instanceof Result.Success);
+        assertSame(((Result.Success) result).user, ADMIN);
+        assertEquals(executorTd.executeCount, 1);
+        assertEquals(userRepositoryTd.getUserByEmailCount, 1);
+    }
+}
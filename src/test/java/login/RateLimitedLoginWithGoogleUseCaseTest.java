@@ -0,0 +1,110 @@
+package login;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.ConnectionException;
+import domain.ports.google_api.GoogleGetUserEndpoint;
+import domain.ports.google_api.GooglePojo;
+import domain.ports.testonly.testonly.UserRepository;
+import login.LoginWithGoogleUseCase.Result;
+import login_convention.EmailValidatorImp;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class RateLimitedLoginWithGoogleUseCaseTest {
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final String OTHER_ACCESS_TOKEN = "OTHER_ACCESS_TOKEN";
+    private static final String CLIENT = "10.0.0.1";
+    private static final String OTHER_CLIENT = "10.0.0.2";
+    private static final UserEntity USER = new UserEntity("ID", "hoangnm@gmail.com", "NAME",
+            UserRole.of(UserRole.TYPE.GUEST), UserStatus.of(UserStatus.STATUS.ACTIVE));
+
+    private RateLimitedLoginWithGoogleUseCase SUT;
+    private GoogleGetUserEndpointTdImp googleGetUserEndpointTd;
+    private RecordingLoginMetrics metrics;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        googleGetUserEndpointTd = new GoogleGetUserEndpointTdImp();
+        metrics = new RecordingLoginMetrics();
+        LoginWithGoogleUseCase useCase = new LoginWithGoogleUseCase(googleGetUserEndpointTd, new UserRepositoryTdImp(), new EmailValidatorImp(), metrics);
+        KeyedRateLimiter<String> clientLimiter = new KeyedRateLimiter<>(1, 1, TimeUnit.HOURS, 3, 100, () -> 0);
+        KeyedRateLimiter<Long> tokenLimiter = new KeyedRateLimiter<>(1, 1, TimeUnit.HOURS, 2, 100, () -> 0);
+        SUT = new RateLimitedLoginWithGoogleUseCase(useCase, clientLimiter, tokenLimiter, metrics);
+    }
+
+    private static class GoogleGetUserEndpointTdImp implements GoogleGetUserEndpoint {
+        public int callCount;
+
+        @Override
+        public Result getUser(String accessToken) {
+            callCount++;
+            return new Result.AuthError();
+        }
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        @Override
+        public UserEntity getUserByEmail(String email) {
+            return USER;
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) {
+            return USER;
+        }
+    }
+
+    @Test
+    public void executes_sameTokenOverLimit_tooManyRequestsWithoutCallingGoogle () {
+        assertTrue(SUT.executes(ACCESS_TOKEN) instanceof Result.AuthError);
+        assertTrue(SUT.executes(ACCESS_TOKEN) instanceof Result.AuthError);
+        assertTrue(SUT.executes(ACCESS_TOKEN) instanceof Result.TooManyRequests);
+        assertEquals(googleGetUserEndpointTd.callCount, 2);
+    }
+
+    @Test
+    public void executes_sameClientManyTokens_limitedByClient () {
+        assertTrue(SUT.executes(CLIENT, "TOKEN_1") instanceof Result.AuthError);
+        assertTrue(SUT.executes(CLIENT, "TOKEN_2") instanceof Result.AuthError);
+        assertTrue(SUT.executes(CLIENT, "TOKEN_3") instanceof Result.AuthError);
+        assertTrue(SUT.executes(CLIENT, "TOKEN_4") instanceof Result.TooManyRequests);
+        assertTrue(SUT.executes(OTHER_CLIENT, "TOKEN_4") instanceof Result.AuthError);
+        assertEquals(googleGetUserEndpointTd.callCount, 4);
+    }
+
+    @Test
+    public void executes_refused_countedAsTooManyRequests () {
+        SUT.executes(CLIENT, "TOKEN_1");
+        SUT.executes(CLIENT, "TOKEN_2");
+        SUT.executes(CLIENT, "TOKEN_3");
+        SUT.executes(CLIENT, "TOKEN_4");
+        SUT.executes(OTHER_CLIENT, "TOKEN_1");
+        SUT.executes(OTHER_CLIENT, "TOKEN_1");
+
+        RecordingLoginMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.TOO_MANY_REQUESTS), 2);
+        assertEquals((long) snapshot.outcomes.get(LoginMetrics.Outcome.AUTH_ERROR), 4);
+        assertTrue(snapshot.export().contains("login_outcome_total{outcome=\"too_many_requests\"} 2\n"), snapshot.export());
+    }
+
+    @Test
+    public void executes_otherToken_ownBudget () {
+        SUT.executes(ACCESS_TOKEN);
+        SUT.executes(ACCESS_TOKEN);
+        assertTrue(SUT.executes(OTHER_ACCESS_TOKEN) instanceof Result.AuthError);
+    }
+
+    @Test
+    public void tokenKey_differentTokens_differentKeys () {
+        assertEquals(RateLimitedLoginWithGoogleUseCase.tokenKey(ACCESS_TOKEN), RateLimitedLoginWithGoogleUseCase.tokenKey("ACCESS_TOKEN"));
+        assertNotEquals(RateLimitedLoginWithGoogleUseCase.tokenKey(ACCESS_TOKEN), RateLimitedLoginWithGoogleUseCase.tokenKey(OTHER_ACCESS_TOKEN));
+    }
+}
@@ -11,6 +11,7 @@ import login.LoginWithGoogleUseCase.Result.GeneralError;
 import login.LoginWithGoogleUseCase.Result.NotAllowed;
 import login.LoginWithGoogleUseCase.Result.Success;
 import login_convention.EmailValidator;
+import domain.ports.errors.AlreadyExistException;
 import domain.ports.errors.ConnectionException;
 import domain.ports.testonly.testonly.UserRepository;
 import org.mockito.ArgumentCaptor;
@@ -153,7 +154,7 @@ public class StillLoginWithGoogleUseCaseTestButWithMockito {
     }
 
     @Test
-    public void loginWithGoogle_accessTokenNotFptButInDb_successReturned () throws ConnectionException {
+    public void loginWithGoogle_accessTokenNotFptButInDb_successReturned () throws ConnectionException, AlreadyExistException {
         when(userRepository.addUser(anyString(),anyString(),anyString(),any(), any())).thenReturn(USER);
         when(emailValidator.check(EMAIL)).thenReturn(new EmailValidator.Result(NOT_ADMIN_ROLE, true));
         Result result = SUT.executes(ACCESS_TOKEN);
@@ -161,7 +162,7 @@ public class StillLoginWithGoogleUseCaseTestButWithMockito {
     }
 
     @Test(groups = {HAS_INTERACTION_WITH_USER_REPOSITORY})
-    public void loginWithGoogle_accessTokenIsFptButNotInDb_hasInteractionWithUserRepositoryAddMethod () throws ConnectionException {
+    public void loginWithGoogle_accessTokenIsFptButNotInDb_hasInteractionWithUserRepositoryAddMethod () throws ConnectionException, AlreadyExistException {
         when(emailValidator.check(EMAIL)).thenReturn(new EmailValidator.Result(NOT_ADMIN_ROLE,true));
         when(userRepository.getUserByEmail(EMAIL)).thenReturn(NON_INITIALIZE_USER);
         SUT.executes(ACCESS_TOKEN);
@@ -169,7 +170,7 @@ public class StillLoginWithGoogleUseCaseTestButWithMockito {
     }
 
     @Test
-    public void loginWithGoogle_accessTokenIsNotFptAndNotInDb_noInteractionWithUserRepositoryAddMethod () throws ConnectionException {
+    public void loginWithGoogle_accessTokenIsNotFptAndNotInDb_noInteractionWithUserRepositoryAddMethod () throws ConnectionException, AlreadyExistException {
         when(emailValidator.check(EMAIL)).thenReturn(new EmailValidator.Result(null,false));
         when(userRepository.getUserByEmail(EMAIL)).thenReturn(NON_INITIALIZE_USER);
         SUT.executes(ACCESS_TOKEN);
@@ -177,7 +178,7 @@ public class StillLoginWithGoogleUseCaseTestButWithMockito {
     }
 
     @Test
-    public void loginWithGoogle_googlePojoIsPassedCorrectlyToRepository () throws ConnectionException {
+    public void loginWithGoogle_googlePojoIsPassedCorrectlyToRepository () throws ConnectionException, AlreadyExistException {
         ArgumentCaptor<String> ac = ArgumentCaptor.forClass(String.class);
         SUT.executes(ACCESS_TOKEN);
         verify(userRepository,times(1)).addUser(ac.capture(), ac.capture(), anyString(), any(), any());
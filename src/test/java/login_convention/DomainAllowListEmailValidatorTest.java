@@ -0,0 +1,113 @@
+package login_convention;
+
+import domain.entities.UserRole;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class DomainAllowListEmailValidatorTest {
+    private static final String ALLOW_LIST =
+            "# domain          role     [subdomains]\n" +
+            "fpt.edu.vn        AUTO\n" +
+            "fe.edu.vn         AUTO\n" +
+            "\n" +
+            "partner.edu.vn    MENTOR   subdomains  # every campus of the partner\n";
+
+    private DomainAllowListEmailValidator SUT;
+    private Path file;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () throws IOException {
+        file = Files.createTempFile("allow-list", ".txt");
+        write(ALLOW_LIST, 1);
+        SUT = new DomainAllowListEmailValidator(file);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown () throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private void write(String content, long modifiedSeconds) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedSeconds * 1000));
+    }
+
+    @Test
+    public void check_autoDomain_sameAsEmailValidatorImp () {
+        EmailValidatorImp emailValidatorImp = new EmailValidatorImp();
+        String[] emails = {"hoangnmse140123@fpt.edu.vn", "hoangnm@fe.edu.vn", "hoangnm140123@gmail.com", "hoangnm@mail.fpt.edu.vn"};
+        for (String email : emails) {
+            EmailValidator.Result expected = emailValidatorImp.check(email);
+            EmailValidator.Result result = SUT.check(email);
+            assertEquals(result.isValid, expected.isValid, email);
+            if (expected.isValid) {
+                assertEquals(result.role.getType(), expected.role.getType(), email);
+            }
+        }
+    }
+
+    @Test
+    public void check_fixedRoleDomain_thatRoleReturned () {
+        EmailValidator.Result result = SUT.check("hoangnm140123@partner.edu.vn");
+        assertTrue(result.isValid);
+        assertEquals(result.role.getType(), UserRole.TYPE.MENTOR);
+    }
+
+    @Test
+    public void check_subdomainOfSubdomainRule_allowed () {
+        EmailValidator.Result result = SUT.check("hoangnm@hcm.campus.partner.edu.vn");
+        assertTrue(result.isValid);
+        assertEquals(result.role.getType(), UserRole.TYPE.MENTOR);
+    }
+
+    @Test
+    public void check_domainInOtherCase_allowed () {
+        assertTrue(SUT.check("hoangnm@Partner.EDU.vn").isValid);
+    }
+
+    @Test
+    public void reloadIfModified_fileChanged_newListUsed () throws IOException {
+        write("gmail.com GUEST\n", 2);
+        assertTrue(SUT.reloadIfModified());
+        assertTrue(SUT.check("hoangnm@gmail.com").isValid);
+        assertFalse(SUT.check("hoangnm@fpt.edu.vn").isValid);
+        assertEquals(SUT.size(), 1);
+    }
+
+    @Test
+    public void reloadIfModified_fileNotChanged_notReloaded () throws IOException {
+        assertFalse(SUT.reloadIfModified());
+    }
+
+    @Test
+    public void reload_brokenFile_lastListKept () throws IOException {
+        write("fpt.edu.vn PRINCIPAL\n", 2);
+        try {
+            SUT.reload();
+            fail("unknown role should be rejected");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().startsWith("Line 1"));
+        }
+        assertEquals(SUT.size(), 3);
+        assertTrue(SUT.check("hoangnm@fpt.edu.vn").isValid);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void reloadIfModified_builtFromRules_illegalStateException () throws IOException {
+        new DomainAllowListEmailValidator(Collections.singletonList(
+                new DomainAllowListEmailValidator.Rule("fpt.edu.vn", null, false))).reloadIfModified();
+    }
+}
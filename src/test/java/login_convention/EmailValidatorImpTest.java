@@ -0,0 +1,77 @@
+package login_convention;
+
+import domain.entities.UserRole;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class EmailValidatorImpTest {
+    private static final String STUDENT_EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final String FE_STUDENT_EMAIL = "hoangnmse140123@fe.edu.vn";
+    private static final String STAFF_EMAIL = "hoangnm@fpt.edu.vn";
+    private static final String GMAIL_EMAIL = "hoangnm140123@gmail.com";
+
+    private EmailValidatorImp SUT;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        SUT = new EmailValidatorImp();
+    }
+
+    @Test
+    public void check_fptEmailWithStudentCode_studentReturned () {
+        EmailValidator.Result result = SUT.check(STUDENT_EMAIL);
+        assertTrue(result.isValid);
+        assertEquals(result.role.getType(), UserRole.TYPE.STUDENT);
+    }
+
+    @Test
+    public void check_feEmailWithStudentCode_studentReturned () {
+        EmailValidator.Result result = SUT.check(FE_STUDENT_EMAIL);
+        assertTrue(result.isValid);
+        assertEquals(result.role.getType(), UserRole.TYPE.STUDENT);
+    }
+
+    @Test
+    public void check_fptEmailWithFewDigits_guestReturned () {
+        EmailValidator.Result result = SUT.check(STAFF_EMAIL);
+        assertTrue(result.isValid);
+        assertEquals(result.role.getType(), UserRole.TYPE.GUEST);
+        assertEquals(SUT.check("hoang123@fpt.edu.vn").role.getType(), UserRole.TYPE.GUEST);
+    }
+
+    @Test
+    public void check_notFptDomain_notValid () {
+        EmailValidator.Result result = SUT.check(GMAIL_EMAIL);
+        assertFalse(result.isValid);
+        assertNull(result.role);
+    }
+
+    @Test
+    public void check_fptSubdomainOrSuffix_notValid () {
+        assertFalse(SUT.check("hoangnm@mail.fpt.edu.vn").isValid);
+        assertFalse(SUT.check("hoangnm@fpt.edu.vn.com").isValid);
+        assertFalse(SUT.check("hoangnm@FPT.EDU.VN").isValid);
+    }
+
+    @Test
+    public void check_digitsInLocalPart_onlyThoseCounted () {
+        assertEquals(SUT.check("se14@fpt.edu.vn").role.getType(), UserRole.TYPE.GUEST);
+        assertEquals(SUT.check("se1401@fpt.edu.vn").role.getType(), UserRole.TYPE.STUDENT);
+        assertEquals(SUT.check("s1e2n3g4@fe.edu.vn").role.getType(), UserRole.TYPE.STUDENT);
+        // allowed domains have no digits, so the rule is checked on a domain that has some
+        String email = "se14@2024.fpt.edu.vn";
+        assertEquals(EmailValidatorImp.roleByDigits(email, email.indexOf('@') + 1).role.getType(), UserRole.TYPE.GUEST);
+    }
+
+    @Test
+    public void check_sameOutcome_sameResultInstance () {
+        assertSame(SUT.check(STUDENT_EMAIL), SUT.check(FE_STUDENT_EMAIL));
+        assertSame(SUT.check(GMAIL_EMAIL), SUT.check("hoangnm@yahoo.com"));
+    }
+}
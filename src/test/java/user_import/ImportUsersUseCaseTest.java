@@ -0,0 +1,217 @@
+package user_import;
+
+import domain.entities.UserEntity;
+import domain.entities.UserRole;
+import domain.entities.UserStatus;
+import domain.ports.errors.AlreadyExistException;
+import domain.ports.errors.ConnectionException;
+import domain.ports.testonly.testonly.UserRepository;
+import login_convention.EmailValidatorImp;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ImportUsersUseCaseTest {
+    private static final String STUDENT_EMAIL = "hoangnmse140123@fpt.edu.vn";
+    private static final String GUEST_EMAIL = "hoangnm@fpt.edu.vn";
+    private static final String GMAIL_EMAIL = "hoangnm@gmail.com";
+
+    private ImportUsersUseCase SUT;
+    private UserRepositoryTdImp userRepository;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setup () {
+        userRepository = new UserRepositoryTdImp();
+        SUT = new ImportUsersUseCase(userRepository, new EmailValidatorImp(), 2, 2);
+    }
+
+    private static class UserRepositoryTdImp implements UserRepository {
+        public final Map<String, UserEntity> users = new ConcurrentHashMap<>();
+        public final AtomicInteger addUsersCount = new AtomicInteger();
+        public volatile boolean isConnectionError;
+        public volatile boolean isBroken;
+        public volatile CountDownLatch addUsersRelease = new CountDownLatch(0);
+
+        @Override
+        public UserEntity getUserByEmail(String email) {
+            return users.get(email.toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public UserEntity addUser(String email, String fullName, String avatar, UserRole role, UserStatus userStatus) throws AlreadyExistException {
+            UserEntity user = new UserEntity("ID_" + users.size(), email, fullName, role, userStatus);
+            if (users.putIfAbsent(email.toLowerCase(Locale.ROOT), user) != null) {
+                throw new AlreadyExistException();
+            }
+            return user;
+        }
+
+        @Override
+        public Map<String, UserEntity> addUsers(Collection<NewUser> newUsers) throws ConnectionException {
+            addUsersCount.incrementAndGet();
+            try {
+                addUsersRelease.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (isBroken) {
+                throw new IllegalStateException("broken");
+            }
+            if (isConnectionError) {
+                throw new ConnectionException("");
+            }
+            return UserRepository.super.addUsers(newUsers);
+        }
+    }
+
+    // Lines of valid student emails made as they are read, counting how many were
+    private static class StudentLinesReader extends Reader {
+        private final int lineCount;
+        public final AtomicLong linesMade = new AtomicLong();
+        private String line = "";
+        private int position;
+
+        StudentLinesReader(int lineCount) {
+            this.lineCount = lineCount;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == line.length()) {
+                if (linesMade.get() == lineCount) {
+                    return -1;
+                }
+                line = "student" + (10000 + linesMade.getAndIncrement()) + "@fpt.edu.vn,NAME\n";
+                position = 0;
+            }
+            int read = Math.min(length, line.length() - position);
+            line.getChars(position, position + read, buffer, offset);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static BufferedReader lines (String... lines) {
+        return new BufferedReader(new StringReader(String.join("\n", lines)));
+    }
+
+    @Test
+    public void executes_mixedFile_allowedNewUsersAddedWithTheirRole () throws Exception {
+        userRepository.addUser(GUEST_EMAIL, "EXISTING", null, UserRole.of(UserRole.TYPE.GUEST), UserStatus.of(UserStatus.STATUS.ACTIVE));
+
+        ImportUsersUseCase.Report report = SUT.executes(lines(
+                "# intake",
+                STUDENT_EMAIL + ",Nguyen, Minh Hoang",
+                "",
+                GMAIL_EMAIL + ",NAME",
+                GUEST_EMAIL + ",NAME",
+                ",NO_EMAIL",
+                "hoangnmse140124@fpt.edu.vn"), null);
+
+        assertEquals(report.readCount, 5);
+        assertEquals(report.addedCount, 2);
+        assertEquals(report.existingCount, 1);
+        assertEquals(report.notAllowedCount, 2);
+        assertEquals(report.failedCount, 0);
+        UserEntity student = userRepository.getUserByEmail(STUDENT_EMAIL);
+        assertEquals(student.getFullName(), "Nguyen, Minh Hoang");
+        assertEquals(student.getRole().getType(), UserRole.TYPE.STUDENT);
+        assertEquals(student.getStatus().getStatus(), UserStatus.STATUS.ACTIVE);
+        assertEquals(userRepository.getUserByEmail(GUEST_EMAIL).getFullName(), "EXISTING");
+        assertEquals(userRepository.users.size(), 3);
+    }
+
+    @Test
+    public void executes_sameEmailTwice_addedOnce () throws Exception {
+        ImportUsersUseCase.Report report = SUT.executes(lines(
+                STUDENT_EMAIL, "HoangNMse140123@fpt.edu.vn", GUEST_EMAIL, STUDENT_EMAIL, GUEST_EMAIL), null);
+
+        assertEquals(report.addedCount, 2);
+        assertEquals(report.existingCount, 3);
+        assertEquals(userRepository.users.size(), 2);
+    }
+
+    @Test
+    public void executes_addUsersConnectionException_countedAsFailed () throws Exception {
+        userRepository.isConnectionError = true;
+
+        ImportUsersUseCase.Report report = SUT.executes(lines(STUDENT_EMAIL, GUEST_EMAIL, GMAIL_EMAIL), null);
+
+        assertEquals(report.readCount, 3);
+        assertEquals(report.failedCount, 2);
+        assertEquals(report.notAllowedCount, 1);
+        assertEquals(report.addedCount, 0);
+    }
+
+    @Test
+    public void executes_progressListener_calledPerBatchWithRunningTotals () throws Exception {
+        List<ImportUsersUseCase.Report> progress = new ArrayList<>();
+
+        ImportUsersUseCase.Report report = SUT.executes(new BufferedReader(new StudentLinesReader(9)), progress::add);
+
+        assertEquals(progress.size(), 5);
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i).readCount > progress.get(i - 1).readCount);
+        }
+        assertEquals(progress.get(4).addedCount, 9);
+        assertEquals(report.addedCount, 9);
+        assertEquals(userRepository.addUsersCount.get(), 5);
+    }
+
+    @Test(timeOut = 10_000)
+    public void executes_writerBlocked_readingHeldBack () throws Exception {
+        userRepository.addUsersRelease = new CountDownLatch(1);
+        StudentLinesReader reader = new StudentLinesReader(100_000);
+
+        CompletableFuture<ImportUsersUseCase.Report> report = CompletableFuture.supplyAsync(() -> {
+            try {
+                return SUT.executes(new BufferedReader(reader), null);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        while (userRepository.addUsersCount.get() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(200);
+
+        // a few batches in the queues plus what BufferedReader read ahead
+        assertTrue(reader.linesMade.get() < 1000, "read " + reader.linesMade.get());
+        userRepository.addUsersRelease.countDown();
+        assertEquals(report.get(5, TimeUnit.SECONDS).addedCount, 100_000);
+    }
+
+    @Test(timeOut = 10_000)
+    public void executes_writerFails_exceptionThrownWithoutHanging () throws Exception {
+        userRepository.isBroken = true;
+
+        try {
+            SUT.executes(new BufferedReader(new StudentLinesReader(100_000)), null);
+            fail();
+        } catch (IllegalStateException ex) {
+            assertEquals(ex.getMessage(), "broken");
+        }
+    }
+}